@@ -0,0 +1,105 @@
+package com.expensetracker.util;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels on the JDK Vector API. Days, cents and categories are loaded with species of the
+ * same lane count (int and short vectors a half and a quarter of the long width), so one range
+ * mask selects the matching cents. Only {@link #summarize} is vectorised; grouped sums stay on the
+ * scalar single pass, which measured faster than one masked pass per group. Compiled only with
+ * the {@code vector} Maven profile and loaded by {@link AggregationKernels#get()} when
+ * {@code jdk.incubator.vector} is present.
+ * <p>
+ * Lane sums are not overflow-checked: cents are bounded by the 10 integer digits allowed on
+ * requests, so a lane cannot overflow below ~9 million rows; lanes are combined with
+ * {@link Math#addExact}.
+ */
+final class VectorAggregationKernels extends ScalarAggregationKernels {
+    
+    // Species must be static finals for C2 to intrinsify the vector operations
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final boolean SUPPORTED = LONGS.vectorBitSize() >= 256;
+    private static final VectorSpecies<Integer> INTS = SUPPORTED
+            ? VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2))
+            : IntVector.SPECIES_64;
+    private static final VectorSpecies<Short> SHORTS = SUPPORTED
+            ? VectorSpecies.of(short.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 4))
+            : ShortVector.SPECIES_64;
+    
+    private VectorAggregationKernels() {
+    }
+    
+    /**
+     * Returns null when the preferred vectors are narrower than 256 bits (no 32-bit short shape).
+     */
+    static AggregationKernels createIfSupported() {
+        return SUPPORTED ? new VectorAggregationKernels() : null;
+    }
+    
+    @Override
+    public void summarize(int[] days, long[] cents, short[] categories, int size,
+                          int startDay, int endDay, int category, long[] out) {
+        LongVector sum = LongVector.zero(LONGS);
+        LongVector min = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+        LongVector max = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+        long count = 0;
+        
+        int upper = LONGS.loopBound(size);
+        int i = 0;
+        for (; i < upper; i += LONGS.length()) {
+            VectorMask<Long> mask = rowMask(days, categories, i, startDay, endDay, category);
+            LongVector values = LongVector.fromArray(LONGS, cents, i);
+            sum = sum.add(values, mask);
+            min = min.lanewise(VectorOperators.MIN, values, mask);
+            max = max.lanewise(VectorOperators.MAX, values, mask);
+            count += mask.trueCount();
+        }
+        
+        long total = addLanes(sum);
+        long lowest = min.reduceLanes(VectorOperators.MIN);
+        long highest = max.reduceLanes(VectorOperators.MAX);
+        
+        for (; i < size; i++) {
+            if (matches(days[i], categories[i], startDay, endDay, category)) {
+                count++;
+                total = Math.addExact(total, cents[i]);
+                lowest = Math.min(lowest, cents[i]);
+                highest = Math.max(highest, cents[i]);
+            }
+        }
+        
+        out[COUNT] = count;
+        out[SUM] = total;
+        out[MIN] = lowest;
+        out[MAX] = highest;
+    }
+    
+    private VectorMask<Long> rowMask(int[] days, short[] categories, int offset,
+                                     int startDay, int endDay, int category) {
+        IntVector dayLanes = IntVector.fromArray(INTS, days, offset);
+        VectorMask<Integer> mask = dayLanes.compare(VectorOperators.GE, startDay)
+                .and(dayLanes.compare(VectorOperators.LE, endDay));
+        
+        if (category >= 0) {
+            VectorMask<Short> categoryMask = ShortVector.fromArray(SHORTS, categories, offset)
+                    .compare(VectorOperators.EQ, (short) category);
+            mask = mask.and(categoryMask.cast(INTS));
+        }
+        
+        return mask.cast(LONGS);
+    }
+    
+    private long addLanes(LongVector vector) {
+        long total = 0;
+        for (long lane : vector.toArray()) {
+            total = Math.addExact(total, lane);
+        }
+        return total;
+    }
+}
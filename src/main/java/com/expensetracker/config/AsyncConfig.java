@@ -1,5 +1,6 @@
 package com.expensetracker.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -19,4 +20,34 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+    
+    /**
+     * Writers of statement imports, kept apart from request handling and other async work. No
+     * queue: an import that finds every thread busy is rejected instead of holding its upload.
+     */
+    @Bean(name = "importExecutor")
+    public Executor importExecutor(@Value("${app.import.max-concurrent-jobs:2}") int maxConcurrentJobs) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentJobs);
+        executor.setMaxPoolSize(maxConcurrentJobs);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("import-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Refreshes spend indexes that outlived their TTL while requests keep reading the old ones.
+     * Refreshes that find the queue full are dropped; the next read of a stale index asks again.
+     */
+    @Bean(name = "spendIndexExecutor")
+    public Executor spendIndexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("spend-index-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,47 @@
+package com.expensetracker.config;
+
+import org.bson.types.Decimal128;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Configuration
+public class MongoConfig {
+    
+    /**
+     * Persist BigDecimal (expense and budget amounts) as Decimal128 instead of Spring Data's
+     * default string, so $sum/$max and range queries on amounts compare numerically. Documents
+     * still holding strings are read as before until the amount migration rewrites them.
+     */
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                new BigDecimalToDecimal128Converter(),
+                new Decimal128ToBigDecimalConverter()
+        ));
+    }
+    
+    @WritingConverter
+    static class BigDecimalToDecimal128Converter implements Converter<BigDecimal, Decimal128> {
+        
+        @Override
+        public Decimal128 convert(BigDecimal source) {
+            return new Decimal128(source);
+        }
+    }
+    
+    @ReadingConverter
+    static class Decimal128ToBigDecimalConverter implements Converter<Decimal128, BigDecimal> {
+        
+        @Override
+        public BigDecimal convert(Decimal128 source) {
+            return source.bigDecimalValue();
+        }
+    }
+}
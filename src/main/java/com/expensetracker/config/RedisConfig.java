@@ -1,5 +1,7 @@
 package com.expensetracker.config;
 
+import com.expensetracker.service.AnalyticsBlockCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -33,6 +35,9 @@ public class RedisConfig {
         return template;
     }
     
+    @Value("${app.analytics.month-block-ttl-days:30}")
+    private long monthBlockTtlDays;
+    
     @Bean
     public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
         RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
@@ -43,6 +48,8 @@ public class RedisConfig {
         
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(cacheConfig)
+                // Closed months only change on back-dated writes, which re-key their block explicitly
+                .withCacheConfiguration(AnalyticsBlockCache.MONTH_BLOCKS, cacheConfig.entryTtl(Duration.ofDays(monthBlockTtlDays)))
                 .build();
     }
 }
@@ -0,0 +1,121 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.dto.common.ApiResponse;
+import com.expensetracker.service.AmountMigrationService;
+import com.expensetracker.service.AnomalyDetectionService;
+import com.expensetracker.service.ExpenseRollupService;
+import com.expensetracker.service.HeavyHitterService;
+import com.expensetracker.service.SpendCalendarService;
+import com.expensetracker.service.SpendDistributionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Admin", description = "Maintenance APIs for administrators")
+public class AdminController {
+    
+    private final ExpenseRollupService expenseRollupService;
+    private final AmountMigrationService amountMigrationService;
+    private final SpendDistributionService spendDistributionService;
+    private final SpendCalendarService spendCalendarService;
+    private final HeavyHitterService heavyHitterService;
+    private final AnomalyDetectionService anomalyDetectionService;
+    
+    @PostMapping("/rollups/rebuild")
+    @Operation(summary = "Rebuild expense rollups",
+               description = "Recompute the daily spend rollups from raw expenses, for one user or in the background for all users")
+    public ResponseEntity<ApiResponse<Void>> rebuildRollups(
+            @Parameter(description = "Only rebuild this user's rollups")
+            @RequestParam(required = false) String userId) {
+        if (userId != null) {
+            expenseRollupService.rebuildForUser(userId);
+            return ResponseEntity.ok(ApiResponse.success("Rollups rebuilt for user " + userId, null));
+        }
+        
+        expenseRollupService.rebuildAll();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Rollup rebuild started", null));
+    }
+    
+    @PostMapping("/distributions/rebuild")
+    @Operation(summary = "Rebuild spend histograms",
+               description = "Recompute the per-category monthly spend histograms from raw expenses, for one user or in the background for all users")
+    public ResponseEntity<ApiResponse<Void>> rebuildDistributions(
+            @Parameter(description = "Only rebuild this user's histograms")
+            @RequestParam(required = false) String userId) {
+        if (userId != null) {
+            spendDistributionService.rebuildForUser(userId);
+            return ResponseEntity.ok(ApiResponse.success("Histograms rebuilt for user " + userId, null));
+        }
+        
+        spendDistributionService.rebuildAll();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Histogram rebuild started", null));
+    }
+    
+    @PostMapping("/heatmaps/rebuild")
+    @Operation(summary = "Rebuild spend calendars",
+               description = "Recompute the yearly daily spend arrays behind the heatmap from raw expenses, for one user or in the background for all users")
+    public ResponseEntity<ApiResponse<Void>> rebuildHeatmaps(
+            @Parameter(description = "Only rebuild this user's calendars")
+            @RequestParam(required = false) String userId) {
+        if (userId != null) {
+            spendCalendarService.rebuildForUser(userId);
+            return ResponseEntity.ok(ApiResponse.success("Calendars rebuilt for user " + userId, null));
+        }
+        
+        spendCalendarService.rebuildAll();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Calendar rebuild started", null));
+    }
+    
+    @PostMapping("/heavy-hitters/rebuild")
+    @Operation(summary = "Rebuild merchant and tag sketches",
+               description = "Recompute the monthly top merchant and tag sketches from raw expenses, for one user or in the background for all users")
+    public ResponseEntity<ApiResponse<Void>> rebuildHeavyHitters(
+            @Parameter(description = "Only rebuild this user's sketches")
+            @RequestParam(required = false) String userId) {
+        if (userId != null) {
+            heavyHitterService.rebuildForUser(userId);
+            return ResponseEntity.ok(ApiResponse.success("Sketches rebuilt for user " + userId, null));
+        }
+        
+        heavyHitterService.rebuildAll();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Sketch rebuild started", null));
+    }
+    
+    @PostMapping("/anomalies/rebuild")
+    @Operation(summary = "Rebuild anomaly statistics",
+               description = "Recompute the per-category running mean and variance from raw expenses, for one user or in the background for all users")
+    public ResponseEntity<ApiResponse<Void>> rebuildAnomalyStatistics(
+            @Parameter(description = "Only rebuild this user's statistics")
+            @RequestParam(required = false) String userId) {
+        if (userId != null) {
+            anomalyDetectionService.rebuildForUser(userId);
+            return ResponseEntity.ok(ApiResponse.success("Statistics rebuilt for user " + userId, null));
+        }
+        
+        anomalyDetectionService.rebuildAll();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Statistics rebuild started", null));
+    }
+    
+    @PostMapping("/migrations/decimal-amounts")
+    @Operation(summary = "Migrate amounts to Decimal128",
+               description = "Rewrite expense and budget amounts still stored as strings, in background batches")
+    public ResponseEntity<ApiResponse<Void>> migrateAmounts() {
+        amountMigrationService.migrateInBackground();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Amount migration started", null));
+    }
+}
@@ -1,13 +1,32 @@
 package com.expensetracker.controller;
 
+import com.expensetracker.dto.analytics.AnalyticsBatchRequest;
 import com.expensetracker.dto.analytics.AnalyticsResponse;
+import com.expensetracker.dto.analytics.ComparisonResponse;
+import com.expensetracker.dto.analytics.AnomalyResponse;
+import com.expensetracker.dto.analytics.DistributionResponse;
+import com.expensetracker.dto.analytics.ForecastResponse;
+import com.expensetracker.dto.analytics.HeatmapResponse;
+import com.expensetracker.dto.analytics.HeavyHitterResponse;
+import com.expensetracker.dto.analytics.MovingAverageResponse;
+import com.expensetracker.dto.analytics.TimeSeriesResponse;
 import com.expensetracker.dto.common.ApiResponse;
+import com.expensetracker.exception.BadRequestException;
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.HeavyHitterSketch;
 import com.expensetracker.security.UserPrincipal;
 import com.expensetracker.service.AnalyticsService;
+import com.expensetracker.service.AnomalyDetectionService;
+import com.expensetracker.service.ForecastService;
+import com.expensetracker.service.HeavyHitterService;
+import com.expensetracker.service.SpendCalendarService;
+import com.expensetracker.service.SpendDistributionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -15,6 +34,8 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -25,6 +46,11 @@ import java.util.Map;
 public class AnalyticsController {
     
     private final AnalyticsService analyticsService;
+    private final SpendDistributionService spendDistributionService;
+    private final HeavyHitterService heavyHitterService;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final ForecastService forecastService;
+    private final SpendCalendarService spendCalendarService;
     
     @GetMapping
     @Operation(summary = "Get comprehensive analytics", 
@@ -39,6 +65,58 @@ public class AnalyticsController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
     
+    @GetMapping("/moving-averages")
+    @Operation(summary = "Get moving averages", 
+               description = "Get daily spend with its 7-, 30- and 90-day moving averages for every day of a range (up to 3 years)")
+    public ResponseEntity<ApiResponse<MovingAverageResponse>> getMovingAverages(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Start date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        MovingAverageResponse response = analyticsService.getMovingAverages(userPrincipal.getId(), startDate, endDate);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/timeseries")
+    @Operation(summary = "Get daily spend time series", 
+               description = "Get daily spend over a range, overall or for one category, downsampled to at most maxPoints points (Largest-Triangle-Three-Buckets)")
+    public ResponseEntity<ApiResponse<TimeSeriesResponse>> getTimeSeries(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Start date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Category ID filter") 
+            @RequestParam(required = false) String categoryId,
+            @Parameter(description = "Maximum number of points returned (3-5000)") 
+            @RequestParam(defaultValue = "500") int maxPoints) {
+        TimeSeriesResponse response = analyticsService.getTimeSeries(
+                userPrincipal.getId(), startDate, endDate, categoryId, maxPoints);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/heatmap")
+    @Operation(summary = "Get spending heatmap", 
+               description = "Get the spend (in cents) of every day of a year as one array, for a calendar heatmap")
+    public ResponseEntity<ApiResponse<HeatmapResponse>> getHeatmap(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Year (e.g., 2024)") 
+            @RequestParam int year) {
+        HeatmapResponse response = spendCalendarService.getHeatmap(userPrincipal.getId(), year);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @PostMapping("/batch")
+    @Operation(summary = "Get analytics for several ranges", 
+               description = "Get comprehensive analytics for up to 20 labelled ranges, each optionally limited to one category, in one pass")
+    public ResponseEntity<ApiResponse<Map<String, AnalyticsResponse>>> getBatchAnalytics(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Valid @RequestBody AnalyticsBatchRequest request) {
+        Map<String, AnalyticsResponse> response = analyticsService.getBatchAnalytics(userPrincipal.getId(), request.getRanges());
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
     @GetMapping("/category/{categoryId}")
     @Operation(summary = "Get category-specific analytics", 
                description = "Get detailed analytics for a specific category")
@@ -54,14 +132,147 @@ public class AnalyticsController {
         return ResponseEntity.ok(ApiResponse.success(response));
     }
     
+    @GetMapping("/totals")
+    @Operation(summary = "Get spend totals", 
+               description = "Get total spend and transaction count for a date range, optionally for one category")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getTotals(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Start date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Category ID filter") 
+            @RequestParam(required = false) String categoryId) {
+        Map<String, Object> response = analyticsService.getTotals(userPrincipal.getId(), categoryId, startDate, endDate);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/top")
+    @Operation(summary = "Get top expenses", 
+               description = "Get the k largest (or smallest) expenses in a date range, optionally filtered by category or payment method")
+    public ResponseEntity<ApiResponse<List<AnalyticsResponse.TopExpense>>> getTopExpenses(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Start date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Number of expenses to return (1-1000)") 
+            @RequestParam(defaultValue = "10") int k,
+            @Parameter(description = "Category ID filter") 
+            @RequestParam(required = false) String categoryId,
+            @Parameter(description = "Payment method filter") 
+            @RequestParam(required = false) Expense.PaymentMethod paymentMethod,
+            @Parameter(description = "Return the smallest expenses instead of the largest") 
+            @RequestParam(defaultValue = "false") boolean smallest) {
+        List<AnalyticsResponse.TopExpense> response = analyticsService.getTopExpenses(
+                userPrincipal.getId(), startDate, endDate, k, categoryId, paymentMethod, smallest);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/distribution")
+    @Operation(summary = "Get spend distribution", 
+               description = "Get approximate percentiles and a histogram of expense amounts per category over whole months")
+    public ResponseEntity<ApiResponse<DistributionResponse>> getDistribution(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Start month (yyyy-MM)") 
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth startMonth,
+            @Parameter(description = "End month (yyyy-MM)") 
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth endMonth,
+            @Parameter(description = "Category ID filter") 
+            @RequestParam(required = false) String categoryId,
+            @Parameter(description = "Number of histogram bins (1-100)") 
+            @RequestParam(defaultValue = "20") int bins) {
+        DistributionResponse response = spendDistributionService.getDistribution(
+                userPrincipal.getId(), startMonth, endMonth, categoryId, bins);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/merchants")
+    @Operation(summary = "Get top merchants", 
+               description = "Get the most frequent merchants over whole months with the amount spent on each (a lower bound when the counts are estimated)")
+    public ResponseEntity<ApiResponse<HeavyHitterResponse>> getTopMerchants(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Start month (yyyy-MM)") 
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth startMonth,
+            @Parameter(description = "End month (yyyy-MM)") 
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth endMonth,
+            @Parameter(description = "Number of merchants to return (1-50)") 
+            @RequestParam(defaultValue = "10") int k) {
+        HeavyHitterResponse response = heavyHitterService.getTop(
+                userPrincipal.getId(), HeavyHitterSketch.Dimension.MERCHANT, startMonth, endMonth, k);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/tags")
+    @Operation(summary = "Get top tags", 
+               description = "Get the most frequent tags over whole months with the amount spent on each (a lower bound when the counts are estimated)")
+    public ResponseEntity<ApiResponse<HeavyHitterResponse>> getTopTags(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Start month (yyyy-MM)") 
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth startMonth,
+            @Parameter(description = "End month (yyyy-MM)") 
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth endMonth,
+            @Parameter(description = "Number of tags to return (1-50)") 
+            @RequestParam(defaultValue = "10") int k) {
+        HeavyHitterResponse response = heavyHitterService.getTop(
+                userPrincipal.getId(), HeavyHitterSketch.Dimension.TAG, startMonth, endMonth, k);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/anomalies")
+    @Operation(summary = "Get anomalous expenses", 
+               description = "Get expenses flagged as unusually large for their category when they were written, newest first")
+    public ResponseEntity<ApiResponse<List<AnomalyResponse>>> getAnomalies(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Start date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date (yyyy-MM-dd)") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        List<AnomalyResponse> response = anomalyDetectionService.getAnomalies(userPrincipal.getId(), startDate, endDate);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/forecast")
+    @Operation(summary = "Get spending forecast", 
+               description = "Project spend to the end of the current week, month, quarter or year, per category and overall")
+    public ResponseEntity<ApiResponse<ForecastResponse>> getForecast(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Period to forecast (WEEKLY, MONTHLY, QUARTERLY, YEARLY)") 
+            @RequestParam(defaultValue = "MONTHLY") Budget.BudgetPeriod period) {
+        ForecastResponse response = forecastService.getForecast(userPrincipal.getId(), period);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
     @GetMapping("/monthly-comparison")
     @Operation(summary = "Get monthly comparison", 
-               description = "Compare spending across all months of a year")
+               description = "Compare spending across all months of a year, or of several years keyed by year")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getMonthlyComparison(
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             @Parameter(description = "Year (e.g., 2024)") 
-            @RequestParam int year) {
-        Map<String, Object> response = analyticsService.getMonthlyComparison(userPrincipal.getId(), year);
+            @RequestParam(required = false) Integer year,
+            @Parameter(description = "Years to compare (e.g., 2023,2024,2025)") 
+            @RequestParam(required = false) List<Integer> years) {
+        Map<String, Object> response;
+        if (years != null) {
+            response = analyticsService.getMultiYearComparison(userPrincipal.getId(), years);
+        } else if (year != null) {
+            response = analyticsService.getMonthlyComparison(userPrincipal.getId(), year);
+        } else {
+            throw new BadRequestException("Either year or years must be provided");
+        }
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/compare")
+    @Operation(summary = "Compare periods", 
+               description = "Compare two or more weeks, months, quarters or years as aligned series, with the first period's change against each other period, overall and per category")
+    public ResponseEntity<ApiResponse<ComparisonResponse>> comparePeriods(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "Period length (WEEK, MONTH, QUARTER, YEAR)") 
+            @RequestParam(defaultValue = "MONTH") AnalyticsService.Granularity granularity,
+            @Parameter(description = "Periods to compare, first against the rest (e.g. 2025-W23, 2025-06, 2025-Q2, 2025); defaults to the current and previous period") 
+            @RequestParam(required = false) List<String> periods) {
+        ComparisonResponse response = analyticsService.getPeriodComparison(userPrincipal.getId(), granularity, periods);
         return ResponseEntity.ok(ApiResponse.success(response));
     }
     
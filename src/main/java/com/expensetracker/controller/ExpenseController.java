@@ -2,24 +2,36 @@ package com.expensetracker.controller;
 
 import com.expensetracker.dto.common.ApiResponse;
 import com.expensetracker.dto.common.PagedResponse;
+import com.expensetracker.dto.expense.ExpenseBatchRequest;
+import com.expensetracker.dto.expense.ExpenseBatchResponse;
+import com.expensetracker.dto.expense.ExpenseImportRequest;
 import com.expensetracker.dto.expense.ExpenseRequest;
 import com.expensetracker.dto.expense.ExpenseResponse;
+import com.expensetracker.dto.expense.ImportJobResponse;
 import com.expensetracker.security.UserPrincipal;
+import com.expensetracker.service.ExpenseExportService;
+import com.expensetracker.service.ExpenseImportService;
 import com.expensetracker.service.ExpenseService;
 import com.expensetracker.util.RateLimitUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.time.LocalDate;
 
 @RestController
@@ -30,6 +42,8 @@ import java.time.LocalDate;
 public class ExpenseController {
     
     private final ExpenseService expenseService;
+    private final ExpenseImportService expenseImportService;
+    private final ExpenseExportService expenseExportService;
     private final RateLimitUtil rateLimitUtil;
     
     @PostMapping
@@ -43,6 +57,77 @@ public class ExpenseController {
                 .body(ApiResponse.success("Expense created successfully", response));
     }
     
+    @PostMapping("/batch")
+    @Operation(summary = "Create expenses in bulk", 
+               description = "Add up to 1000 expenses at once; invalid items are reported by index and the rest are created")
+    public ResponseEntity<ApiResponse<ExpenseBatchResponse>> createExpenses(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Valid @RequestBody ExpenseBatchRequest request) {
+        rateLimitUtil.checkRateLimit("expense-" + userPrincipal.getId());
+        ExpenseBatchResponse response = expenseService.createExpenses(userPrincipal.getId(), request.getExpenses());
+        return ResponseEntity.status(response.getCreated() > 0 ? HttpStatus.CREATED : HttpStatus.OK)
+                .body(ApiResponse.success(response.getCreated() + " expenses created, " + response.getFailed() + " failed",
+                        response));
+    }
+    
+    @PostMapping("/import")
+    @Operation(summary = "Create a bank statement import", 
+               description = "Check the column options and create an import job; upload the statement to the returned job id")
+    public ResponseEntity<ApiResponse<ImportJobResponse>> createImport(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Valid ExpenseImportRequest options) {
+        rateLimitUtil.checkRateLimit("expense-" + userPrincipal.getId());
+        ImportJobResponse response = expenseImportService.createImport(userPrincipal.getId(), options);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Import created", response));
+    }
+    
+    @PutMapping(value = "/import/{jobId}",
+            consumes = {"text/csv", "application/x-ofx", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Upload a bank statement", 
+               description = "Stream the CSV or OFX statement of an import as the request body; rows are saved in batches "
+                       + "by a background job whose progress is returned")
+    public ResponseEntity<ApiResponse<ImportJobResponse>> uploadImport(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable String jobId,
+            HttpServletRequest request) throws IOException {
+        ImportJobResponse response = expenseImportService.upload(userPrincipal.getId(), jobId, request.getInputStream());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Import started", response));
+    }
+    
+    @GetMapping("/import/{jobId}")
+    @Operation(summary = "Get import progress", description = "Retrieve the status and counters of a statement import")
+    public ResponseEntity<ApiResponse<ImportJobResponse>> getImportJob(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable String jobId) {
+        ImportJobResponse response = expenseImportService.getJob(userPrincipal.getId(), jobId);
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+    
+    @GetMapping("/export")
+    @Operation(summary = "Export expenses", 
+               description = "Download expenses, optionally limited to a date range, as CSV or newline-delimited JSON, streamed as they are read")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @Parameter(description = "File format (csv or ndjson)") @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "Start date (yyyy-MM-dd)") 
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "End date (yyyy-MM-dd)") 
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "Gzip the file") @RequestParam(defaultValue = "false") boolean gzip) {
+        rateLimitUtil.checkRateLimit("expense-" + userPrincipal.getId());
+        ExpenseExportService.Format exportFormat = ExpenseExportService.Format.parse(format);
+        StreamingResponseBody body = expenseExportService.export(
+                userPrincipal.getId(), exportFormat, startDate, endDate, gzip);
+        
+        String filename = "expenses." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+    
     @GetMapping
     @Operation(summary = "Get all expenses with pagination", 
                description = "Retrieve all expenses with pagination and sorting")
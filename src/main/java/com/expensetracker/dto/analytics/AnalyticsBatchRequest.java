@@ -0,0 +1,34 @@
+package com.expensetracker.dto.analytics;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class AnalyticsBatchRequest {
+    
+    @NotEmpty(message = "At least one range is required")
+    @Size(max = 20, message = "At most 20 ranges can be requested at once")
+    private List<@Valid RangeSpec> ranges = new ArrayList<>();
+    
+    @Data
+    public static class RangeSpec {
+        
+        @Size(max = 50, message = "Label cannot exceed 50 characters")
+        private String label;
+        
+        @NotNull(message = "Start date is required")
+        private LocalDate startDate;
+        
+        @NotNull(message = "End date is required")
+        private LocalDate endDate;
+        
+        private String categoryId;
+    }
+}
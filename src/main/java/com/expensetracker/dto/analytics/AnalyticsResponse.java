@@ -65,6 +65,7 @@ public class AnalyticsResponse {
         private String id;
         private String description;
         private BigDecimal amount;
+        private String categoryId;
         private String categoryName;
         private String date;
     }
@@ -0,0 +1,27 @@
+package com.expensetracker.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnomalyResponse {
+    
+    private String expenseId;
+    private LocalDate date;
+    private BigDecimal amount;
+    private String categoryId;
+    private String categoryName;
+    private String description;
+    private String merchant;
+    private Double anomalyScore;
+    private BigDecimal categoryMean;
+    private BigDecimal categoryStandardDeviation;
+}
@@ -0,0 +1,56 @@
+package com.expensetracker.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ComparisonResponse {
+    
+    private String granularity;
+    private List<String> buckets;
+    private List<PeriodSeries> periods;
+    private List<CategoryComparison> categories;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PeriodSeries {
+        private String label;
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private BigDecimal total;
+        private Long count;
+        private List<BigDecimal> series;
+        private Delta delta; // first period relative to this one; null for the first period
+    }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryComparison {
+        private String categoryId;
+        private String categoryName;
+        private List<BigDecimal> amounts;
+        private List<Delta> deltas;
+    }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Delta {
+        private BigDecimal absolute;
+        private Double percentage; // null when the compared amount is zero
+    }
+}
@@ -0,0 +1,44 @@
+package com.expensetracker.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistributionResponse {
+    
+    private String startMonth;
+    private String endMonth;
+    private Double relativeAccuracy;
+    private List<CategoryDistribution> categories;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryDistribution {
+        private String categoryId;
+        private String categoryName;
+        private Long count;
+        private Map<String, BigDecimal> percentiles;
+        private List<Bin> histogram;
+    }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bin {
+        private BigDecimal from;
+        private BigDecimal to;
+        private Long count;
+    }
+}
@@ -0,0 +1,39 @@
+package com.expensetracker.dto.analytics;
+
+import com.expensetracker.model.Budget;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForecastResponse {
+    
+    private Budget.BudgetPeriod period;
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+    private LocalDate asOf;
+    private Projection overall;
+    private List<Projection> categories;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Projection {
+        private String categoryId;
+        private String categoryName;
+        private BigDecimal spentToDate;
+        private BigDecimal dailyRate;
+        private BigDecimal projectedDiscretionary;
+        private BigDecimal projectedRecurring;
+        private BigDecimal projectedTotal;
+    }
+}
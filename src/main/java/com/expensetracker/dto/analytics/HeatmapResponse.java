@@ -0,0 +1,22 @@
+package com.expensetracker.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeatmapResponse {
+    
+    private int year;
+    private LocalDate startDate;
+    private BigDecimal total;
+    private BigDecimal max;
+    private long[] dailyCents; // one entry per day of the year, starting at startDate
+}
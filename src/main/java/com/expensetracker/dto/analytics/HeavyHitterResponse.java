@@ -0,0 +1,33 @@
+package com.expensetracker.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeavyHitterResponse {
+    
+    private String startMonth;
+    private String endMonth;
+    private Boolean exact;
+    private List<Item> items;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private String name;
+        private Long count;
+        private Long maxError; // the true count is within this many of count
+        private BigDecimal amount; // exact answers only
+        private BigDecimal minAmount; // estimated answers: spend is only known since the key entered the sketch
+    }
+}
@@ -0,0 +1,34 @@
+package com.expensetracker.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovingAverageResponse {
+    
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Point latest;
+    private List<Point> points;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private LocalDate date;
+        private BigDecimal amount;
+        private BigDecimal average7Days;
+        private BigDecimal average30Days;
+        private BigDecimal average90Days;
+    }
+}
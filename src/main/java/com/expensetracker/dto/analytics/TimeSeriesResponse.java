@@ -0,0 +1,34 @@
+package com.expensetracker.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimeSeriesResponse {
+    
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String categoryId;
+    private String categoryName;
+    private int totalDays;
+    private boolean downsampled;
+    private List<Point> points;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private LocalDate date;
+        private BigDecimal amount;
+    }
+}
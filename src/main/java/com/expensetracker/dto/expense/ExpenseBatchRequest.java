@@ -0,0 +1,20 @@
+package com.expensetracker.dto.expense;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Items are validated one by one by the service so that an invalid item is reported in the
+ * response instead of rejecting the whole batch.
+ */
+@Data
+public class ExpenseBatchRequest {
+    
+    @NotEmpty(message = "At least one expense is required")
+    @Size(max = 1000, message = "At most 1000 expenses can be created at once")
+    private List<ExpenseRequest> expenses = new ArrayList<>();
+}
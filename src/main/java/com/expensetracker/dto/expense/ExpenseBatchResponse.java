@@ -0,0 +1,29 @@
+package com.expensetracker.dto.expense;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpenseBatchResponse {
+    
+    private int created;
+    private int failed;
+    private List<ExpenseResponse> expenses;
+    private List<ItemError> errors;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemError {
+        private int index; // position in the request
+        private String message;
+    }
+}
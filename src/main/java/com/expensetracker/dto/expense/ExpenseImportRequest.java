@@ -0,0 +1,55 @@
+package com.expensetracker.dto.expense;
+
+import com.expensetracker.model.Expense;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+/**
+ * How the rows of an uploaded statement become expenses. CSV columns are matched by header name
+ * (case-insensitive) or, when numeric, by zero-based position.
+ */
+@Data
+public class ExpenseImportRequest {
+    
+    @NotNull(message = "Format is required")
+    private Format format = Format.CSV;
+    
+    @NotBlank(message = "Category ID is required")
+    private String categoryId;
+    
+    @NotNull(message = "Payment method is required")
+    private Expense.PaymentMethod paymentMethod = Expense.PaymentMethod.OTHER;
+    
+    @Pattern(regexp = "^[A-Z]{3}$", message = "Currency must be a valid 3-letter ISO code")
+    private String currency = "USD";
+    
+    private boolean header = true;
+    
+    private char delimiter = ',';
+    
+    // '.' or ','; the other one is only accepted as a thousands separator
+    private char decimalSeparator = '.';
+    
+    @NotBlank(message = "Date format is required")
+    private String dateFormat = "yyyy-MM-dd";
+    
+    private String dateColumn = "Date";
+    
+    private String amountColumn = "Amount";
+    
+    private String descriptionColumn = "Description";
+    
+    private String merchantColumn;
+    
+    private String notesColumn;
+    
+    // Statements listing money out as negative amounts; positive rows (credits) are then skipped
+    private boolean debitsNegative = false;
+    
+    public enum Format {
+        CSV,
+        OFX
+    }
+}
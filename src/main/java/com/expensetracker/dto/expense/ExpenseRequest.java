@@ -48,4 +48,9 @@ public class ExpenseRequest {
     
     @Future(message = "Recurring end date must be in the future")
     private LocalDate recurringEndDate;
+    
+    @AssertTrue(message = "Date cannot be before 1900-01-01")
+    private boolean isDateSupported() {
+        return date == null || !date.isBefore(Expense.MIN_DATE);
+    }
 }
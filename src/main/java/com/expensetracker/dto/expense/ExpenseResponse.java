@@ -33,6 +33,8 @@ public class ExpenseResponse {
     private boolean recurring;
     private Expense.RecurringFrequency recurringFrequency;
     private LocalDate recurringEndDate;
+    private Boolean anomaly;
+    private Double anomalyScore;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
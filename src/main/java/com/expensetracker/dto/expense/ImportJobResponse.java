@@ -0,0 +1,45 @@
+package com.expensetracker.dto.expense;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobResponse {
+    
+    private String jobId;
+    private Status status;
+    private ExpenseImportRequest.Format format;
+    private long rowsRead;
+    private long created;
+    private long failed;
+    private long skipped;
+    private List<RowError> errors; // the first ones only
+    private String message;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt; // when the upload began
+    private LocalDateTime finishedAt;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row; // data row, starting at 1
+        private String message;
+    }
+    
+    public enum Status {
+        PENDING, // waiting for the statement upload
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -18,10 +18,14 @@ import java.util.List;
 @Document(collection = "expenses")
 @CompoundIndexes({
     @CompoundIndex(name = "user_date_idx", def = "{'userId': 1, 'date': -1}"),
-    @CompoundIndex(name = "user_category_idx", def = "{'userId': 1, 'categoryId': 1}")
+    @CompoundIndex(name = "user_category_idx", def = "{'userId': 1, 'categoryId': 1}"),
+    @CompoundIndex(name = "user_amount_idx", def = "{'userId': 1, 'amount': -1}")
 })
 public class Expense {
     
+    // Earliest date an expense may have, which bounds the days the per-user spend index covers
+    public static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+    
     @Id
     private String id;
     
@@ -29,7 +33,7 @@ public class Expense {
     
     private String categoryId;
     
-    private BigDecimal amount;
+    private BigDecimal amount; // stored as Decimal128, see MongoConfig
     
     private String currency = "USD";
     
@@ -53,6 +57,10 @@ public class Expense {
     
     private LocalDate recurringEndDate;
     
+    private Double anomalyScore; // z-score against the category when written, null with too little history
+    
+    private boolean anomaly = false;
+    
     @CreatedDate
     private LocalDateTime createdAt;
     
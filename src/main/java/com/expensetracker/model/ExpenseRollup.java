@@ -0,0 +1,39 @@
+package com.expensetracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+
+@Data
+@Document(collection = "expense_rollups")
+@CompoundIndex(name = "user_day_idx", def = "{'userId': 1, 'day': 1}")
+public class ExpenseRollup {
+    
+    @Id
+    private String id; // userId|day|categoryId|paymentMethod
+    
+    private String userId;
+    
+    private LocalDate day;
+    
+    private String categoryId;
+    
+    private Expense.PaymentMethod paymentMethod;
+    
+    private long count;
+    
+    private long sumCents;
+    
+    private long minCents;
+    
+    private long maxCents;
+    
+    private long version; // incremented by every update, see VersionedDocuments
+    
+    public static String keyOf(String userId, LocalDate day, String categoryId, Expense.PaymentMethod paymentMethod) {
+        return userId + "|" + day + "|" + categoryId + "|" + paymentMethod;
+    }
+}
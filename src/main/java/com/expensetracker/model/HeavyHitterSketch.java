@@ -0,0 +1,60 @@
+package com.expensetracker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Space-Saving summary of one user's merchants or tags in one month: at most a fixed number of
+ * monitored keys, each with an occurrence count that overestimates the true count by at most
+ * {@code error}.
+ */
+@Data
+@Document(collection = "heavy_hitter_sketches")
+@CompoundIndex(name = "user_dimension_month_idx", def = "{'userId': 1, 'dimension': 1, 'month': 1}")
+public class HeavyHitterSketch {
+    
+    @Id
+    private String id; // userId|dimension|yyyy-MM
+    
+    private String userId;
+    
+    private Dimension dimension;
+    
+    private String month;
+    
+    private long total; // occurrences offered, monitored or not
+    
+    private List<Entry> entries = new ArrayList<>();
+    
+    private long version; // incremented by every update, see VersionedDocuments
+    
+    public static String keyOf(String userId, Dimension dimension, String month) {
+        return userId + "|" + dimension + "|" + month;
+    }
+    
+    public enum Dimension {
+        MERCHANT,
+        TAG
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+        
+        private String key;
+        
+        private long count;
+        
+        private long error;
+        
+        private long cents; // spend since the key was last admitted
+    }
+}
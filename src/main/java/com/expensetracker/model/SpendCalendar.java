@@ -0,0 +1,33 @@
+package com.expensetracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * One user's spend (cents) for every day of one year, indexed by day of year minus one. Always
+ * 366 entries so a day's slot never moves; the last one stays zero in non-leap years.
+ */
+@Data
+@Document(collection = "spend_calendars")
+public class SpendCalendar {
+    
+    public static final int DAYS = 366;
+    
+    @Id
+    private String id; // userId|yyyy
+    
+    @Indexed
+    private String userId;
+    
+    private int year;
+    
+    private long[] dailyCents = new long[DAYS];
+    
+    private long version; // incremented by every update, see VersionedDocuments
+    
+    public static String keyOf(String userId, int year) {
+        return userId + "|" + year;
+    }
+}
@@ -0,0 +1,38 @@
+package com.expensetracker.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sparse {@link com.expensetracker.util.LogHistogram} of one user's expense amounts in one
+ * category and month: bucket index (as a string, so it can be a field name) to count.
+ */
+@Data
+@Document(collection = "spend_histograms")
+@CompoundIndex(name = "user_month_idx", def = "{'userId': 1, 'month': 1}")
+public class SpendHistogram {
+    
+    @Id
+    private String id; // userId|categoryId|yyyy-MM
+    
+    private String userId;
+    
+    private String categoryId;
+    
+    private String month;
+    
+    private long count;
+    
+    private Map<String, Long> buckets = new HashMap<>();
+    
+    private long version; // incremented by every update, see VersionedDocuments
+    
+    public static String keyOf(String userId, String categoryId, String month) {
+        return userId + "|" + categoryId + "|" + month;
+    }
+}
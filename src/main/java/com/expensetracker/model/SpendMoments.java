@@ -0,0 +1,24 @@
+package com.expensetracker.model;
+
+import com.expensetracker.util.RunningStats;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Running mean and variance of one user's expense amounts (cents) per category.
+ */
+@Data
+@Document(collection = "spend_moments")
+public class SpendMoments {
+    
+    @Id
+    private String id; // userId
+    
+    private Map<String, RunningStats> categories = new HashMap<>();
+    
+    private long version; // incremented by every update, see VersionedDocuments
+}
@@ -19,6 +19,9 @@ public interface BudgetRepository extends MongoRepository<Budget, String> {
     @Query("{ 'userId': ?0, 'startDate': { $lte: ?1 }, 'endDate': { $gte: ?1 } }")
     List<Budget> findActiveBudgetsForUser(String userId, LocalDate currentDate);
     
+    @Query("{ 'userId': ?0, 'startDate': { $lte: ?2 }, 'endDate': { $gte: ?1 } }")
+    List<Budget> findBudgetsOverlapping(String userId, LocalDate startDate, LocalDate endDate);
+    
     Optional<Budget> findByUserIdAndCategoryIdAndStartDateBetween(String userId, String categoryId, LocalDate startDate, LocalDate endDate);
     
     @Query("{ 'userId': ?0, 'categoryId': ?1, 'startDate': { $lte: ?2 }, 'endDate': { $gte: ?2 } }")
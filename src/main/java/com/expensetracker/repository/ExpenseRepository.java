@@ -12,7 +12,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Repository
-public interface ExpenseRepository extends MongoRepository<Expense, String> {
+public interface ExpenseRepository extends MongoRepository<Expense, String>, ExpenseRepositoryCustom {
     
     Page<Expense> findByUserId(String userId, Pageable pageable);
     
@@ -0,0 +1,63 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import org.bson.Document;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ExpenseRepositoryCustom {
+    
+    /**
+     * Streams the user's expenses in the range over a Mongo cursor, optionally restricted to one
+     * category, loading only the fields analytics needs. The stream must be closed.
+     */
+    Stream<Expense> streamForAnalytics(String userId, String categoryId, LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * As {@link #streamForAnalytics(String, String, LocalDate, LocalDate)}, optionally also
+     * restricted to one payment method.
+     */
+    Stream<Expense> streamForAnalytics(String userId, String categoryId, Expense.PaymentMethod paymentMethod,
+                                       LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * Runs the analytics dashboard as a single server-side aggregation: one $match on
+     * user_date_idx followed by a $facet producing summary, categories, months,
+     * paymentMethods and topExpenses sections.
+     */
+    Document aggregateAnalytics(String userId, LocalDate startDate, LocalDate endDate, int topLimit);
+    
+    /**
+     * As {@link #aggregateAnalytics(String, LocalDate, LocalDate, int)}, optionally restricted to
+     * one category in the $match.
+     */
+    Document aggregateAnalytics(String userId, String categoryId, LocalDate startDate, LocalDate endDate, int topLimit);
+    
+    /**
+     * Total amount of the user's expenses in the range, optionally restricted to one category,
+     * summed on the server; zero when there are none.
+     */
+    BigDecimal sumAmount(String userId, String categoryId, LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * Largest expenses in the range, sorted by amount descending on the server.
+     */
+    List<Document> aggregateTopExpenses(String userId, LocalDate startDate, LocalDate endDate, int limit);
+    
+    /**
+     * Spend per calendar month for the given years in one grouped scan; each result has
+     * {@code _id.year}, {@code _id.month} and a decimal {@code total}.
+     */
+    List<Document> aggregateMonthlyTotals(String userId, Collection<Integer> years);
+    
+    /**
+     * Spend per (day, category) over the union of the given {start, end} date ranges in one
+     * grouped scan; each result has {@code _id.date}, {@code _id.categoryId}, {@code count} and a
+     * decimal {@code total}.
+     */
+    List<Document> aggregateDailyCategoryTotals(String userId, Collection<LocalDate[]> ranges);
+}
@@ -0,0 +1,180 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.Expense;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.FacetOperation;
+import org.springframework.data.mongodb.core.aggregation.MatchOperation;
+import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class ExpenseRepositoryCustomImpl implements ExpenseRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    
+    @Override
+    public Stream<Expense> streamForAnalytics(String userId, String categoryId, LocalDate startDate, LocalDate endDate) {
+        return streamForAnalytics(userId, categoryId, null, startDate, endDate);
+    }
+    
+    @Override
+    public Stream<Expense> streamForAnalytics(String userId, String categoryId, Expense.PaymentMethod paymentMethod,
+                                              LocalDate startDate, LocalDate endDate) {
+        Criteria criteria = Criteria.where("userId").is(userId).and("date").gte(startDate).lte(endDate);
+        if (categoryId != null) {
+            criteria.and("categoryId").is(categoryId);
+        }
+        if (paymentMethod != null) {
+            criteria.and("paymentMethod").is(paymentMethod);
+        }
+        
+        Query query = new Query(criteria).cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include("categoryId", "amount", "date", "paymentMethod", "description");
+        
+        return mongoTemplate.stream(query, Expense.class);
+    }
+    
+    @Override
+    public Document aggregateAnalytics(String userId, LocalDate startDate, LocalDate endDate, int topLimit) {
+        return aggregateAnalytics(userId, null, startDate, endDate, topLimit);
+    }
+    
+    @Override
+    public Document aggregateAnalytics(String userId, String categoryId, LocalDate startDate, LocalDate endDate,
+                                       int topLimit) {
+        Criteria criteria = Criteria.where("userId").is(userId).and("date").gte(startDate).lte(endDate);
+        if (categoryId != null) {
+            criteria.and("categoryId").is(categoryId);
+        }
+        MatchOperation match = Aggregation.match(criteria);
+        ProjectionOperation project = projectAnalyticsFields();
+        
+        // LocalDate is persisted as midnight in the JVM zone, so format months in that zone too
+        DateOperators.Timezone timezone = DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId());
+        
+        FacetOperation facet = Aggregation
+                .facet(Aggregation.group()
+                        .count().as("count")
+                        .sum("amount").as("total")
+                        .max("amount").as("highest")
+                        .min("amount").as("lowest"))
+                .as("summary")
+                .and(Aggregation.group("categoryId")
+                        .count().as("count")
+                        .sum("amount").as("amount"))
+                .as("categories")
+                .and(Aggregation.project("amount")
+                                .and(DateOperators.dateOf("date").withTimezone(timezone).toString("%Y-%m")).as("month"),
+                        Aggregation.group("month")
+                                .count().as("count")
+                                .sum("amount").as("amount"))
+                .as("months")
+                .and(Aggregation.group("paymentMethod")
+                        .sum("amount").as("amount"))
+                .as("paymentMethods")
+                .and(Aggregation.sort(Sort.Direction.DESC, "amount"),
+                        Aggregation.limit(topLimit))
+                .as("topExpenses");
+        
+        Aggregation aggregation = Aggregation.newAggregation(match, project, facet);
+        
+        return mongoTemplate.aggregate(aggregation, Expense.class, Document.class).getUniqueMappedResult();
+    }
+    
+    @Override
+    public BigDecimal sumAmount(String userId, String categoryId, LocalDate startDate, LocalDate endDate) {
+        Criteria criteria = Criteria.where("userId").is(userId).and("date").gte(startDate).lte(endDate);
+        if (categoryId != null) {
+            criteria = criteria.and("categoryId").is(categoryId);
+        }
+        
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.project().and(ConvertOperators.valueOf("amount").convertToDecimal()).as("amount"),
+                Aggregation.group().sum("amount").as("total"));
+        
+        Document result = mongoTemplate.aggregate(aggregation, Expense.class, Document.class).getUniqueMappedResult();
+        return result != null ? result.get("total", Decimal128.class).bigDecimalValue() : BigDecimal.ZERO;
+    }
+    
+    @Override
+    public List<Document> aggregateTopExpenses(String userId, LocalDate startDate, LocalDate endDate, int limit) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                matchUserAndDateRange(userId, startDate, endDate),
+                projectAnalyticsFields(),
+                Aggregation.sort(Sort.Direction.DESC, "amount"),
+                Aggregation.limit(limit));
+        
+        return mongoTemplate.aggregate(aggregation, Expense.class, Document.class).getMappedResults();
+    }
+    
+    @Override
+    public List<Document> aggregateMonthlyTotals(String userId, Collection<Integer> years) {
+        DateOperators.Timezone timezone = DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId());
+        
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("userId").is(userId).orOperator(yearRanges("date", years))),
+                Aggregation.project()
+                        .and(DateOperators.dateOf("date").withTimezone(timezone).year()).as("year")
+                        .and(DateOperators.dateOf("date").withTimezone(timezone).month()).as("month")
+                        .and(ConvertOperators.valueOf("amount").convertToDecimal()).as("amount"),
+                Aggregation.group("year", "month")
+                        .sum("amount").as("total"));
+        
+        return mongoTemplate.aggregate(aggregation, Expense.class, Document.class).getMappedResults();
+    }
+    
+    @Override
+    public List<Document> aggregateDailyCategoryTotals(String userId, Collection<LocalDate[]> ranges) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("userId").is(userId).orOperator(dateRanges("date", ranges))),
+                Aggregation.project("date", "categoryId")
+                        .and(ConvertOperators.valueOf("amount").convertToDecimal()).as("amount"),
+                Aggregation.group("date", "categoryId")
+                        .count().as("count")
+                        .sum("amount").as("total"));
+        
+        return mongoTemplate.aggregate(aggregation, Expense.class, Document.class).getMappedResults();
+    }
+    
+    static Criteria[] dateRanges(String field, Collection<LocalDate[]> ranges) {
+        return ranges.stream()
+                .map(range -> Criteria.where(field).gte(range[0]).lte(range[1]))
+                .toArray(Criteria[]::new);
+    }
+    
+    static Criteria[] yearRanges(String field, Collection<Integer> years) {
+        return years.stream()
+                .map(year -> Criteria.where(field).gte(LocalDate.of(year, 1, 1)).lte(LocalDate.of(year, 12, 31)))
+                .toArray(Criteria[]::new);
+    }
+    
+    private MatchOperation matchUserAndDateRange(String userId, LocalDate startDate, LocalDate endDate) {
+        return Aggregation.match(Criteria.where("userId").is(userId)
+                .and("date").gte(startDate).lte(endDate));
+    }
+    
+    private ProjectionOperation projectAnalyticsFields() {
+        // Only carry the fields the sections need; amount is normalised to a decimal so that
+        // $sum/$max/$sort work regardless of how the document stored it
+        return Aggregation.project("categoryId", "paymentMethod", "description", "date")
+                .and(ConvertOperators.valueOf("amount").convertToDecimal()).as("amount");
+    }
+}
@@ -0,0 +1,23 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.ExpenseRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ExpenseRollupRepository extends MongoRepository<ExpenseRollup, String>, ExpenseRollupRepositoryCustom {
+    
+    // Buckets created only to mark an in-flight write have no expenses yet
+    @Query("{ 'userId': ?0, 'day': { $gte: ?1, $lte: ?2 }, 'count': { $gt: 0 } }")
+    List<ExpenseRollup> findRollupsByUserAndDayRange(String userId, LocalDate startDay, LocalDate endDay);
+    
+    @Query("{ 'userId': ?0, 'categoryId': ?1, 'day': { $gte: ?2, $lte: ?3 }, 'count': { $gt: 0 } }")
+    List<ExpenseRollup> findRollupsByUserCategoryAndDayRange(String userId, String categoryId,
+                                                              LocalDate startDay, LocalDate endDay);
+    
+    void deleteAllByUserId(String userId);
+}
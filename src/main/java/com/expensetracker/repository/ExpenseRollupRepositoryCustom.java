@@ -0,0 +1,22 @@
+package com.expensetracker.repository;
+
+import org.bson.Document;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface ExpenseRollupRepositoryCustom {
+    
+    /**
+     * Spend per calendar month for the given years, grouped on the server; each result has
+     * {@code _id.year}, {@code _id.month} and {@code totalCents}.
+     */
+    List<Document> aggregateMonthlyTotals(String userId, Collection<Integer> years);
+    
+    /**
+     * Spend per (day, category) over the union of the given {start, end} date ranges; each result
+     * has {@code _id.day}, {@code _id.categoryId}, {@code count} and {@code totalCents}.
+     */
+    List<Document> aggregateDailyCategoryTotals(String userId, Collection<LocalDate[]> ranges);
+}
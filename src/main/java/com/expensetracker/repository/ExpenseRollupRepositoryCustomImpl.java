@@ -0,0 +1,49 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.model.ExpenseRollup;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class ExpenseRollupRepositoryCustomImpl implements ExpenseRollupRepositoryCustom {
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public List<Document> aggregateMonthlyTotals(String userId, Collection<Integer> years) {
+        DateOperators.Timezone timezone = DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId());
+        
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("userId").is(userId).and("count").gt(0)
+                        .orOperator(ExpenseRepositoryCustomImpl.yearRanges("day", years))),
+                Aggregation.project("sumCents")
+                        .and(DateOperators.dateOf("day").withTimezone(timezone).year()).as("year")
+                        .and(DateOperators.dateOf("day").withTimezone(timezone).month()).as("month"),
+                Aggregation.group("year", "month")
+                        .sum("sumCents").as("totalCents"));
+        
+        return mongoTemplate.aggregate(aggregation, ExpenseRollup.class, Document.class).getMappedResults();
+    }
+    
+    @Override
+    public List<Document> aggregateDailyCategoryTotals(String userId, Collection<LocalDate[]> ranges) {
+        // Rollups are already per day and category, so this only folds payment methods together
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("userId").is(userId).and("count").gt(0)
+                        .orOperator(ExpenseRepositoryCustomImpl.dateRanges("day", ranges))),
+                Aggregation.group("day", "categoryId")
+                        .sum("count").as("count")
+                        .sum("sumCents").as("totalCents"));
+        
+        return mongoTemplate.aggregate(aggregation, ExpenseRollup.class, Document.class).getMappedResults();
+    }
+}
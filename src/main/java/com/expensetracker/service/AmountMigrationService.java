@@ -0,0 +1,132 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.Expense;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.DataTypeOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Online migration that rewrites amounts stored as strings (Spring Data's default BigDecimal
+ * representation before {@code MongoConfig}) into Decimal128, in small id-bounded batches so the
+ * collections stay writable while it runs.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AmountMigrationService {
+    
+    private final MongoTemplate mongoTemplate;
+    private final AnalyticsBlockCache analyticsBlockCache;
+    
+    @Value("${app.migration.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${app.migration.pause-millis:50}")
+    private long pauseMillis;
+    
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        migrate();
+    }
+    
+    @Async
+    public void migrateInBackground() {
+        migrate();
+    }
+    
+    private void migrate() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Amount migration already running");
+            return;
+        }
+        
+        try {
+            long expenses = migrateCollection(Expense.class, List.of("amount"));
+            long budgets = migrateCollection(Budget.class, List.of("amount", "spentAmount", "remainingAmount"));
+            
+            if (expenses > 0) {
+                // Analytics blocks computed while amounts were strings may be off
+                analyticsBlockCache.invalidateAll();
+            }
+            if (expenses > 0 || budgets > 0) {
+                log.info("Amount migration completed: {} expenses, {} budgets converted to Decimal128", expenses, budgets);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private long migrateCollection(Class<?> entityClass, List<String> fields) {
+        Criteria storedAsString = new Criteria().orOperator(fields.stream()
+                .map(field -> Criteria.where(field).type(2)) // BSON string
+                .toArray(Criteria[]::new));
+        
+        // Only string fields are converted; a missing field stays missing rather than becoming null
+        AggregationUpdate update = AggregationUpdate.update();
+        for (String field : fields) {
+            update.set(field).toValue(ConditionalOperators
+                    .when(ComparisonOperators.valueOf(DataTypeOperators.Type.typeOf(field)).equalToValue("string"))
+                    .then(ConvertOperators.valueOf(field).convertToDecimal())
+                    .otherwiseValueOf(field));
+        }
+        
+        // Pages forward by _id, so each batch query resumes where the previous one stopped
+        long migrated = 0;
+        Object lastId = null;
+        while (true) {
+            Criteria batchCriteria = lastId != null
+                    ? new Criteria().andOperator(storedAsString, Criteria.where("_id").gt(lastId))
+                    : storedAsString;
+            Query batchQuery = new Query(batchCriteria)
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(batchSize);
+            batchQuery.fields().include("_id");
+            
+            List<Object> ids = mongoTemplate.find(batchQuery, Document.class, mongoTemplate.getCollectionName(entityClass))
+                    .stream()
+                    .map(document -> document.get("_id"))
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                return migrated;
+            }
+            lastId = ids.get(ids.size() - 1);
+            
+            migrated += mongoTemplate.updateMulti(new Query(Criteria.where("_id").in(ids)), update, entityClass)
+                    .getModifiedCount();
+            log.debug("Converted {} {} documents to Decimal128 amounts", migrated, entityClass.getSimpleName());
+            
+            pause();
+        }
+    }
+    
+    private void pause() {
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Amount migration interrupted", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.util.MoneyUtil;
+import com.expensetracker.util.TopK;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Single-pass accumulator for every section of the analytics dashboard. Expenses are fed one at
+ * a time (typically from a Mongo cursor) so memory depends on the number of categories, months
+ * and payment methods, never on the number of expenses. Amounts are accumulated as long cents;
+ * top expenses are kept in a {@link TopK} heap bounded to {@code topLimit} entries.
+ */
+@Getter
+public class AnalyticsAccumulator {
+    
+    /**
+     * Orders expenses by amount; equal amounts rank the later date, then the greater id, higher.
+     */
+    public static final Comparator<Expense> BY_AMOUNT = Comparator.comparing(Expense::getAmount)
+            .thenComparing(Expense::getDate)
+            .thenComparing(Expense::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    
+    private final int topLimit;
+    
+    private long count;
+    private long totalCents;
+    private long highestCents = Long.MIN_VALUE;
+    private long lowestCents = Long.MAX_VALUE;
+    
+    private final Map<String, Totals> categoryTotals = new HashMap<>();
+    private final Map<String, Totals> monthTotals = new TreeMap<>();
+    private final Map<String, Totals> paymentMethodTotals = new HashMap<>();
+    
+    @Getter(AccessLevel.NONE)
+    private final TopK<Expense> topExpenses;
+    
+    public AnalyticsAccumulator(int topLimit) {
+        this.topLimit = topLimit;
+        this.topExpenses = new TopK<>(topLimit, BY_AMOUNT);
+    }
+    
+    public void accept(Expense expense) {
+        long cents = MoneyUtil.toCents(expense.getAmount());
+        
+        count++;
+        totalCents = MoneyUtil.add(totalCents, cents);
+        highestCents = Math.max(highestCents, cents);
+        lowestCents = Math.min(lowestCents, cents);
+        
+        categoryTotals.computeIfAbsent(expense.getCategoryId(), id -> new Totals()).add(cents);
+        monthTotals.computeIfAbsent(YearMonth.from(expense.getDate()).toString(), month -> new Totals()).add(cents);
+        paymentMethodTotals.computeIfAbsent(paymentMethodOf(expense.getPaymentMethod()), method -> new Totals()).add(cents);
+        
+        topExpenses.offer(expense);
+    }
+    
+    /**
+     * The payment method an expense is reported under; expenses without one count as OTHER, as
+     * {@link ExpenseColumns} stores them.
+     */
+    public static String paymentMethodOf(Expense.PaymentMethod paymentMethod) {
+        return (paymentMethod != null ? paymentMethod : Expense.PaymentMethod.OTHER).name();
+    }
+    
+    /**
+     * Top expenses, largest first.
+     */
+    public List<Expense> getTopExpenses() {
+        return topExpenses.toSortedList();
+    }
+    
+    @Getter
+    public static class Totals {
+        private long count;
+        private long cents;
+        
+        void add(long value) {
+            count++;
+            cents = MoneyUtil.add(cents, value);
+        }
+    }
+}
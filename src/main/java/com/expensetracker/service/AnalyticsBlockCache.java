@@ -0,0 +1,161 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.analytics.AnalyticsResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partial analytics aggregates used to compose arbitrary date ranges: one block per closed calendar
+ * month (long-lived) and one per day of the open month. Category names are not part of a block;
+ * they are resolved after blocks are merged so renames never require invalidation here.
+ * <p>
+ * Block keys embed version tokens kept in Redis: one per user and month, one per user and day, one
+ * per user and one for all users. Invalidating replaces a token instead of evicting, so a block
+ * computed before a write is put under a key that is never read again, however late the put lands.
+ * Callers take the key before computing a block and put it under that same key. Tokens are random,
+ * so one that expired and is set again never revives an old key.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnalyticsBlockCache {
+    
+    public static final String MONTH_BLOCKS = "analyticsMonthBlocks";
+    public static final String DAY_BLOCKS = "analyticsDayBlocks";
+    
+    private static final String VERSION_PREFIX = "analytics-block-version:";
+    private static final String ALL_USERS_VERSION = VERSION_PREFIX + "*";
+    private static final String NO_VERSION = "0";
+    
+    // Outlives the day blocks (cached for minutes), so a lapsed token cannot match a live block
+    private static final Duration DAY_VERSION_TTL = Duration.ofDays(1);
+    
+    private final CacheManager cacheManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    
+    @Value("${app.analytics.month-block-ttl-days:30}")
+    private long monthBlockTtlDays;
+    
+    /**
+     * The key of the month block at the current versions. Read it before computing the block.
+     */
+    public String monthKey(String userId, YearMonth month) {
+        return keys(userId, List.of(month.toString())).get(0);
+    }
+    
+    /**
+     * The keys of the day blocks at the current versions, read in one round trip.
+     */
+    public Map<LocalDate, String> dayKeys(String userId, List<LocalDate> days) {
+        List<String> keys = keys(userId, days.stream().map(LocalDate::toString).toList());
+        Map<LocalDate, String> keysByDay = new LinkedHashMap<>();
+        for (int i = 0; i < days.size(); i++) {
+            keysByDay.put(days.get(i), keys.get(i));
+        }
+        return keysByDay;
+    }
+    
+    public AnalyticsResponse getMonth(String key) {
+        return cache(MONTH_BLOCKS).get(key, AnalyticsResponse.class);
+    }
+    
+    public void putMonth(String key, AnalyticsResponse block) {
+        cache(MONTH_BLOCKS).put(key, block);
+    }
+    
+    public AnalyticsResponse getDay(String key) {
+        return cache(DAY_BLOCKS).get(key, AnalyticsResponse.class);
+    }
+    
+    public void putDay(String key, AnalyticsResponse block) {
+        cache(DAY_BLOCKS).put(key, block);
+    }
+    
+    /**
+     * Retires the blocks covering the given expense dates. Called with the old and new date of
+     * every expense write after the write (and its rollups) are stored; both the month and the day
+     * are re-keyed so a write racing the month rollover is never missed.
+     */
+    public void invalidate(String userId, Collection<LocalDate> dates) {
+        Duration monthVersionTtl = Duration.ofDays(monthBlockTtlDays + 1);
+        Map<String, Duration> versions = new LinkedHashMap<>();
+        for (LocalDate date : dates) {
+            versions.put(VERSION_PREFIX + userId + ":" + YearMonth.from(date), monthVersionTtl);
+            versions.put(VERSION_PREFIX + userId + ":" + date, DAY_VERSION_TTL);
+        }
+        replaceTokens(versions);
+    }
+    
+    /**
+     * Retires all of the user's blocks, e.g. after their rollups were rebuilt.
+     */
+    public void invalidateUser(String userId) {
+        replaceTokens(Map.of(VERSION_PREFIX + userId, Duration.ZERO));
+    }
+    
+    /**
+     * Retires every block, e.g. after all rollups were rebuilt or stored amounts were migrated.
+     */
+    public void invalidateAll() {
+        replaceTokens(Map.of(ALL_USERS_VERSION, Duration.ZERO));
+    }
+    
+    // Key layout: userId:<all users>.<user>.<month or day>:<month or day>
+    private List<String> keys(String userId, List<String> periods) {
+        List<String> versionKeys = new ArrayList<>(periods.size() + 2);
+        versionKeys.add(ALL_USERS_VERSION);
+        versionKeys.add(VERSION_PREFIX + userId);
+        periods.forEach(period -> versionKeys.add(VERSION_PREFIX + userId + ":" + period));
+        
+        List<String> tokens = stringRedisTemplate.opsForValue().multiGet(versionKeys);
+        String prefix = userId + ":" + token(tokens, 0) + "." + token(tokens, 1) + ".";
+        
+        List<String> keys = new ArrayList<>(periods.size());
+        for (int i = 0; i < periods.size(); i++) {
+            keys.add(prefix + token(tokens, i + 2) + ":" + periods.get(i));
+        }
+        return keys;
+    }
+    
+    private static String token(List<String> tokens, int index) {
+        String token = tokens != null ? tokens.get(index) : null;
+        return token != null ? token : NO_VERSION;
+    }
+    
+    // A zero TTL keeps the token until it is replaced
+    private void replaceTokens(Map<String, Duration> versions) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            versions.forEach((key, ttl) -> connection.stringCommands().set(
+                    key.getBytes(StandardCharsets.UTF_8),
+                    newToken().getBytes(StandardCharsets.UTF_8),
+                    ttl.isZero() ? Expiration.persistent() : Expiration.from(ttl),
+                    RedisStringCommands.SetOption.upsert()));
+            return null;
+        });
+    }
+    
+    private static String newToken() {
+        return Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    }
+    
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+}
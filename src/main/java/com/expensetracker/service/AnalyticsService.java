@@ -1,23 +1,43 @@
 package com.expensetracker.service;
 
+import com.expensetracker.dto.analytics.AnalyticsBatchRequest;
 import com.expensetracker.dto.analytics.AnalyticsResponse;
-import com.expensetracker.model.Category;
+import com.expensetracker.dto.analytics.ComparisonResponse;
+import com.expensetracker.dto.analytics.MovingAverageResponse;
+import com.expensetracker.dto.analytics.TimeSeriesResponse;
+import com.expensetracker.exception.BadRequestException;
 import com.expensetracker.model.Expense;
-import com.expensetracker.repository.CategoryRepository;
+import com.expensetracker.model.ExpenseRollup;
 import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseRollupRepository;
+import com.expensetracker.util.Lttb;
+import com.expensetracker.util.MoneyUtil;
+import com.expensetracker.util.TopK;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.env.Environment;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.Month;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -25,28 +45,441 @@ import java.util.stream.Collectors;
 public class AnalyticsService {
     
     private final ExpenseRepository expenseRepository;
-    private final CategoryRepository categoryRepository;
+    private final CategoryNameResolver categoryNameResolver;
+    private final ExpenseRollupRepository expenseRollupRepository;
     private final MongoTemplate mongoTemplate;
+    private final AnalyticsBlockCache analyticsBlockCache;
+    private final ColumnarExpenseStore columnarExpenseStore;
+    private final SpendIndexService spendIndexService;
+    private final ExpenseRollupService expenseRollupService;
+    private final Environment environment;
+    
+    @Value("${app.analytics.engine:ROLLUPS}")
+    private Engine engine;
+    
+    private static final int TOP_EXPENSES_LIMIT = 10;
+    private static final int MAX_COMPARISON_YEARS = 10;
+    private static final int MAX_TOP_K = 1000;
+    private static final int MAX_COMPARISON_PERIODS = 12;
+    private static final int MAX_SERIES_DAYS = 3 * 366;
+    private static final int MAX_TIME_SERIES_DAYS = 50 * 366;
+    private static final int MIN_TIME_SERIES_POINTS = 3;
+    private static final int MAX_TIME_SERIES_POINTS = 5000;
+    
+    // Replaced by app.analytics.engine; ANALYTICS_ROLLUPS_ENABLED was its placeholder in application.yml
+    private static final String LEGACY_ROLLUPS_PROPERTY = "app.analytics.rollups-enabled";
+    private static final String LEGACY_ROLLUPS_VARIABLE = "ANALYTICS_ROLLUPS_ENABLED";
+    
+    private static final Comparator<AnalyticsResponse.TopExpense> TOP_EXPENSE_BY_AMOUNT = Comparator
+            .comparing(AnalyticsResponse.TopExpense::getAmount)
+            .thenComparing(AnalyticsResponse.TopExpense::getDate)
+            .thenComparing(AnalyticsResponse.TopExpense::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+    
+    /**
+     * Honours the legacy rollups switch: turning rollups off still selects the aggregation
+     * engine, while turning them on alongside a different engine is a configuration error.
+     */
+    @PostConstruct
+    void applyLegacyEngineProperty() {
+        String rollupsEnabled = environment.getProperty(LEGACY_ROLLUPS_PROPERTY,
+                environment.getProperty(LEGACY_ROLLUPS_VARIABLE, ""));
+        if (rollupsEnabled.isBlank()) {
+            return;
+        }
+        
+        boolean enabled = Boolean.parseBoolean(rollupsEnabled.trim());
+        if (enabled && engine != Engine.ROLLUPS) {
+            throw new IllegalStateException(LEGACY_ROLLUPS_PROPERTY + "=true conflicts with app.analytics.engine="
+                    + engine + "; remove the deprecated property");
+        }
+        if (!enabled && engine == Engine.ROLLUPS) {
+            engine = Engine.AGGREGATION;
+        }
+        log.warn("{} is deprecated, set app.analytics.engine={} instead", LEGACY_ROLLUPS_PROPERTY, engine);
+    }
     
     @Transactional(readOnly = true)
-    @Cacheable(value = "analytics", key = "#userId + '-' + #startDate + '-' + #endDate")
+    @Cacheable(value = "analytics",
+            key = "#userId + ':' + @cacheGenerationService.current(#userId) + ':' + #startDate + '-' + #endDate")
     public AnalyticsResponse getAnalytics(String userId, LocalDate startDate, LocalDate endDate) {
-        List<Expense> expenses = expenseRepository.findExpensesByUserAndDateRange(userId, startDate, endDate);
+        // Scanning resident columns is cheaper than fetching cached blocks
+        AnalyticsResponse response = engine() == Engine.COLUMNAR
+                ? computeRange(userId, startDate, endDate)
+                : mergeBlocks(collectBlocks(userId, startDate, endDate));
+        
+        resolveCategoryNames(userId, response);
+        resolveDescriptions(List.of(response));
+        return response;
+    }
+    
+    /**
+     * Daily spend with its 7-, 30- and 90-day moving averages for every day of the range, from the
+     * user's in-memory spend index: O(days) however many expenses the windows cover.
+     */
+    @Transactional(readOnly = true)
+    public MovingAverageResponse getMovingAverages(String userId, LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("endDate must not be before startDate");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_SERIES_DAYS) {
+            throw new BadRequestException("Range cannot exceed " + MAX_SERIES_DAYS + " days");
+        }
+        
+        SpendIndexService.MovingSums movingSums = spendIndexService.getMovingSums(userId, startDate, endDate);
+        long[][] windowCents = movingSums.getWindowCents();
+        
+        List<MovingAverageResponse.Point> points = new ArrayList<>();
+        for (int day = 0; day < movingSums.getDailyCents().length; day++) {
+            points.add(toMovingAveragePoint(startDate.plusDays(day), movingSums.getDailyCents()[day],
+                    windowCents[0][day], windowCents[1][day], windowCents[2][day]));
+        }
+        
+        long[] latest = movingSums.getLatestWindowCents();
+        return MovingAverageResponse.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .latest(toMovingAveragePoint(movingSums.getLatestDay(), null, latest[0], latest[1], latest[2]))
+                .points(points)
+                .build();
+    }
+    
+    private MovingAverageResponse.Point toMovingAveragePoint(LocalDate date, Long dailyCents,
+                                                             long sum7Days, long sum30Days, long sum90Days) {
+        int[] windows = SpendIndexService.MOVING_WINDOWS;
+        return MovingAverageResponse.Point.builder()
+                .date(date)
+                .amount(dailyCents != null ? MoneyUtil.toAmount(dailyCents) : null)
+                .average7Days(MoneyUtil.toAmount(Math.round((double) sum7Days / windows[0])))
+                .average30Days(MoneyUtil.toAmount(Math.round((double) sum30Days / windows[1])))
+                .average90Days(MoneyUtil.toAmount(Math.round((double) sum90Days / windows[2])))
+                .build();
+    }
+    
+    /**
+     * Daily spend over the range, overall or for one category, reduced to at most {@code maxPoints}
+     * points with Largest-Triangle-Three-Buckets so the payload stays bounded however long the
+     * range is. Peaks and troughs survive; flat stretches collapse.
+     */
+    @Transactional(readOnly = true)
+    public TimeSeriesResponse getTimeSeries(String userId, LocalDate startDate, LocalDate endDate,
+                                            String categoryId, int maxPoints) {
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("endDate must not be before startDate");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_TIME_SERIES_DAYS) {
+            throw new BadRequestException("Range cannot exceed " + MAX_TIME_SERIES_DAYS + " days");
+        }
+        if (maxPoints < MIN_TIME_SERIES_POINTS || maxPoints > MAX_TIME_SERIES_POINTS) {
+            throw new BadRequestException("maxPoints must be between " + MIN_TIME_SERIES_POINTS
+                    + " and " + MAX_TIME_SERIES_POINTS);
+        }
+        
+        long[] dailyCents = spendIndexService.getDailyCents(userId, categoryId, startDate, endDate);
+        List<Integer> kept = Lttb.downsample(dailyCents, maxPoints);
+        
+        List<TimeSeriesResponse.Point> points = new ArrayList<>(kept.size());
+        for (int day : kept) {
+            points.add(TimeSeriesResponse.Point.builder()
+                    .date(startDate.plusDays(day))
+                    .amount(MoneyUtil.toAmount(dailyCents[day]))
+                    .build());
+        }
+        
+        return TimeSeriesResponse.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .categoryId(categoryId)
+                .categoryName(categoryId != null ? categoryNameResolver.getName(userId, categoryId) : null)
+                .totalDays(dailyCents.length)
+                .downsampled(kept.size() < dailyCents.length)
+                .points(points)
+                .build();
+    }
+    
+    /**
+     * Dashboard analytics for several ranges, each optionally limited to one category, keyed by
+     * label (or "startDate..endDate[:categoryId]"). Each engine answers the ranges the way it
+     * answers a single one: whole-user ranges are composed from cached blocks (and rollups),
+     * category ranges run one aggregation filtered on the category. Only the streaming engine
+     * reads expenses itself; overlapping ranges then share one cursor pass.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, AnalyticsResponse> getBatchAnalytics(String userId, List<AnalyticsBatchRequest.RangeSpec> ranges) {
+        Map<String, AnalyticsBatchRequest.RangeSpec> rangesByLabel = new LinkedHashMap<>();
+        for (AnalyticsBatchRequest.RangeSpec range : ranges) {
+            if (range.getEndDate().isBefore(range.getStartDate())) {
+                throw new BadRequestException("endDate must not be before startDate");
+            }
+            String label = range.getLabel() != null
+                    ? range.getLabel()
+                    : range.getStartDate() + ".." + range.getEndDate()
+                            + (range.getCategoryId() != null ? ":" + range.getCategoryId() : "");
+            if (rangesByLabel.put(label, range) != null) {
+                throw new BadRequestException("Duplicate range label: " + label);
+            }
+        }
+        
+        Map<String, AnalyticsResponse> responses = new LinkedHashMap<>();
+        switch (engine()) {
+            case COLUMNAR -> {
+                // Resident columns make every range a scan without I/O
+                ExpenseColumns columns = columnarExpenseStore.getColumns(userId);
+                rangesByLabel.forEach((label, range) -> responses.put(label, toResponse(columns.aggregate(
+                        range.getStartDate(), range.getEndDate(), range.getCategoryId(), TOP_EXPENSES_LIMIT))));
+            }
+            case STREAMING -> responses.putAll(streamRanges(userId, rangesByLabel));
+            default -> rangesByLabel.forEach((label, range) -> responses.put(label, range.getCategoryId() == null
+                    ? mergeBlocks(collectBlocks(userId, range.getStartDate(), range.getEndDate()))
+                    : getAnalyticsFromAggregation(userId, range.getCategoryId(), range.getStartDate(), range.getEndDate())));
+        }
+        
+        responses.values().forEach(response -> resolveCategoryNames(userId, response));
+        resolveDescriptions(responses.values());
+        return responses;
+    }
+    
+    /**
+     * Streams the union of the whole-user ranges once, feeding every range it covers; category
+     * ranges not inside that union are streamed with the category in the query, merged per
+     * category.
+     */
+    private Map<String, AnalyticsResponse> streamRanges(String userId,
+                                                        Map<String, AnalyticsBatchRequest.RangeSpec> rangesByLabel) {
+        Map<String, AnalyticsAccumulator> accumulators = new LinkedHashMap<>();
+        rangesByLabel.keySet().forEach(label -> accumulators.put(label, new AnalyticsAccumulator(TOP_EXPENSES_LIMIT)));
+        
+        List<LocalDate[]> userSpans = mergeSpans(rangesByLabel.values().stream()
+                .filter(range -> range.getCategoryId() == null)
+                .toList());
+        
+        Map<String, AnalyticsBatchRequest.RangeSpec> fedByUserSpans = new LinkedHashMap<>();
+        Map<String, Map<String, AnalyticsBatchRequest.RangeSpec>> rangesByCategory = new LinkedHashMap<>();
+        rangesByLabel.forEach((label, range) -> {
+            boolean covered = userSpans.stream().anyMatch(span ->
+                    !range.getStartDate().isBefore(span[0]) && !range.getEndDate().isAfter(span[1]));
+            if (covered) {
+                fedByUserSpans.put(label, range);
+            } else {
+                rangesByCategory.computeIfAbsent(range.getCategoryId(), id -> new LinkedHashMap<>()).put(label, range);
+            }
+        });
+        
+        streamSpans(userId, null, userSpans, fedByUserSpans, accumulators);
+        rangesByCategory.forEach((categoryId, categoryRanges) ->
+                streamSpans(userId, categoryId, mergeSpans(categoryRanges.values()), categoryRanges, accumulators));
+        
+        Map<String, AnalyticsResponse> responses = new LinkedHashMap<>();
+        accumulators.forEach((label, accumulator) -> responses.put(label, toResponse(accumulator)));
+        return responses;
+    }
+    
+    private void streamSpans(String userId, String categoryId, List<LocalDate[]> spans,
+                             Map<String, AnalyticsBatchRequest.RangeSpec> rangesByLabel,
+                             Map<String, AnalyticsAccumulator> accumulators) {
+        for (LocalDate[] span : spans) {
+            try (Stream<Expense> expenses = expenseRepository.streamForAnalytics(userId, categoryId, span[0], span[1])) {
+                expenses.forEach(expense -> rangesByLabel.forEach((label, range) -> {
+                    if (!expense.getDate().isBefore(range.getStartDate())
+                            && !expense.getDate().isAfter(range.getEndDate())
+                            && (range.getCategoryId() == null || range.getCategoryId().equals(expense.getCategoryId()))) {
+                        accumulators.get(label).accept(expense);
+                    }
+                }));
+            }
+        }
+    }
+    
+    /**
+     * Union of the ranges as disjoint spans in date order; overlapping or adjacent ranges share a
+     * span, gaps between ranges are not read.
+     */
+    private List<LocalDate[]> mergeSpans(Collection<AnalyticsBatchRequest.RangeSpec> ranges) {
+        List<AnalyticsBatchRequest.RangeSpec> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparing(AnalyticsBatchRequest.RangeSpec::getStartDate));
+        
+        List<LocalDate[]> spans = new ArrayList<>();
+        for (AnalyticsBatchRequest.RangeSpec range : sorted) {
+            LocalDate[] last = spans.isEmpty() ? null : spans.get(spans.size() - 1);
+            if (last != null && !range.getStartDate().isAfter(last[1].plusDays(1))) {
+                if (range.getEndDate().isAfter(last[1])) {
+                    last[1] = range.getEndDate();
+                }
+            } else {
+                spans.add(new LocalDate[]{range.getStartDate(), range.getEndDate()});
+            }
+        }
+        return spans;
+    }
+    
+    /**
+     * Splits the range at month boundaries. Fully covered closed months come from cached month
+     * blocks, the open month from cached day blocks, and partially covered closed months (the
+     * range edges) are computed directly.
+     */
+    private List<AnalyticsResponse> collectBlocks(String userId, LocalDate startDate, LocalDate endDate) {
+        YearMonth openMonth = YearMonth.now();
+        List<AnalyticsResponse> blocks = new ArrayList<>();
+        
+        LocalDate cursor = startDate;
+        while (!cursor.isAfter(endDate)) {
+            YearMonth month = YearMonth.from(cursor);
+            LocalDate segmentEnd = endDate.isBefore(month.atEndOfMonth()) ? endDate : month.atEndOfMonth();
+            boolean wholeMonth = cursor.equals(month.atDay(1)) && segmentEnd.equals(month.atEndOfMonth());
+            
+            if (month.equals(openMonth)) {
+                blocks.addAll(getDayBlocks(userId, cursor, segmentEnd));
+            } else if (month.isBefore(openMonth) && wholeMonth) {
+                blocks.add(getMonthBlock(userId, month));
+            } else {
+                blocks.add(computeRange(userId, cursor, segmentEnd));
+            }
+            
+            cursor = segmentEnd.plusDays(1);
+        }
+        
+        return blocks;
+    }
+    
+    private AnalyticsResponse getMonthBlock(String userId, YearMonth month) {
+        // Keyed at the versions read before computing, so a write meanwhile retires this put
+        String key = analyticsBlockCache.monthKey(userId, month);
+        AnalyticsResponse block = analyticsBlockCache.getMonth(key);
+        if (block == null) {
+            block = computeRange(userId, month.atDay(1), month.atEndOfMonth());
+            analyticsBlockCache.putMonth(key, block);
+        }
+        return block;
+    }
+    
+    /**
+     * Day blocks for the open month. Missing days are filled by one cursor pass over the span
+     * between the first and last missing day.
+     */
+    private List<AnalyticsResponse> getDayBlocks(String userId, LocalDate startDate, LocalDate endDate) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            days.add(day);
+        }
+        Map<LocalDate, String> keys = analyticsBlockCache.dayKeys(userId, days);
+        
+        Map<LocalDate, AnalyticsResponse> blocks = new TreeMap<>();
+        List<LocalDate> missing = new ArrayList<>();
+        for (LocalDate day : days) {
+            AnalyticsResponse block = analyticsBlockCache.getDay(keys.get(day));
+            if (block != null) {
+                blocks.put(day, block);
+            } else {
+                missing.add(day);
+            }
+        }
+        
+        if (!missing.isEmpty()) {
+            Map<LocalDate, AnalyticsAccumulator> accumulators = new HashMap<>();
+            missing.forEach(day -> accumulators.put(day, new AnalyticsAccumulator(TOP_EXPENSES_LIMIT)));
+            
+            try (Stream<Expense> expenses = expenseRepository.streamForAnalytics(
+                    userId, null, missing.get(0), missing.get(missing.size() - 1))) {
+                expenses.forEach(expense -> {
+                    AnalyticsAccumulator accumulator = accumulators.get(expense.getDate());
+                    if (accumulator != null) {
+                        accumulator.accept(expense);
+                    }
+                });
+            }
+            
+            accumulators.forEach((day, accumulator) -> {
+                AnalyticsResponse block = toResponse(accumulator);
+                analyticsBlockCache.putDay(keys.get(day), block);
+                blocks.put(day, block);
+            });
+        }
+        
+        return new ArrayList<>(blocks.values());
+    }
+    
+    private AnalyticsResponse computeRange(String userId, LocalDate startDate, LocalDate endDate) {
+        return switch (engine()) {
+            case AGGREGATION -> getAnalyticsFromAggregation(userId, startDate, endDate);
+            case STREAMING -> toResponse(accumulate(userId, null, startDate, endDate, TOP_EXPENSES_LIMIT));
+            case ROLLUPS -> getAnalyticsFromRollups(userId, startDate, endDate);
+            case COLUMNAR -> toResponse(columnarExpenseStore.getColumns(userId)
+                    .aggregate(startDate, endDate, null, TOP_EXPENSES_LIMIT));
+        };
+    }
+    
+    /**
+     * Combines partial aggregates of disjoint ranges. Totals and counts add up, extremes take the
+     * min/max, and the overall top expenses are contained in the union of each block's top list.
+     */
+    private AnalyticsResponse mergeBlocks(List<AnalyticsResponse> blocks) {
+        long count = 0;
+        long totalCents = 0;
+        long highestCents = Long.MIN_VALUE;
+        long lowestCents = Long.MAX_VALUE;
+        
+        // key -> {count, cents}
+        Map<String, long[]> totalsByCategory = new HashMap<>();
+        Map<String, long[]> totalsByMonth = new TreeMap<>();
+        Map<String, Long> centsByPaymentMethod = new HashMap<>();
+        TopK<AnalyticsResponse.TopExpense> topExpenses = new TopK<>(TOP_EXPENSES_LIMIT, TOP_EXPENSE_BY_AMOUNT);
+        
+        for (AnalyticsResponse block : blocks) {
+            AnalyticsResponse.Summary summary = block.getSummary();
+            if (summary.getTransactionCount() == 0) {
+                continue;
+            }
+            
+            count += summary.getTransactionCount();
+            totalCents = MoneyUtil.add(totalCents, MoneyUtil.toCents(summary.getTotalExpenses()));
+            highestCents = Math.max(highestCents, MoneyUtil.toCents(summary.getHighestExpense()));
+            lowestCents = Math.min(lowestCents, MoneyUtil.toCents(summary.getLowestExpense()));
+            
+            for (AnalyticsResponse.CategoryBreakdown category : block.getCategoryBreakdown()) {
+                addTotals(totalsByCategory, category.getCategoryId(), category.getCount(), MoneyUtil.toCents(category.getAmount()));
+            }
+            for (AnalyticsResponse.MonthlyTrend month : block.getMonthlyTrends()) {
+                addTotals(totalsByMonth, month.getMonth(), month.getCount(), MoneyUtil.toCents(month.getAmount()));
+            }
+            block.getPaymentMethodBreakdown().forEach((paymentMethod, amount) -> 
+                    centsByPaymentMethod.merge(paymentMethod, MoneyUtil.toCents(amount), MoneyUtil::add));
+            topExpenses.offerAll(block.getTopExpenses());
+        }
+        
+        AnalyticsResponse.Summary summary = count > 0
+                ? buildSummary(count, totalCents, highestCents, lowestCents)
+                : emptySummary();
+        
+        Map<String, BigDecimal> paymentMethodBreakdown = new HashMap<>();
+        centsByPaymentMethod.forEach((paymentMethod, cents) -> paymentMethodBreakdown.put(paymentMethod, MoneyUtil.toAmount(cents)));
+        
+        return AnalyticsResponse.builder()
+                .summary(summary)
+                .categoryBreakdown(toCategoryBreakdown(totalsByCategory, summary.getTotalExpenses()))
+                .monthlyTrends(toMonthlyTrends(totalsByMonth))
+                .paymentMethodBreakdown(paymentMethodBreakdown)
+                .topExpenses(topExpenses.toSortedList())
+                .build();
+    }
+    
+    private AnalyticsResponse getAnalyticsFromRollups(String userId, LocalDate startDate, LocalDate endDate) {
+        List<ExpenseRollup> rollups = expenseRollupRepository.findRollupsByUserAndDayRange(userId, startDate, endDate);
         
         // Calculate summary
-        AnalyticsResponse.Summary summary = calculateSummary(expenses);
+        AnalyticsResponse.Summary summary = summarizeRollups(rollups);
         
         // Calculate category breakdown
-        List<AnalyticsResponse.CategoryBreakdown> categoryBreakdown = calculateCategoryBreakdown(expenses, userId);
+        List<AnalyticsResponse.CategoryBreakdown> categoryBreakdown = calculateCategoryBreakdown(
+                rollups, summary.getTotalExpenses());
         
         // Calculate monthly trends
-        List<AnalyticsResponse.MonthlyTrend> monthlyTrends = calculateMonthlyTrends(expenses);
+        List<AnalyticsResponse.MonthlyTrend> monthlyTrends = calculateMonthlyTrends(rollups);
         
         // Calculate payment method breakdown
-        Map<String, BigDecimal> paymentMethodBreakdown = calculatePaymentMethodBreakdown(expenses);
+        Map<String, BigDecimal> paymentMethodBreakdown = calculatePaymentMethodBreakdown(rollups);
         
         // Get top expenses
-        List<AnalyticsResponse.TopExpense> topExpenses = getTopExpenses(expenses, 10);
+        List<AnalyticsResponse.TopExpense> topExpenses = mapTopExpenses(
+                expenseRepository.aggregateTopExpenses(userId, startDate, endDate, TOP_EXPENSES_LIMIT));
         
         return AnalyticsResponse.builder()
                 .summary(summary)
@@ -58,158 +491,505 @@ public class AnalyticsService {
     }
     
     @Transactional(readOnly = true)
-    @Cacheable(value = "categoryAnalytics", key = "#userId + '-' + #categoryId + '-' + #startDate + '-' + #endDate")
+    @Cacheable(value = "categoryAnalytics",
+            key = "#userId + ':' + @cacheGenerationService.current(#userId) + ':' "
+                    + "+ #categoryId + '-' + #startDate + '-' + #endDate")
     public Map<String, Object> getCategoryAnalytics(String userId, String categoryId, 
                                                      LocalDate startDate, LocalDate endDate) {
-        List<Expense> expenses = expenseRepository.findExpensesByUserCategoryAndDateRange(
-                userId, categoryId, startDate, endDate);
-        
-        BigDecimal totalAmount = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal averageAmount = expenses.isEmpty() 
-                ? BigDecimal.ZERO
-                : totalAmount.divide(BigDecimal.valueOf(expenses.size()), 2, RoundingMode.HALF_UP);
+        AnalyticsResponse.Summary summary = switch (engine()) {
+            case ROLLUPS -> summarizeRollups(expenseRollupRepository.findRollupsByUserCategoryAndDayRange(
+                    userId, categoryId, startDate, endDate));
+            case COLUMNAR -> toResponse(columnarExpenseStore.getColumns(userId)
+                    .aggregate(startDate, endDate, categoryId, 0)).getSummary();
+            default -> summarize(accumulate(userId, categoryId, startDate, endDate, 0));
+        };
         
         Map<String, Object> analytics = new HashMap<>();
-        analytics.put("totalExpenses", totalAmount);
-        analytics.put("transactionCount", expenses.size());
-        analytics.put("averageExpense", averageAmount);
-        analytics.put("highestExpense", expenses.stream()
-                .map(Expense::getAmount)
-                .max(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO));
-        analytics.put("lowestExpense", expenses.stream()
-                .map(Expense::getAmount)
-                .min(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO));
+        analytics.put("totalExpenses", summary.getTotalExpenses());
+        analytics.put("transactionCount", summary.getTransactionCount());
+        analytics.put("averageExpense", summary.getAverageExpense());
+        analytics.put("highestExpense", summary.getHighestExpense());
+        analytics.put("lowestExpense", summary.getLowestExpense());
         
         return analytics;
     }
     
+    /**
+     * Total spend and count in the range, optionally for one category, answered from the user's
+     * per-day spend index in O(log n) rather than by scanning the range.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getTotals(String userId, String categoryId, LocalDate startDate, LocalDate endDate) {
+        SpendIndexService.Totals totals = spendIndexService.getTotals(userId, categoryId, startDate, endDate);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalExpenses", MoneyUtil.toAmount(totals.getCents()));
+        result.put("transactionCount", totals.getCount());
+        return result;
+    }
+    
+    /**
+     * The k largest (or smallest) expenses in the range, selected with a bounded heap over a
+     * projected cursor so k can grow without sorting the whole range.
+     */
+    @Transactional(readOnly = true)
+    public List<AnalyticsResponse.TopExpense> getTopExpenses(String userId, LocalDate startDate, LocalDate endDate, int k,
+                                                             String categoryId, Expense.PaymentMethod paymentMethod,
+                                                             boolean smallest) {
+        if (k < 1 || k > MAX_TOP_K) {
+            throw new BadRequestException("k must be between 1 and " + MAX_TOP_K);
+        }
+        
+        Comparator<Expense> ranking = smallest
+                ? Comparator.comparing(Expense::getAmount, Comparator.reverseOrder())
+                        .thenComparing(AnalyticsAccumulator.BY_AMOUNT)
+                : AnalyticsAccumulator.BY_AMOUNT;
+        
+        TopK<Expense> topExpenses = new TopK<>(k, ranking);
+        try (Stream<Expense> expenses = expenseRepository.streamForAnalytics(
+                userId, categoryId, paymentMethod, startDate, endDate)) {
+            expenses.forEach(topExpenses::offer);
+        }
+        
+        List<AnalyticsResponse.TopExpense> result = topExpenses.toSortedList().stream()
+                .map(this::toTopExpense)
+                .collect(Collectors.toList());
+        
+        Map<String, String> categoryNames = categoryNameResolver.resolveNames(userId,
+                result.stream().map(AnalyticsResponse.TopExpense::getCategoryId).collect(Collectors.toSet()));
+        result.forEach(expense -> expense.setCategoryName(categoryNames.get(expense.getCategoryId())));
+        
+        return result;
+    }
+    
     @Transactional(readOnly = true)
     public Map<String, Object> getMonthlyComparison(String userId, int year) {
-        Map<String, Object> comparison = new HashMap<>();
+        return new LinkedHashMap<>(getMonthlyTotals(userId, List.of(year)).get(String.valueOf(year)));
+    }
+    
+    @Transactional(readOnly = true)
+    public Map<String, Object> getMultiYearComparison(String userId, List<Integer> years) {
+        if (years.isEmpty() || years.size() > MAX_COMPARISON_YEARS) {
+            throw new BadRequestException("Between 1 and " + MAX_COMPARISON_YEARS + " years can be compared");
+        }
+        
+        return new LinkedHashMap<>(getMonthlyTotals(userId, years));
+    }
+    
+    /**
+     * Aligned spend series for two or more periods of one granularity, per bucket (day of the week
+     * or month, or month of the quarter or year) and per category, with the first period's change
+     * relative to each of the others. All periods come from one grouped aggregation.
+     */
+    @Transactional(readOnly = true)
+    public ComparisonResponse getPeriodComparison(String userId, Granularity granularity, List<String> periodLabels) {
+        LocalDate currentStart = granularity.startOf(LocalDate.now());
+        List<String> labels = periodLabels != null && !periodLabels.isEmpty()
+                ? periodLabels
+                : List.of(granularity.label(currentStart), granularity.label(granularity.startOf(currentStart.minusDays(1))));
+        if (labels.size() < 2 || labels.size() > MAX_COMPARISON_PERIODS) {
+            throw new BadRequestException("Between 2 and " + MAX_COMPARISON_PERIODS + " periods can be compared");
+        }
+        
+        List<LocalDate[]> ranges = new ArrayList<>();
+        for (String label : labels) {
+            LocalDate start = granularity.parse(label);
+            ranges.add(new LocalDate[]{start, granularity.endOf(start)});
+        }
+        
+        boolean fromRollups = engine() == Engine.ROLLUPS;
+        List<Document> dailyTotals = fromRollups
+                ? expenseRollupRepository.aggregateDailyCategoryTotals(userId, ranges)
+                : expenseRepository.aggregateDailyCategoryTotals(userId, ranges);
         
-        for (int month = 1; month <= 12; month++) {
-            LocalDate startDate = LocalDate.of(year, month, 1);
-            LocalDate endDate = startDate.withDayOfMonth(startDate.lengthOfMonth());
+        int periods = ranges.size();
+        long[][] series = new long[periods][granularity.bucketCount];
+        long[] counts = new long[periods];
+        Map<String, long[]> centsByCategory = new HashMap<>();
+        
+        for (Document dailyTotal : dailyTotals) {
+            Document key = dailyTotal.get("_id", Document.class);
+            LocalDate day = toLocalDate(key.getDate(fromRollups ? "day" : "date"));
+            long cents = fromRollups
+                    ? toLong(dailyTotal.get("totalCents"))
+                    : MoneyUtil.toCents(toBigDecimal(dailyTotal.get("total")));
             
-            List<Expense> expenses = expenseRepository.findExpensesByUserAndDateRange(userId, startDate, endDate);
-            BigDecimal monthlyTotal = expenses.stream()
-                    .map(Expense::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            // Periods may overlap (e.g. explicit weeks), so a day can count towards several
+            for (int period = 0; period < periods; period++) {
+                LocalDate[] range = ranges.get(period);
+                if (day.isBefore(range[0]) || day.isAfter(range[1])) {
+                    continue;
+                }
+                int bucket = granularity.bucketOf(range[0], day);
+                series[period][bucket] = MoneyUtil.add(series[period][bucket], cents);
+                counts[period] += toLong(dailyTotal.get("count"));
+                centsByCategory.computeIfAbsent(key.getString("categoryId"), id -> new long[periods])[period] += cents;
+            }
+        }
+        
+        List<ComparisonResponse.PeriodSeries> periodSeries = new ArrayList<>();
+        long referenceTotal = Arrays.stream(series[0]).sum();
+        for (int period = 0; period < periods; period++) {
+            long total = Arrays.stream(series[period]).sum();
+            periodSeries.add(ComparisonResponse.PeriodSeries.builder()
+                    .label(labels.get(period))
+                    .startDate(ranges.get(period)[0])
+                    .endDate(ranges.get(period)[1])
+                    .total(MoneyUtil.toAmount(total))
+                    .count(counts[period])
+                    .series(Arrays.stream(series[period]).mapToObj(MoneyUtil::toAmount).collect(Collectors.toList()))
+                    .delta(period > 0 ? toDelta(referenceTotal, total) : null)
+                    .build());
+        }
+        
+        Map<String, String> categoryNames = categoryNameResolver.resolveNames(userId, centsByCategory.keySet());
+        List<ComparisonResponse.CategoryComparison> categories = new ArrayList<>();
+        centsByCategory.forEach((categoryId, cents) -> {
+            List<ComparisonResponse.Delta> deltas = new ArrayList<>();
+            for (int period = 1; period < periods; period++) {
+                deltas.add(toDelta(cents[0], cents[period]));
+            }
+            categories.add(ComparisonResponse.CategoryComparison.builder()
+                    .categoryId(categoryId)
+                    .categoryName(categoryNames.get(categoryId))
+                    .amounts(Arrays.stream(cents).mapToObj(MoneyUtil::toAmount).collect(Collectors.toList()))
+                    .deltas(deltas)
+                    .build());
+        });
+        categories.sort((a, b) -> b.getAmounts().get(0).compareTo(a.getAmounts().get(0)));
+        
+        return ComparisonResponse.builder()
+                .granularity(granularity.name())
+                .buckets(granularity.bucketLabels())
+                .periods(periodSeries)
+                .categories(categories)
+                .build();
+    }
+    
+    static ComparisonResponse.Delta toDelta(long referenceCents, long comparedCents) {
+        long difference = MoneyUtil.subtract(referenceCents, comparedCents);
+        return ComparisonResponse.Delta.builder()
+                .absolute(MoneyUtil.toAmount(difference))
+                .percentage(comparedCents != 0
+                        ? BigDecimal.valueOf(difference * 100.0 / comparedCents).setScale(2, RoundingMode.HALF_UP).doubleValue()
+                        : null)
+                .build();
+    }
+    
+    private Map<String, Map<String, BigDecimal>> getMonthlyTotals(String userId, List<Integer> years) {
+        SortedSet<Integer> sortedYears = new TreeSet<>(years);
+        
+        // Pre-fill every month so the result is in calendar order and empty months show as zero
+        Map<String, Map<String, BigDecimal>> totalsByYear = new LinkedHashMap<>();
+        for (Integer year : sortedYears) {
+            Map<String, BigDecimal> months = new LinkedHashMap<>();
+            for (Month month : Month.values()) {
+                months.put(month.name(), BigDecimal.ZERO);
+            }
+            totalsByYear.put(String.valueOf(year), months);
+        }
+        
+        // One grouped scan for all requested years
+        boolean fromRollups = engine() == Engine.ROLLUPS;
+        List<Document> monthlyTotals = fromRollups
+                ? expenseRollupRepository.aggregateMonthlyTotals(userId, sortedYears)
+                : expenseRepository.aggregateMonthlyTotals(userId, sortedYears);
+        
+        for (Document monthlyTotal : monthlyTotals) {
+            Document key = monthlyTotal.get("_id", Document.class);
+            BigDecimal amount = fromRollups
+                    ? MoneyUtil.toAmount(toLong(monthlyTotal.get("totalCents")))
+                    : toAmount(monthlyTotal.get("total"));
             
-            comparison.put(startDate.getMonth().name(), monthlyTotal);
+            totalsByYear.get(String.valueOf(toLong(key.get("year"))))
+                    .put(Month.of((int) toLong(key.get("month"))).name(), amount);
+        }
+        
+        return totalsByYear;
+    }
+    
+    private AnalyticsResponse getAnalyticsFromAggregation(String userId, LocalDate startDate, LocalDate endDate) {
+        return getAnalyticsFromAggregation(userId, null, startDate, endDate);
+    }
+    
+    private AnalyticsResponse getAnalyticsFromAggregation(String userId, String categoryId,
+                                                          LocalDate startDate, LocalDate endDate) {
+        // All sections are computed by one $facet aggregation on the server
+        Document result = expenseRepository.aggregateAnalytics(userId, categoryId, startDate, endDate, TOP_EXPENSES_LIMIT);
+        
+        AnalyticsResponse.Summary summary = mapSummary(firstOrNull(result, "summary"));
+        
+        return AnalyticsResponse.builder()
+                .summary(summary)
+                .categoryBreakdown(mapCategoryBreakdown(
+                        result.getList("categories", Document.class), summary.getTotalExpenses()))
+                .monthlyTrends(mapMonthlyTrends(result.getList("months", Document.class)))
+                .paymentMethodBreakdown(mapPaymentMethodBreakdown(result.getList("paymentMethods", Document.class)))
+                .topExpenses(mapTopExpenses(result.getList("topExpenses", Document.class)))
+                .build();
+    }
+    
+    /**
+     * Feeds the range through a single-pass accumulator over a projected cursor, so heap use is
+     * independent of how many expenses the range contains.
+     */
+    private AnalyticsAccumulator accumulate(String userId, String categoryId, 
+                                            LocalDate startDate, LocalDate endDate, int topLimit) {
+        AnalyticsAccumulator accumulator = new AnalyticsAccumulator(topLimit);
+        try (Stream<Expense> expenses = expenseRepository.streamForAnalytics(userId, categoryId, startDate, endDate)) {
+            expenses.forEach(accumulator::accept);
         }
+        return accumulator;
+    }
+    
+    private AnalyticsResponse toResponse(AnalyticsAccumulator accumulator) {
+        AnalyticsResponse.Summary summary = summarize(accumulator);
+        
+        List<AnalyticsResponse.CategoryBreakdown> categoryBreakdown = new ArrayList<>();
+        accumulator.getCategoryTotals().forEach((categoryId, totals) -> categoryBreakdown.add(
+                buildCategoryBreakdown(categoryId, MoneyUtil.toAmount(totals.getCents()), totals.getCount(), summary.getTotalExpenses())));
+        categoryBreakdown.sort((a, b) -> b.getAmount().compareTo(a.getAmount()));
+        
+        List<AnalyticsResponse.MonthlyTrend> monthlyTrends = new ArrayList<>();
+        accumulator.getMonthTotals().forEach((month, totals) -> monthlyTrends.add(AnalyticsResponse.MonthlyTrend.builder()
+                .month(month)
+                .amount(MoneyUtil.toAmount(totals.getCents()))
+                .count(totals.getCount())
+                .build()));
+        
+        Map<String, BigDecimal> paymentMethodBreakdown = new HashMap<>();
+        accumulator.getPaymentMethodTotals().forEach((paymentMethod, totals) -> 
+                paymentMethodBreakdown.put(paymentMethod, MoneyUtil.toAmount(totals.getCents())));
         
-        return comparison;
+        List<AnalyticsResponse.TopExpense> topExpenses = accumulator.getTopExpenses().stream()
+                .map(this::toTopExpense)
+                .collect(Collectors.toList());
+        
+        return AnalyticsResponse.builder()
+                .summary(summary)
+                .categoryBreakdown(categoryBreakdown)
+                .monthlyTrends(monthlyTrends)
+                .paymentMethodBreakdown(paymentMethodBreakdown)
+                .topExpenses(topExpenses)
+                .build();
     }
     
-    private AnalyticsResponse.Summary calculateSummary(List<Expense> expenses) {
-        if (expenses.isEmpty()) {
-            return AnalyticsResponse.Summary.builder()
-                    .totalExpenses(BigDecimal.ZERO)
-                    .totalIncome(BigDecimal.ZERO)
-                    .balance(BigDecimal.ZERO)
-                    .transactionCount(0L)
-                    .averageExpense(BigDecimal.ZERO)
-                    .highestExpense(BigDecimal.ZERO)
-                    .lowestExpense(BigDecimal.ZERO)
-                    .build();
+    private AnalyticsResponse toResponse(ExpenseColumns.Aggregate aggregate) {
+        AnalyticsResponse.Summary summary = aggregate.getCount() > 0
+                ? buildSummary(aggregate.getCount(), aggregate.getTotalCents(), 
+                        aggregate.getHighestCents(), aggregate.getLowestCents())
+                : emptySummary();
+        
+        Map<String, long[]> totalsByCategory = new HashMap<>();
+        for (int index = 0; index < aggregate.getCategoryIds().length; index++) {
+            if (aggregate.getCategoryCounts()[index] > 0) {
+                addTotals(totalsByCategory, aggregate.getCategoryIds()[index], 
+                        aggregate.getCategoryCounts()[index], aggregate.getCategoryCents()[index]);
+            }
         }
         
-        BigDecimal totalExpenses = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Map<String, long[]> totalsByMonth = new TreeMap<>();
+        for (int offset = 0; offset < aggregate.getMonthCounts().length; offset++) {
+            if (aggregate.getMonthCounts()[offset] > 0) {
+                addTotals(totalsByMonth, aggregate.monthAt(offset).toString(), 
+                        aggregate.getMonthCounts()[offset], aggregate.getMonthCents()[offset]);
+            }
+        }
         
-        BigDecimal averageExpense = totalExpenses.divide(
-                BigDecimal.valueOf(expenses.size()), 2, RoundingMode.HALF_UP);
+        Map<String, BigDecimal> paymentMethodBreakdown = new HashMap<>();
+        for (int ordinal = 0; ordinal < aggregate.getPaymentMethodCents().length; ordinal++) {
+            if (aggregate.getPaymentMethodCents()[ordinal] != 0) {
+                paymentMethodBreakdown.put(aggregate.paymentMethodAt(ordinal).name(), 
+                        MoneyUtil.toAmount(aggregate.getPaymentMethodCents()[ordinal]));
+            }
+        }
         
-        BigDecimal highestExpense = expenses.stream()
-                .map(Expense::getAmount)
-                .max(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
+        // Descriptions are not held in columns; they are filled in by resolveDescriptions
+        List<AnalyticsResponse.TopExpense> topExpenses = aggregate.getTopExpenses().stream()
+                .map(row -> AnalyticsResponse.TopExpense.builder()
+                        .id(row.getId())
+                        .amount(MoneyUtil.toAmount(row.getCents()))
+                        .categoryId(row.getCategoryId())
+                        .date(row.getDate().toString())
+                        .build())
+                .collect(Collectors.toList());
         
-        BigDecimal lowestExpense = expenses.stream()
-                .map(Expense::getAmount)
-                .min(BigDecimal::compareTo)
-                .orElse(BigDecimal.ZERO);
+        return AnalyticsResponse.builder()
+                .summary(summary)
+                .categoryBreakdown(toCategoryBreakdown(totalsByCategory, summary.getTotalExpenses()))
+                .monthlyTrends(toMonthlyTrends(totalsByMonth))
+                .paymentMethodBreakdown(paymentMethodBreakdown)
+                .topExpenses(topExpenses)
+                .build();
+    }
+    
+    private AnalyticsResponse.TopExpense toTopExpense(Expense expense) {
+        return AnalyticsResponse.TopExpense.builder()
+                .id(expense.getId())
+                .description(expense.getDescription())
+                .amount(MoneyUtil.toAmount(MoneyUtil.toCents(expense.getAmount())))
+                .categoryId(expense.getCategoryId())
+                .date(expense.getDate().toString())
+                .build();
+    }
+    
+    private AnalyticsResponse.Summary summarize(AnalyticsAccumulator accumulator) {
+        if (accumulator.getCount() == 0) {
+            return emptySummary();
+        }
+        
+        return buildSummary(accumulator.getCount(), accumulator.getTotalCents(), 
+                accumulator.getHighestCents(), accumulator.getLowestCents());
+    }
+    
+    private AnalyticsResponse.Summary summarizeRollups(List<ExpenseRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return emptySummary();
+        }
+        
+        long count = 0;
+        long totalCents = 0;
+        long lowestCents = Long.MAX_VALUE;
+        long highestCents = Long.MIN_VALUE;
+        
+        for (ExpenseRollup rollup : rollups) {
+            count += rollup.getCount();
+            totalCents = MoneyUtil.add(totalCents, rollup.getSumCents());
+            lowestCents = Math.min(lowestCents, rollup.getMinCents());
+            highestCents = Math.max(highestCents, rollup.getMaxCents());
+        }
+        
+        return buildSummary(count, totalCents, highestCents, lowestCents);
+    }
+    
+    private AnalyticsResponse.Summary buildSummary(long count, long totalCents, long highestCents, long lowestCents) {
+        BigDecimal totalExpenses = MoneyUtil.toAmount(totalCents);
         
         return AnalyticsResponse.Summary.builder()
                 .totalExpenses(totalExpenses)
                 .totalIncome(BigDecimal.ZERO)
                 .balance(BigDecimal.ZERO.subtract(totalExpenses))
-                .transactionCount((long) expenses.size())
-                .averageExpense(averageExpense)
-                .highestExpense(highestExpense)
-                .lowestExpense(lowestExpense)
+                .transactionCount(count)
+                .averageExpense(totalExpenses.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP))
+                .highestExpense(MoneyUtil.toAmount(highestCents))
+                .lowestExpense(MoneyUtil.toAmount(lowestCents))
                 .build();
     }
     
     private List<AnalyticsResponse.CategoryBreakdown> calculateCategoryBreakdown(
-            List<Expense> expenses, String userId) {
+            List<ExpenseRollup> rollups, BigDecimal totalAmount) {
         
-        Map<String, List<Expense>> expensesByCategory = expenses.stream()
-                .collect(Collectors.groupingBy(Expense::getCategoryId));
+        // categoryId -> {count, cents}
+        Map<String, long[]> totalsByCategory = new HashMap<>();
+        for (ExpenseRollup rollup : rollups) {
+            addTotals(totalsByCategory, rollup.getCategoryId(), rollup.getCount(), rollup.getSumCents());
+        }
         
-        BigDecimal totalAmount = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return toCategoryBreakdown(totalsByCategory, totalAmount);
+    }
+    
+    private List<AnalyticsResponse.CategoryBreakdown> toCategoryBreakdown(
+            Map<String, long[]> totalsByCategory, BigDecimal totalAmount) {
         
         List<AnalyticsResponse.CategoryBreakdown> breakdown = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : totalsByCategory.entrySet()) {
+            breakdown.add(buildCategoryBreakdown(entry.getKey(), MoneyUtil.toAmount(entry.getValue()[1]),
+                    entry.getValue()[0], totalAmount));
+        }
         
-        for (Map.Entry<String, List<Expense>> entry : expensesByCategory.entrySet()) {
-            String categoryId = entry.getKey();
-            List<Expense> categoryExpenses = entry.getValue();
-            
-            BigDecimal categoryAmount = categoryExpenses.stream()
-                    .map(Expense::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            double percentage = totalAmount.compareTo(BigDecimal.ZERO) > 0
-                    ? categoryAmount.multiply(BigDecimal.valueOf(100))
-                            .divide(totalAmount, 2, RoundingMode.HALF_UP)
-                            .doubleValue()
-                    : 0.0;
-            
-            String categoryName = getCategoryName(categoryId);
-            
-            breakdown.add(AnalyticsResponse.CategoryBreakdown.builder()
-                    .categoryId(categoryId)
-                    .categoryName(categoryName)
-                    .amount(categoryAmount)
-                    .count((long) categoryExpenses.size())
-                    .percentage(percentage)
+        // Sort by amount descending
+        breakdown.sort((a, b) -> b.getAmount().compareTo(a.getAmount()));
+        
+        return breakdown;
+    }
+    
+    private List<AnalyticsResponse.MonthlyTrend> calculateMonthlyTrends(List<ExpenseRollup> rollups) {
+        // yyyy-MM -> {count, cents}, kept in month order
+        Map<String, long[]> totalsByMonth = new TreeMap<>();
+        for (ExpenseRollup rollup : rollups) {
+            addTotals(totalsByMonth, YearMonth.from(rollup.getDay()).toString(), rollup.getCount(), rollup.getSumCents());
+        }
+        
+        return toMonthlyTrends(totalsByMonth);
+    }
+    
+    private List<AnalyticsResponse.MonthlyTrend> toMonthlyTrends(Map<String, long[]> totalsByMonth) {
+        List<AnalyticsResponse.MonthlyTrend> trends = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : totalsByMonth.entrySet()) {
+            trends.add(AnalyticsResponse.MonthlyTrend.builder()
+                    .month(entry.getKey())
+                    .amount(MoneyUtil.toAmount(entry.getValue()[1]))
+                    .count(entry.getValue()[0])
                     .build());
         }
         
+        return trends;
+    }
+    
+    private void addTotals(Map<String, long[]> totals, String key, long count, long cents) {
+        long[] keyTotals = totals.computeIfAbsent(key, k -> new long[2]);
+        keyTotals[0] += count;
+        keyTotals[1] = MoneyUtil.add(keyTotals[1], cents);
+    }
+    
+    private Map<String, BigDecimal> calculatePaymentMethodBreakdown(List<ExpenseRollup> rollups) {
+        Map<String, Long> centsByPaymentMethod = new HashMap<>();
+        for (ExpenseRollup rollup : rollups) {
+            centsByPaymentMethod.merge(AnalyticsAccumulator.paymentMethodOf(rollup.getPaymentMethod()),
+                    rollup.getSumCents(), MoneyUtil::add);
+        }
+        
+        Map<String, BigDecimal> breakdown = new HashMap<>();
+        centsByPaymentMethod.forEach((paymentMethod, cents) -> breakdown.put(paymentMethod, MoneyUtil.toAmount(cents)));
+        return breakdown;
+    }
+    
+    private AnalyticsResponse.Summary mapSummary(Document summary) {
+        if (summary == null) {
+            return emptySummary();
+        }
+        
+        long count = toLong(summary.get("count"));
+        BigDecimal totalExpenses = toAmount(summary.get("total"));
+        
+        BigDecimal averageExpense = totalExpenses.divide(
+                BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+        
+        return AnalyticsResponse.Summary.builder()
+                .totalExpenses(totalExpenses)
+                .totalIncome(BigDecimal.ZERO)
+                .balance(BigDecimal.ZERO.subtract(totalExpenses))
+                .transactionCount(count)
+                .averageExpense(averageExpense)
+                .highestExpense(toAmount(summary.get("highest")))
+                .lowestExpense(toAmount(summary.get("lowest")))
+                .build();
+    }
+    
+    private List<AnalyticsResponse.CategoryBreakdown> mapCategoryBreakdown(
+            List<Document> categories, BigDecimal totalAmount) {
+        
+        List<AnalyticsResponse.CategoryBreakdown> breakdown = new ArrayList<>();
+        
+        for (Document category : categories) {
+            breakdown.add(buildCategoryBreakdown(category.getString("_id"), toAmount(category.get("amount")),
+                    toLong(category.get("count")), totalAmount));
+        }
+        
         // Sort by amount descending
         breakdown.sort((a, b) -> b.getAmount().compareTo(a.getAmount()));
         
         return breakdown;
     }
     
-    private List<AnalyticsResponse.MonthlyTrend> calculateMonthlyTrends(List<Expense> expenses) {
-        Map<String, List<Expense>> expensesByMonth = expenses.stream()
-                .collect(Collectors.groupingBy(expense -> 
-                        expense.getDate().format(DateTimeFormatter.ofPattern("yyyy-MM"))));
-        
+    private List<AnalyticsResponse.MonthlyTrend> mapMonthlyTrends(List<Document> months) {
         List<AnalyticsResponse.MonthlyTrend> trends = new ArrayList<>();
         
-        for (Map.Entry<String, List<Expense>> entry : expensesByMonth.entrySet()) {
-            String month = entry.getKey();
-            List<Expense> monthExpenses = entry.getValue();
-            
-            BigDecimal monthAmount = monthExpenses.stream()
-                    .map(Expense::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
+        for (Document month : months) {
             trends.add(AnalyticsResponse.MonthlyTrend.builder()
-                    .month(month)
-                    .amount(monthAmount)
-                    .count((long) monthExpenses.size())
+                    .month(month.getString("_id"))
+                    .amount(toAmount(month.get("amount")))
+                    .count(toLong(month.get("count")))
                     .build());
         }
         
@@ -219,31 +999,217 @@ public class AnalyticsService {
         return trends;
     }
     
-    private Map<String, BigDecimal> calculatePaymentMethodBreakdown(List<Expense> expenses) {
-        return expenses.stream()
-                .collect(Collectors.groupingBy(
-                        expense -> expense.getPaymentMethod().name(),
-                        Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)
-                ));
+    private Map<String, BigDecimal> mapPaymentMethodBreakdown(List<Document> paymentMethods) {
+        // Expenses without a payment method are grouped under null and reported with OTHER
+        Map<String, Long> centsByPaymentMethod = new HashMap<>();
+        for (Document paymentMethod : paymentMethods) {
+            String name = paymentMethod.getString("_id");
+            centsByPaymentMethod.merge(name != null ? name : Expense.PaymentMethod.OTHER.name(),
+                    MoneyUtil.toCents(toBigDecimal(paymentMethod.get("amount"))), MoneyUtil::add);
+        }
+        
+        Map<String, BigDecimal> breakdown = new HashMap<>();
+        centsByPaymentMethod.forEach((paymentMethod, cents) -> breakdown.put(paymentMethod, MoneyUtil.toAmount(cents)));
+        return breakdown;
     }
     
-    private List<AnalyticsResponse.TopExpense> getTopExpenses(List<Expense> expenses, int limit) {
+    private List<AnalyticsResponse.TopExpense> mapTopExpenses(List<Document> expenses) {
         return expenses.stream()
-                .sorted((a, b) -> b.getAmount().compareTo(a.getAmount()))
-                .limit(limit)
                 .map(expense -> AnalyticsResponse.TopExpense.builder()
-                        .id(expense.getId())
-                        .description(expense.getDescription())
-                        .amount(expense.getAmount())
-                        .categoryName(getCategoryName(expense.getCategoryId()))
-                        .date(expense.getDate().toString())
+                        .id(String.valueOf(expense.get("_id")))
+                        .description(expense.getString("description"))
+                        .amount(toAmount(expense.get("amount")))
+                        .categoryId(expense.getString("categoryId"))
+                        .date(toLocalDate(expense.getDate("date")).toString())
                         .build())
                 .collect(Collectors.toList());
     }
     
-    private String getCategoryName(String categoryId) {
-        return categoryRepository.findById(categoryId)
-                .map(Category::getName)
-                .orElse("Unknown");
+    private AnalyticsResponse.CategoryBreakdown buildCategoryBreakdown(
+            String categoryId, BigDecimal categoryAmount, long count, BigDecimal totalAmount) {
+        
+        double percentage = totalAmount.compareTo(BigDecimal.ZERO) > 0
+                ? categoryAmount.multiply(BigDecimal.valueOf(100))
+                        .divide(totalAmount, 2, RoundingMode.HALF_UP)
+                        .doubleValue()
+                : 0.0;
+        
+        return AnalyticsResponse.CategoryBreakdown.builder()
+                .categoryId(categoryId)
+                .amount(categoryAmount)
+                .count(count)
+                .percentage(percentage)
+                .build();
+    }
+    
+    private AnalyticsResponse.Summary emptySummary() {
+        return AnalyticsResponse.Summary.builder()
+                .totalExpenses(BigDecimal.ZERO)
+                .totalIncome(BigDecimal.ZERO)
+                .balance(BigDecimal.ZERO)
+                .transactionCount(0L)
+                .averageExpense(BigDecimal.ZERO)
+                .highestExpense(BigDecimal.ZERO)
+                .lowestExpense(BigDecimal.ZERO)
+                .build();
+    }
+    
+    private Document firstOrNull(Document result, String facet) {
+        List<Document> documents = result.getList(facet, Document.class);
+        return documents.isEmpty() ? null : documents.get(0);
+    }
+    
+    private BigDecimal toBigDecimal(Object value) {
+        if (value instanceof Decimal128 decimal) {
+            return decimal.bigDecimalValue();
+        }
+        return value != null ? new BigDecimal(value.toString()) : BigDecimal.ZERO;
+    }
+    
+    // Every engine returns amounts with two decimals, whatever scale they were stored with
+    private BigDecimal toAmount(Object value) {
+        return MoneyUtil.toAmount(MoneyUtil.toCents(toBigDecimal(value)));
+    }
+    
+    private long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+    
+    private LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+    
+    /**
+     * Fills in category names for the breakdown and top expenses with a single dictionary lookup.
+     */
+    private void resolveCategoryNames(String userId, AnalyticsResponse response) {
+        Set<String> categoryIds = new HashSet<>();
+        response.getCategoryBreakdown().forEach(breakdown -> categoryIds.add(breakdown.getCategoryId()));
+        response.getTopExpenses().forEach(expense -> categoryIds.add(expense.getCategoryId()));
+        
+        Map<String, String> categoryNames = categoryNameResolver.resolveNames(userId, categoryIds);
+        response.getCategoryBreakdown().forEach(breakdown ->
+                breakdown.setCategoryName(categoryNames.get(breakdown.getCategoryId())));
+        response.getTopExpenses().forEach(expense ->
+                expense.setCategoryName(categoryNames.get(expense.getCategoryId())));
+    }
+    
+    // One lookup for the top expenses of all responses whose descriptions were not loaded
+    private void resolveDescriptions(Collection<AnalyticsResponse> responses) {
+        Set<String> ids = responses.stream()
+                .flatMap(response -> response.getTopExpenses().stream())
+                .filter(expense -> expense.getDescription() == null)
+                .map(AnalyticsResponse.TopExpense::getId)
+                .collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return;
+        }
+        
+        Map<String, String> descriptions = new HashMap<>();
+        expenseRepository.findAllById(ids).forEach(expense -> descriptions.put(expense.getId(), expense.getDescription()));
+        responses.forEach(response -> response.getTopExpenses().forEach(expense -> {
+            if (expense.getDescription() == null) {
+                expense.setDescription(descriptions.get(expense.getId()));
+            }
+        }));
+    }
+    
+    /**
+     * Period length for comparisons, with the bucket that aligns periods of different lengths
+     * (e.g. day of month) and the label format periods are requested in.
+     */
+    public enum Granularity {
+        WEEK(7),    // 2025-W23, bucketed by day of week
+        MONTH(31),  // 2025-06, bucketed by day of month
+        QUARTER(3), // 2025-Q2, bucketed by month of quarter
+        YEAR(12);   // 2025, bucketed by month
+        
+        private final int bucketCount;
+        
+        Granularity(int bucketCount) {
+            this.bucketCount = bucketCount;
+        }
+        
+        LocalDate startOf(LocalDate date) {
+            return switch (this) {
+                case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> date.withDayOfMonth(1);
+                case QUARTER -> date.with(IsoFields.DAY_OF_QUARTER, 1);
+                case YEAR -> date.withDayOfYear(1);
+            };
+        }
+        
+        LocalDate endOf(LocalDate start) {
+            return switch (this) {
+                case WEEK -> start.plusWeeks(1).minusDays(1);
+                case MONTH -> start.plusMonths(1).minusDays(1);
+                case QUARTER -> start.plusMonths(3).minusDays(1);
+                case YEAR -> start.plusYears(1).minusDays(1);
+            };
+        }
+        
+        String label(LocalDate start) {
+            return switch (this) {
+                case WEEK -> String.format("%d-W%02d", start.get(IsoFields.WEEK_BASED_YEAR),
+                        start.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+                case MONTH -> YearMonth.from(start).toString();
+                case QUARTER -> start.getYear() + "-Q" + start.get(IsoFields.QUARTER_OF_YEAR);
+                case YEAR -> String.valueOf(start.getYear());
+            };
+        }
+        
+        LocalDate parse(String label) {
+            try {
+                return switch (this) {
+                    case WEEK -> {
+                        String[] parts = label.split("-W");
+                        yield LocalDate.of(Integer.parseInt(parts[0]), 1, 4)
+                                .with(IsoFields.WEEK_OF_WEEK_BASED_YEAR, Long.parseLong(parts[1]))
+                                .with(DayOfWeek.MONDAY);
+                    }
+                    case MONTH -> YearMonth.parse(label).atDay(1);
+                    case QUARTER -> {
+                        String[] parts = label.split("-Q");
+                        yield LocalDate.of(Integer.parseInt(parts[0]), 1, 1)
+                                .with(IsoFields.QUARTER_OF_YEAR, Long.parseLong(parts[1]));
+                    }
+                    case YEAR -> LocalDate.of(Integer.parseInt(label), 1, 1);
+                };
+            } catch (RuntimeException e) {
+                throw new BadRequestException("Invalid " + name().toLowerCase() + " period: " + label);
+            }
+        }
+        
+        int bucketOf(LocalDate start, LocalDate day) {
+            return switch (this) {
+                case WEEK, MONTH -> (int) ChronoUnit.DAYS.between(start, day);
+                case QUARTER, YEAR -> (int) ChronoUnit.MONTHS.between(YearMonth.from(start), YearMonth.from(day));
+            };
+        }
+        
+        List<String> bucketLabels() {
+            List<String> labels = new ArrayList<>();
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                labels.add(switch (this) {
+                    case WEEK -> DayOfWeek.of(bucket + 1).name();
+                    case MONTH -> String.valueOf(bucket + 1);
+                    case QUARTER -> "M" + (bucket + 1);
+                    case YEAR -> Month.of(bucket + 1).name();
+                });
+            }
+            return labels;
+        }
+    }
+    
+    // Rollups may be incomplete until the first backfill has finished, so read the expenses until then
+    private Engine engine() {
+        return engine == Engine.ROLLUPS && !expenseRollupService.isBackfilled() ? Engine.AGGREGATION : engine;
+    }
+    
+    public enum Engine {
+        ROLLUPS,     // pre-aggregated expense_rollups
+        AGGREGATION, // one $facet aggregation over expenses
+        STREAMING,   // projected cursor over expenses feeding AnalyticsAccumulator
+        COLUMNAR     // in-process primitive columns per user, see ColumnarExpenseStore
     }
 }
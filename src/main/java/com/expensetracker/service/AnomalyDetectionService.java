@@ -0,0 +1,269 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.analytics.AnomalyResponse;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.SpendMoments;
+import com.expensetracker.util.MoneyUtil;
+import com.expensetracker.util.RunningStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Flags expenses that are unusually large for their category. Each user's running mean and
+ * variance per category (Welford) live in one spend_moments document, updated in O(1) on every
+ * write, so scoring an expense never reads its history. An expense is anomalous when its z-score
+ * against the category's other expenses reaches the threshold; unusually small amounts are not
+ * flagged.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnomalyDetectionService {
+    
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    private static final int MAX_RESULTS = 500;
+    
+    // Floor for the standard deviation, so near-constant categories (rent) still score sensibly
+    private static final double MIN_RELATIVE_DEVIATION = 0.05;
+    
+    private final MongoTemplate mongoTemplate;
+    private final CategoryNameResolver categoryNameResolver;
+    private final VersionedDocuments versionedDocuments;
+    
+    @Value("${app.anomalies.z-threshold:3.0}")
+    private double zThreshold;
+    
+    @Value("${app.anomalies.min-samples:10}")
+    private long minSamples;
+    
+    /**
+     * Sets the expense's anomaly score and flag against the statistics of its category, excluding
+     * the expense's own previous version. Call before saving; pass {@code null} as previous for a
+     * create.
+     */
+    public void flag(Expense previous, Expense current) {
+        SpendMoments moments = mongoTemplate.findById(current.getUserId(), SpendMoments.class);
+        flag(moments, previous, current);
+    }
+    
+    /**
+     * Sets the anomaly score and flag of several new expenses of one user, reading the user's
+     * statistics once. Expenses are scored against the statistics before any of them is added.
+     */
+    public void flagAll(String userId, List<Expense> expenses) {
+        SpendMoments moments = mongoTemplate.findById(userId, SpendMoments.class);
+        for (Expense expense : expenses) {
+            flag(moments, null, expense);
+        }
+    }
+    
+    /**
+     * Adds newly created expenses of one user with a single statistics update per category.
+     */
+    public void applyCreated(String userId, List<Expense> expenses) {
+        Map<String, List<Long>> centsByCategory = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            centsByCategory.computeIfAbsent(expense.getCategoryId(), id -> new ArrayList<>())
+                    .add(MoneyUtil.toCents(expense.getAmount()));
+        }
+        centsByCategory.forEach((categoryId, amounts) -> update(userId, categoryId, stats -> amounts.forEach(stats::add)));
+    }
+    
+    /**
+     * Moves an expense's amount from its previous category statistics to its current ones. Pass
+     * {@code null} as previous for a create and {@code null} as current for a delete.
+     */
+    public void applyChange(Expense previous, Expense current) {
+        if (previous != null && current != null
+                && previous.getCategoryId().equals(current.getCategoryId())
+                && MoneyUtil.toCents(previous.getAmount()) == MoneyUtil.toCents(current.getAmount())) {
+            return;
+        }
+        
+        if (previous != null) {
+            long cents = MoneyUtil.toCents(previous.getAmount());
+            update(previous.getUserId(), previous.getCategoryId(), stats -> stats.remove(cents));
+        }
+        if (current != null) {
+            long cents = MoneyUtil.toCents(current.getAmount());
+            update(current.getUserId(), current.getCategoryId(), stats -> stats.add(cents));
+        }
+    }
+    
+    public List<AnomalyResponse> getAnomalies(String userId, LocalDate startDate, LocalDate endDate) {
+        Query query = new Query(Criteria.where("userId").is(userId)
+                .and("date").gte(startDate).lte(endDate)
+                .and("anomaly").is(true))
+                .with(Sort.by(Sort.Direction.DESC, "date"))
+                .limit(MAX_RESULTS);
+        List<Expense> expenses = mongoTemplate.find(query, Expense.class);
+        
+        SpendMoments moments = mongoTemplate.findById(userId, SpendMoments.class);
+        Map<String, RunningStats> statsByCategory = moments != null ? moments.getCategories() : Map.of();
+        Map<String, String> categoryNames = categoryNameResolver.resolveNames(userId,
+                expenses.stream().map(Expense::getCategoryId).collect(Collectors.toSet()));
+        
+        return expenses.stream()
+                .map(expense -> {
+                    RunningStats stats = statsByCategory.getOrDefault(expense.getCategoryId(), new RunningStats());
+                    return AnomalyResponse.builder()
+                            .expenseId(expense.getId())
+                            .date(expense.getDate())
+                            .amount(expense.getAmount())
+                            .categoryId(expense.getCategoryId())
+                            .categoryName(categoryNames.get(expense.getCategoryId()))
+                            .description(expense.getDescription())
+                            .merchant(expense.getMerchant())
+                            .anomalyScore(expense.getAnomalyScore())
+                            .categoryMean(MoneyUtil.toAmount(Math.round(stats.getMean())))
+                            .categoryStandardDeviation(MoneyUtil.toAmount(Math.round(stats.getStandardDeviation())))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+    
+    @Async
+    public void rebuildAll() {
+        List<String> userIds = mongoTemplate.findDistinct(new Query(), "userId", Expense.class, String.class);
+        log.info("Rebuilding spend moments for {} users", userIds.size());
+        
+        for (String userId : userIds) {
+            rebuildForUser(userId);
+        }
+        
+        log.info("Spend moments rebuild completed");
+    }
+    
+    /**
+     * Recomputes the user's statistics from their expenses. They are replaced only if no live
+     * update changed them since the rebuild started, and recomputed again otherwise.
+     */
+    public void rebuildForUser(String userId) {
+        versionedDocuments.rebuild(SpendMoments.class, Criteria.where("_id").is(userId), () -> {
+            SpendMoments moments = computeMoments(userId);
+            return moments != null ? Map.of(userId, moments) : Map.of();
+        }, this::computeMoments);
+        log.debug("Rebuilt spend moments for user: {}", userId);
+    }
+    
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (mongoTemplate.estimatedCount(SpendMoments.class) == 0 && mongoTemplate.estimatedCount(Expense.class) > 0) {
+            log.info("Spend moments are empty, backfilling from existing expenses");
+            rebuildAll();
+        }
+    }
+    
+    // The user's statistics from their raw expenses, or null if they have none
+    private SpendMoments computeMoments(String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId)).cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include("amount", "categoryId");
+        
+        Map<String, RunningStats> categories = new HashMap<>();
+        try (Stream<Expense> expenses = mongoTemplate.stream(query, Expense.class)) {
+            expenses.forEach(expense -> categories.computeIfAbsent(expense.getCategoryId(), id -> new RunningStats())
+                    .add(MoneyUtil.toCents(expense.getAmount())));
+        }
+        if (categories.isEmpty()) {
+            return null;
+        }
+        
+        SpendMoments moments = new SpendMoments();
+        moments.setId(userId);
+        moments.setCategories(categories);
+        return moments;
+    }
+    
+    private void flag(SpendMoments moments, Expense previous, Expense current) {
+        RunningStats stats = moments != null ? moments.getCategories().get(current.getCategoryId()) : null;
+        
+        Double score = null;
+        if (stats != null) {
+            stats = new RunningStats(stats);
+            if (previous != null && previous.getCategoryId().equals(current.getCategoryId())) {
+                stats.remove(MoneyUtil.toCents(previous.getAmount()));
+            }
+            if (stats.getCount() >= minSamples) {
+                score = (MoneyUtil.toCents(current.getAmount()) - stats.getMean()) / deviationOf(stats);
+            }
+        }
+        
+        current.setAnomalyScore(score);
+        current.setAnomaly(score != null && score >= zThreshold);
+    }
+    
+    /**
+     * Read-modify-write of one category's statistics, written only if that category's statistics
+     * are unchanged since the read, so writers of different categories never conflict. Every write
+     * still increments the document's version, which is what rebuilds check. Retries back off;
+     * statistics that keep changing under the writer are recomputed from the raw expenses, which
+     * already include this write.
+     */
+    private void update(String userId, String categoryId, Consumer<RunningStats> change) {
+        String field = "categories." + categoryId;
+        
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0 && !VersionedDocuments.backOff(attempt)) {
+                break;
+            }
+            SpendMoments moments = mongoTemplate.findById(userId, SpendMoments.class);
+            if (moments == null) {
+                RunningStats stats = new RunningStats();
+                change.accept(stats);
+                Update insert = new Update().setOnInsert(field, stats).setOnInsert("version", 0L);
+                if (mongoTemplate.upsert(new Query(Criteria.where("_id").is(userId)), insert, SpendMoments.class)
+                        .getUpsertedId() != null) {
+                    return;
+                }
+                continue;
+            }
+            
+            RunningStats current = moments.getCategories().get(categoryId);
+            RunningStats stats = current != null ? new RunningStats(current) : new RunningStats();
+            change.accept(stats);
+            
+            Criteria unchanged = Criteria.where("_id").is(userId);
+            if (current == null) {
+                unchanged.and(field).exists(false);
+            } else {
+                unchanged.and(field + ".count").is(current.getCount())
+                        .and(field + ".mean").is(current.getMean())
+                        .and(field + ".m2").is(current.getM2());
+            }
+            Update update = new Update().set(field, stats).inc("version", 1);
+            if (mongoTemplate.updateFirst(new Query(unchanged), update, SpendMoments.class).getMatchedCount() > 0) {
+                return;
+            }
+        }
+        
+        log.warn("Spend moments of user {} category {} kept changing under {} attempts, recomputing them",
+                userId, categoryId, MAX_ATTEMPTS);
+        versionedDocuments.recompute(SpendMoments.class, userId, this::computeMoments);
+    }
+    
+    private double deviationOf(RunningStats stats) {
+        return Math.max(1, Math.max(stats.getStandardDeviation(), MIN_RELATIVE_DEVIATION * Math.abs(stats.getMean())));
+    }
+}
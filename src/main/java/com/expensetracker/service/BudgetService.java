@@ -5,7 +5,6 @@ import com.expensetracker.dto.budget.BudgetResponse;
 import com.expensetracker.exception.BadRequestException;
 import com.expensetracker.exception.ResourceNotFoundException;
 import com.expensetracker.model.Budget;
-import com.expensetracker.model.Category;
 import com.expensetracker.model.Expense;
 import com.expensetracker.model.User;
 import com.expensetracker.repository.BudgetRepository;
@@ -13,9 +12,9 @@ import com.expensetracker.repository.CategoryRepository;
 import com.expensetracker.repository.ExpenseRepository;
 import com.expensetracker.repository.UserRepository;
 import com.expensetracker.util.EmailUtil;
+import com.expensetracker.util.MoneyUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,6 +23,8 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -36,9 +37,10 @@ public class BudgetService {
     private final ExpenseRepository expenseRepository;
     private final UserRepository userRepository;
     private final EmailUtil emailUtil;
+    private final CategoryNameResolver categoryNameResolver;
+    private final CacheGenerationService cacheGenerationService;
     
     @Transactional
-    @CacheEvict(value = "budgets", key = "#userId")
     public BudgetResponse createBudget(String userId, BudgetRequest request) {
         // Validate dates
         if (request.getEndDate().isBefore(request.getStartDate())) {
@@ -70,6 +72,7 @@ public class BudgetService {
         
         budget = budgetRepository.save(budget);
         log.info("Budget created: {} for user: {}", budget.getId(), userId);
+        cacheGenerationService.bump(userId);
         
         // Check if alert should be sent
         checkAndSendAlert(budget);
@@ -78,21 +81,17 @@ public class BudgetService {
     }
     
     @Transactional(readOnly = true)
-    @Cacheable(value = "budgets", key = "#userId")
+    @Cacheable(value = "budgets", key = "#userId + ':' + @cacheGenerationService.current(#userId)")
     public List<BudgetResponse> getAllBudgets(String userId) {
         List<Budget> budgets = budgetRepository.findByUserId(userId);
-        return budgets.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return mapToResponses(userId, budgets);
     }
     
     @Transactional(readOnly = true)
     public List<BudgetResponse> getActiveBudgets(String userId) {
         LocalDate now = LocalDate.now();
         List<Budget> budgets = budgetRepository.findActiveBudgetsForUser(userId, now);
-        return budgets.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return mapToResponses(userId, budgets);
     }
     
     @Transactional(readOnly = true)
@@ -109,7 +108,6 @@ public class BudgetService {
     }
     
     @Transactional
-    @CacheEvict(value = "budgets", key = "#userId")
     public BudgetResponse updateBudget(String userId, String budgetId, BudgetRequest request) {
         Budget budget = budgetRepository.findById(budgetId)
                 .orElseThrow(() -> new ResourceNotFoundException("Budget", "id", budgetId));
@@ -148,6 +146,7 @@ public class BudgetService {
         
         budget = budgetRepository.save(budget);
         log.info("Budget updated: {} for user: {}", budget.getId(), userId);
+        cacheGenerationService.bump(userId);
         
         // Check if alert should be sent
         checkAndSendAlert(budget);
@@ -156,7 +155,6 @@ public class BudgetService {
     }
     
     @Transactional
-    @CacheEvict(value = "budgets", key = "#userId")
     public void deleteBudget(String userId, String budgetId) {
         Budget budget = budgetRepository.findById(budgetId)
                 .orElseThrow(() -> new ResourceNotFoundException("Budget", "id", budgetId));
@@ -168,6 +166,7 @@ public class BudgetService {
         
         budgetRepository.delete(budget);
         log.info("Budget deleted: {} for user: {}", budgetId, userId);
+        cacheGenerationService.bump(userId);
     }
     
     @Transactional
@@ -177,35 +176,52 @@ public class BudgetService {
         for (Budget budget : budgets) {
             // Update only if budget is for all categories or matches the category
             if (budget.getCategoryId() == null || budget.getCategoryId().equals(categoryId)) {
-                BigDecimal spentAmount = calculateSpentAmount(userId, budget.getCategoryId(), 
-                        budget.getStartDate(), budget.getEndDate());
-                
-                budget.setSpentAmount(spentAmount);
-                budget.setRemainingAmount(budget.getAmount().subtract(spentAmount));
-                
-                budgetRepository.save(budget);
-                
-                // Check if alert should be sent
-                checkAndSendAlert(budget);
+                refreshSpentAmount(userId, budget);
             }
         }
     }
     
-    private BigDecimal calculateSpentAmount(String userId, String categoryId, 
-                                            LocalDate startDate, LocalDate endDate) {
-        List<Expense> expenses;
+    /**
+     * Recomputes, once each, every budget that at least one of the given expenses falls into.
+     */
+    @Transactional
+    public void updateBudgetSpentAmounts(String userId, List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return;
+        }
         
-        if (categoryId != null) {
-            expenses = expenseRepository.findExpensesByUserCategoryAndDateRange(
-                    userId, categoryId, startDate, endDate);
-        } else {
-            expenses = expenseRepository.findExpensesByUserAndDateRange(
-                    userId, startDate, endDate);
+        LocalDate firstDate = expenses.stream().map(Expense::getDate).min(LocalDate::compareTo).orElseThrow();
+        LocalDate lastDate = expenses.stream().map(Expense::getDate).max(LocalDate::compareTo).orElseThrow();
+        
+        for (Budget budget : budgetRepository.findBudgetsOverlapping(userId, firstDate, lastDate)) {
+            boolean affected = expenses.stream().anyMatch(expense ->
+                    (budget.getCategoryId() == null || budget.getCategoryId().equals(expense.getCategoryId()))
+                            && !expense.getDate().isBefore(budget.getStartDate())
+                            && !expense.getDate().isAfter(budget.getEndDate()));
+            if (affected) {
+                refreshSpentAmount(userId, budget);
+            }
         }
+    }
+    
+    private void refreshSpentAmount(String userId, Budget budget) {
+        BigDecimal spentAmount = calculateSpentAmount(userId, budget.getCategoryId(), 
+                budget.getStartDate(), budget.getEndDate());
+        
+        budget.setSpentAmount(spentAmount);
+        budget.setRemainingAmount(budget.getAmount().subtract(spentAmount));
+        
+        budgetRepository.save(budget);
         
-        return expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Check if alert should be sent
+        checkAndSendAlert(budget);
+    }
+    
+    private BigDecimal calculateSpentAmount(String userId, String categoryId, 
+                                            LocalDate startDate, LocalDate endDate) {
+        // Summed from the expenses themselves: the in-memory spend index may lag writes made on other instances
+        BigDecimal total = expenseRepository.sumAmount(userId, categoryId, startDate, endDate);
+        return MoneyUtil.toAmount(MoneyUtil.toCents(total));
     }
     
     private void checkAndSendAlert(Budget budget) {
@@ -222,7 +238,7 @@ public class BudgetService {
             User user = userRepository.findById(budget.getUserId()).orElse(null);
             if (user != null) {
                 String categoryName = budget.getCategoryId() != null 
-                        ? getCategoryName(budget.getCategoryId())
+                        ? categoryNameResolver.getName(budget.getUserId(), budget.getCategoryId())
                         : "Overall";
                 
                 emailUtil.sendBudgetAlertEmail(
@@ -240,17 +256,20 @@ public class BudgetService {
         }
     }
     
-    private String getCategoryName(String categoryId) {
-        return categoryRepository.findById(categoryId)
-                .map(Category::getName)
-                .orElse("Unknown");
+    private List<BudgetResponse> mapToResponses(String userId, List<Budget> budgets) {
+        Map<String, String> categoryNames = categoryNameResolver.resolveNames(userId,
+                budgets.stream().map(Budget::getCategoryId).filter(Objects::nonNull).collect(Collectors.toSet()));
+        
+        return budgets.stream()
+                .map(budget -> mapToResponse(budget, categoryNames.get(budget.getCategoryId())))
+                .collect(Collectors.toList());
     }
     
     private BudgetResponse mapToResponse(Budget budget) {
-        String categoryName = budget.getCategoryId() != null 
-                ? getCategoryName(budget.getCategoryId())
-                : null;
-        
+        return mapToResponse(budget, categoryNameResolver.getName(budget.getUserId(), budget.getCategoryId()));
+    }
+    
+    private BudgetResponse mapToResponse(Budget budget, String categoryName) {
         int percentageUsed = budget.getAmount().compareTo(BigDecimal.ZERO) > 0
                 ? budget.getSpentAmount()
                         .multiply(BigDecimal.valueOf(100))
@@ -0,0 +1,32 @@
+package com.expensetracker.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-user cache generation kept in Redis. Every user-scoped {@code @Cacheable} key includes the
+ * current generation (via {@code @cacheGenerationService.current(#userId)} in SpEL), so bumping it
+ * after an expense, budget or category write invalidates all of the user's cached entries in one
+ * INCR. Entries under old generations are never read again and age out with the cache TTL.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CacheGenerationService {
+    
+    private static final String KEY_PREFIX = "cache-generation:";
+    
+    private final StringRedisTemplate stringRedisTemplate;
+    
+    public long current(String userId) {
+        String generation = stringRedisTemplate.opsForValue().get(KEY_PREFIX + userId);
+        return generation != null ? Long.parseLong(generation) : 0L;
+    }
+    
+    public void bump(String userId) {
+        Long generation = stringRedisTemplate.opsForValue().increment(KEY_PREFIX + userId);
+        log.debug("Cache generation for user {} is now {}", userId, generation);
+    }
+}
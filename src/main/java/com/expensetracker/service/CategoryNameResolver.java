@@ -0,0 +1,130 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Category;
+import com.expensetracker.repository.CategoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves category ids to display names through a per-user in-process dictionary. Ids missing
+ * from the dictionary are loaded with a single {@code findAllById}, so mapping a whole page costs
+ * at most one query. Dictionaries are bounded (least recently used user is dropped), expire after
+ * a TTL so other instances pick up renames, and are invalidated locally by {@link CategoryService}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CategoryNameResolver {
+    
+    public static final String UNKNOWN = "Unknown";
+    
+    private final CategoryRepository categoryRepository;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.category-names.max-users:10000}")
+    private int maxUsers;
+    
+    @Value("${app.category-names.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    private Map<String, Dictionary> dictionaries;
+    private Counter hits;
+    private Counter misses;
+    
+    @PostConstruct
+    void init() {
+        dictionaries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Dictionary> eldest) {
+                return size() > maxUsers;
+            }
+        });
+        hits = meterRegistry.counter("category.names.lookups", "result", "hit");
+        misses = meterRegistry.counter("category.names.lookups", "result", "miss");
+        meterRegistry.gauge("category.names.users", dictionaries, Map::size);
+    }
+    
+    public String getName(String userId, String categoryId) {
+        if (categoryId == null) {
+            return null;
+        }
+        return resolveNames(userId, Set.of(categoryId)).get(categoryId);
+    }
+    
+    /**
+     * Returns a name for every given id (ids that no longer exist map to {@value #UNKNOWN}).
+     */
+    public Map<String, String> resolveNames(String userId, Collection<String> categoryIds) {
+        Dictionary dictionary = dictionaryFor(userId);
+        
+        Map<String, String> names = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String categoryId : categoryIds) {
+            if (categoryId == null) {
+                continue;
+            }
+            String name = dictionary.names.get(categoryId);
+            if (name != null) {
+                names.put(categoryId, name);
+            } else {
+                missing.add(categoryId);
+            }
+        }
+        
+        hits.increment(names.size());
+        if (missing.isEmpty()) {
+            return names;
+        }
+        misses.increment(missing.size());
+        
+        for (Category category : categoryRepository.findAllById(missing)) {
+            dictionary.names.put(category.getId(), category.getName());
+            names.put(category.getId(), category.getName());
+            missing.remove(category.getId());
+        }
+        
+        // Deleted categories are not cached, so a re-created id is picked up on the next lookup
+        missing.forEach(categoryId -> names.put(categoryId, UNKNOWN));
+        return names;
+    }
+    
+    public void invalidate(String userId) {
+        dictionaries.remove(userId);
+        log.debug("Category name dictionary invalidated for user: {}", userId);
+    }
+    
+    private Dictionary dictionaryFor(String userId) {
+        long now = System.currentTimeMillis();
+        synchronized (dictionaries) {
+            Dictionary dictionary = dictionaries.get(userId);
+            if (dictionary == null || now - dictionary.createdAt > ttlSeconds * 1000) {
+                dictionary = new Dictionary(now);
+                dictionaries.put(userId, dictionary);
+            }
+            return dictionary;
+        }
+    }
+    
+    private static class Dictionary {
+        private final long createdAt;
+        private final Map<String, String> names = new ConcurrentHashMap<>();
+        
+        Dictionary(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -8,7 +8,6 @@ import com.expensetracker.model.Category;
 import com.expensetracker.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,6 +22,8 @@ import java.util.stream.Collectors;
 public class CategoryService {
     
     private final CategoryRepository categoryRepository;
+    private final CategoryNameResolver categoryNameResolver;
+    private final CacheGenerationService cacheGenerationService;
     
     @Transactional
     public void createDefaultCategories(String userId) {
@@ -54,10 +55,10 @@ public class CategoryService {
         }
         
         log.info("Default categories created for user: {}", userId);
+        cacheGenerationService.bump(userId);
     }
     
     @Transactional
-    @CacheEvict(value = "categories", key = "#userId")
     public CategoryResponse createCategory(String userId, CategoryRequest request) {
         // Check if category with same name already exists for user
         if (categoryRepository.existsByUserIdAndName(userId, request.getName())) {
@@ -75,12 +76,14 @@ public class CategoryService {
         
         category = categoryRepository.save(category);
         log.info("Category created: {} for user: {}", category.getName(), userId);
+        categoryNameResolver.invalidate(userId);
+        cacheGenerationService.bump(userId);
         
         return mapToResponse(category);
     }
     
     @Transactional(readOnly = true)
-    @Cacheable(value = "categories", key = "#userId")
+    @Cacheable(value = "categories", key = "#userId + ':' + @cacheGenerationService.current(#userId)")
     public List<CategoryResponse> getAllCategories(String userId) {
         List<Category> categories = categoryRepository.findByUserIdOrDefaultCategoryTrue(userId);
         return categories.stream()
@@ -102,7 +105,6 @@ public class CategoryService {
     }
     
     @Transactional
-    @CacheEvict(value = "categories", key = "#userId")
     public CategoryResponse updateCategory(String userId, String categoryId, CategoryRequest request) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "id", categoryId));
@@ -133,12 +135,13 @@ public class CategoryService {
         
         category = categoryRepository.save(category);
         log.info("Category updated: {} for user: {}", category.getName(), userId);
+        categoryNameResolver.invalidate(userId);
+        cacheGenerationService.bump(userId);
         
         return mapToResponse(category);
     }
     
     @Transactional
-    @CacheEvict(value = "categories", key = "#userId")
     public void deleteCategory(String userId, String categoryId) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "id", categoryId));
@@ -155,6 +158,8 @@ public class CategoryService {
         
         categoryRepository.delete(category);
         log.info("Category deleted: {} for user: {}", category.getName(), userId);
+        categoryNameResolver.invalidate(userId);
+        cacheGenerationService.bump(userId);
     }
     
     private CategoryResponse mapToResponse(Category category) {
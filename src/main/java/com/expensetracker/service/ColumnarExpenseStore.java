@@ -0,0 +1,235 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-process {@link ExpenseColumns} per active user, used by the COLUMNAR analytics engine. A user's
+ * columns are loaded lazily on first use, kept in sync by {@link ExpenseService} writes, reloaded
+ * after a TTL so writes made on other instances are picked up, and evicted least-recently-used
+ * first once the estimated total weight exceeds the memory budget.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ColumnarExpenseStore {
+    
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.analytics.columnar.memory-budget-mb:256}")
+    private long memoryBudgetMb;
+    
+    @Value("${app.analytics.columnar.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    // Access-ordered, so iteration starts at the least recently used user
+    private final Map<String, Resident> columnsByUser = new LinkedHashMap<>(16, 0.75f, true);
+    
+    // The load running for each user; concurrent readers wait for it instead of loading again
+    private final Map<String, Load> loading = new ConcurrentHashMap<>();
+    
+    private Counter loads;
+    private Counter evictions;
+    
+    @PostConstruct
+    void init() {
+        loads = meterRegistry.counter("columnar.store.loads");
+        evictions = meterRegistry.counter("columnar.store.evictions");
+        meterRegistry.gauge("columnar.store.users", this, store -> store.userCount());
+        meterRegistry.gauge("columnar.store.bytes", this, store -> store.totalWeightBytes());
+    }
+    
+    /**
+     * The user's columns, loading them from Mongo if they are not resident or older than the TTL.
+     * Concurrent readers share one load; a reader whose shared load missed a write loads again.
+     */
+    public ExpenseColumns getColumns(String userId) {
+        while (true) {
+            synchronized (columnsByUser) {
+                Resident resident = columnsByUser.get(userId);
+                if (isFresh(resident)) {
+                    return resident.columns;
+                }
+            }
+            
+            Load load = new Load();
+            Load running = loading.putIfAbsent(userId, load);
+            if (running != null) {
+                ExpenseColumns columns = running.await();
+                if (columns != null) {
+                    return columns;
+                }
+                continue;
+            }
+            return load(userId, load);
+        }
+    }
+    
+    /**
+     * Mirrors an expense write into the user's columns if they are resident. Pass {@code null} as
+     * previous for a create and {@code null} as current for a delete.
+     */
+    public void applyChange(Expense previous, Expense current) {
+        String userId = current != null ? current.getUserId() : previous.getUserId();
+        markDirty(userId);
+        
+        Resident resident;
+        synchronized (columnsByUser) {
+            resident = columnsByUser.get(userId);
+        }
+        if (resident == null) {
+            return;
+        }
+        
+        if (current != null) {
+            resident.columns.upsert(current);
+        } else {
+            resident.columns.remove(previous.getId());
+        }
+    }
+    
+    /**
+     * Mirrors newly created expenses of one user into their columns if they are resident, with a
+     * single lookup and lock.
+     */
+    public void applyCreated(String userId, List<Expense> expenses) {
+        markDirty(userId);
+        
+        Resident resident;
+        synchronized (columnsByUser) {
+            resident = columnsByUser.get(userId);
+        }
+        if (resident != null) {
+            resident.columns.upsertAll(expenses);
+        }
+    }
+    
+    public void invalidate(String userId) {
+        synchronized (columnsByUser) {
+            columnsByUser.remove(userId);
+        }
+    }
+    
+    private boolean isFresh(Resident resident) {
+        return resident != null && System.currentTimeMillis() - resident.loadedAt <= ttlSeconds * 1000;
+    }
+    
+    // A write during a load may be missing from what it read, so that load is not kept
+    private void markDirty(String userId) {
+        Load load = loading.get(userId);
+        if (load != null) {
+            load.dirty = true;
+        }
+    }
+    
+    private ExpenseColumns load(String userId, Load load) {
+        try {
+            long loadedAt = System.currentTimeMillis();
+            ExpenseColumns columns = read(userId);
+            
+            // Under the lock applyChange reads residents with, so a write either marks this load
+            // dirty or finds the installed columns and patches them
+            synchronized (columnsByUser) {
+                loading.remove(userId, load);
+                Resident existing = columnsByUser.get(userId);
+                if (!load.dirty && !(isFresh(existing) && existing.loadedAt >= loadedAt)) {
+                    columnsByUser.put(userId, new Resident(columns, loadedAt));
+                    evictToBudget();
+                }
+            }
+            load.result.complete(columns);
+            return columns;
+        } catch (RuntimeException e) {
+            loading.remove(userId, load);
+            load.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    private ExpenseColumns read(String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId)).cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include("date", "amount", "categoryId", "paymentMethod", "merchant");
+        
+        ExpenseColumns columns = new ExpenseColumns();
+        try (Stream<Expense> expenses = mongoTemplate.stream(query, Expense.class)) {
+            expenses.forEach(columns::upsert);
+        }
+        
+        loads.increment();
+        log.debug("Loaded {} expenses into columnar store for user: {}", columns.size(), userId);
+        return columns;
+    }
+    
+    private void evictToBudget() {
+        long budgetBytes = memoryBudgetMb * 1024 * 1024;
+        long totalBytes = totalWeightBytes();
+        
+        Iterator<Map.Entry<String, Resident>> iterator = columnsByUser.entrySet().iterator();
+        while (totalBytes > budgetBytes && columnsByUser.size() > 1 && iterator.hasNext()) {
+            Map.Entry<String, Resident> eldest = iterator.next();
+            totalBytes -= eldest.getValue().columns.weightBytes();
+            iterator.remove();
+            evictions.increment();
+            log.debug("Evicted columnar store for user: {}", eldest.getKey());
+        }
+    }
+    
+    private int userCount() {
+        synchronized (columnsByUser) {
+            return columnsByUser.size();
+        }
+    }
+    
+    private long totalWeightBytes() {
+        synchronized (columnsByUser) {
+            long total = 0;
+            for (Resident resident : columnsByUser.values()) {
+                total += resident.columns.weightBytes();
+            }
+            return total;
+        }
+    }
+    
+    private static class Load {
+        private final CompletableFuture<ExpenseColumns> result = new CompletableFuture<>();
+        private volatile boolean dirty;
+        
+        // The loaded columns, or null if the load failed or a write may be missing from them
+        ExpenseColumns await() {
+            try {
+                ExpenseColumns columns = result.join();
+                return dirty ? null : columns;
+            } catch (CompletionException e) {
+                return null;
+            }
+        }
+    }
+    
+    @AllArgsConstructor
+    private static class Resident {
+        private final ExpenseColumns columns;
+        private final long loadedAt;
+    }
+}
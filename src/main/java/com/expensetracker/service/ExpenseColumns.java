@@ -0,0 +1,252 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.util.AggregationKernels;
+import com.expensetracker.util.MoneyUtil;
+import com.expensetracker.util.TopK;
+import lombok.Getter;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One user's expenses as struct-of-arrays: epoch day, cents, category index, payment method
+ * ordinal and merchant index per row, with category ids and merchants interned in per-user
+ * dictionaries. Rows are unordered; a delete moves the last row into the freed slot. All access
+ * is synchronized on the instance, so scans see a consistent snapshot.
+ */
+public class ExpenseColumns {
+    
+    // Rough per-row heap cost of the id string and its id -> row index entry
+    private static final int ID_BYTES = 120;
+    private static final int DICTIONARY_ENTRY_BYTES = 96;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Expense.PaymentMethod[] PAYMENT_METHODS = Expense.PaymentMethod.values();
+    
+    private int size;
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private long[] cents = new long[INITIAL_CAPACITY];
+    private short[] categoryIndexes = new short[INITIAL_CAPACITY];
+    private byte[] paymentMethods = new byte[INITIAL_CAPACITY];
+    private int[] merchantIndexes = new int[INITIAL_CAPACITY];
+    private String[] ids = new String[INITIAL_CAPACITY];
+    
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private final List<String> categoryIds = new ArrayList<>();
+    private final Map<String, Short> categoryIndexById = new HashMap<>();
+    private final List<String> merchants = new ArrayList<>();
+    private final Map<String, Integer> merchantIndexByName = new HashMap<>();
+    
+    public synchronized int size() {
+        return size;
+    }
+    
+    /**
+     * Estimated retained heap size in bytes, used for the store's memory budget.
+     */
+    public synchronized long weightBytes() {
+        long rowBytes = (long) epochDays.length * (Integer.BYTES + Long.BYTES + Short.BYTES + Byte.BYTES + Integer.BYTES);
+        return rowBytes + (long) size * ID_BYTES
+                + (long) (categoryIds.size() + merchants.size()) * DICTIONARY_ENTRY_BYTES;
+    }
+    
+    public synchronized void upsert(Expense expense) {
+        Integer row = rowsById.get(expense.getId());
+        if (row == null) {
+            ensureCapacity(size + 1);
+            row = size++;
+            ids[row] = expense.getId();
+            rowsById.put(expense.getId(), row);
+        }
+        
+        epochDays[row] = (int) expense.getDate().toEpochDay();
+        cents[row] = MoneyUtil.toCents(expense.getAmount());
+        categoryIndexes[row] = categoryIndex(expense.getCategoryId());
+        paymentMethods[row] = (byte) (expense.getPaymentMethod() != null
+                ? expense.getPaymentMethod()
+                : Expense.PaymentMethod.OTHER).ordinal();
+        merchantIndexes[row] = merchantIndex(expense.getMerchant());
+    }
+    
+    /**
+     * Upserts several expenses under one lock, growing the columns at most once.
+     */
+    public synchronized void upsertAll(List<Expense> expenses) {
+        ensureCapacity(size + expenses.size());
+        expenses.forEach(this::upsert);
+    }
+    
+    public synchronized void remove(String expenseId) {
+        Integer row = rowsById.remove(expenseId);
+        if (row == null) {
+            return;
+        }
+        
+        int last = --size;
+        if (row != last) {
+            epochDays[row] = epochDays[last];
+            cents[row] = cents[last];
+            categoryIndexes[row] = categoryIndexes[last];
+            paymentMethods[row] = paymentMethods[last];
+            merchantIndexes[row] = merchantIndexes[last];
+            ids[row] = ids[last];
+            rowsById.put(ids[row], row);
+        }
+        ids[last] = null;
+    }
+    
+    /**
+     * Aggregates rows whose day falls in {@code [startDate, endDate]}, optionally restricted to one
+     * category, with the {@link AggregationKernels} over the primitive columns; top rows are
+     * selected in a separate pass only when requested.
+     */
+    public synchronized Aggregate aggregate(LocalDate startDate, LocalDate endDate, String categoryId, int topLimit) {
+        Aggregate aggregate = new Aggregate(startDate, endDate, categoryIds.size());
+        aggregate.categoryIds = categoryIds.toArray(new String[0]);
+        
+        int categoryFilter = -1;
+        if (categoryId != null) {
+            Short index = categoryIndexById.get(categoryId);
+            if (index == null) {
+                return aggregate;
+            }
+            categoryFilter = index;
+        }
+        
+        int startDay = (int) startDate.toEpochDay();
+        int endDay = (int) endDate.toEpochDay();
+        AggregationKernels kernels = AggregationKernels.get();
+        
+        long[] summary = new long[4];
+        kernels.summarize(epochDays, cents, categoryIndexes, size, startDay, endDay, categoryFilter, summary);
+        aggregate.count = summary[AggregationKernels.COUNT];
+        if (aggregate.count == 0) {
+            return aggregate;
+        }
+        aggregate.totalCents = summary[AggregationKernels.SUM];
+        aggregate.lowestCents = summary[AggregationKernels.MIN];
+        aggregate.highestCents = summary[AggregationKernels.MAX];
+        
+        kernels.sumByCategory(epochDays, cents, categoryIndexes, size, startDay, endDay, categoryFilter,
+                aggregate.categoryCounts, aggregate.categoryCents);
+        kernels.sumByBucket(epochDays, cents, categoryIndexes, size, startDay, endDay, categoryFilter,
+                aggregate.monthStartDays, aggregate.monthCounts, aggregate.monthCents);
+        kernels.sumByKey(epochDays, cents, categoryIndexes, paymentMethods, size, startDay, endDay, categoryFilter,
+                aggregate.paymentMethodCents);
+        
+        if (topLimit > 0) {
+            TopK<Integer> topRows = new TopK<>(topLimit, Comparator.<Integer>comparingLong(row -> cents[row])
+                    .thenComparingInt(row -> epochDays[row])
+                    .thenComparing(row -> ids[row]));
+            for (int row = 0; row < size; row++) {
+                int day = epochDays[row];
+                if (day >= startDay && day <= endDay && (categoryFilter < 0 || categoryIndexes[row] == categoryFilter)) {
+                    topRows.offer(row);
+                }
+            }
+            for (int row : topRows.toSortedList()) {
+                aggregate.topExpenses.add(new Aggregate.Row(ids[row], LocalDate.ofEpochDay(epochDays[row]),
+                        cents[row], categoryIds.get(categoryIndexes[row])));
+            }
+        }
+        
+        return aggregate;
+    }
+    
+    private short categoryIndex(String categoryId) {
+        Short index = categoryIndexById.get(categoryId);
+        if (index == null) {
+            if (categoryIds.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many categories for columnar store");
+            }
+            index = (short) categoryIds.size();
+            categoryIds.add(categoryId);
+            categoryIndexById.put(categoryId, index);
+        }
+        return index;
+    }
+    
+    private int merchantIndex(String merchant) {
+        if (merchant == null) {
+            return -1;
+        }
+        return merchantIndexByName.computeIfAbsent(merchant, name -> {
+            merchants.add(name);
+            return merchants.size() - 1;
+        });
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity <= epochDays.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, epochDays.length * 2);
+        epochDays = Arrays.copyOf(epochDays, newCapacity);
+        cents = Arrays.copyOf(cents, newCapacity);
+        categoryIndexes = Arrays.copyOf(categoryIndexes, newCapacity);
+        paymentMethods = Arrays.copyOf(paymentMethods, newCapacity);
+        merchantIndexes = Arrays.copyOf(merchantIndexes, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+    }
+    
+    /**
+     * Result of {@link #aggregate}: totals indexed by category index, month offset from the start
+     * of the range and payment method ordinal.
+     */
+    @Getter
+    public static class Aggregate {
+        
+        private final YearMonth firstMonth;
+        private final int[] monthStartDays;
+        
+        private long count;
+        private long totalCents;
+        private long highestCents = Long.MIN_VALUE;
+        private long lowestCents = Long.MAX_VALUE;
+        
+        private String[] categoryIds = new String[0];
+        private final long[] categoryCounts;
+        private final long[] categoryCents;
+        private final long[] monthCounts;
+        private final long[] monthCents;
+        private final long[] paymentMethodCents = new long[PAYMENT_METHODS.length];
+        private final List<Row> topExpenses = new ArrayList<>();
+        
+        Aggregate(LocalDate startDate, LocalDate endDate, int categoryCount) {
+            this.firstMonth = YearMonth.from(startDate);
+            int months = Math.max(0, (int) firstMonth.until(YearMonth.from(endDate), ChronoUnit.MONTHS) + 1);
+            this.monthStartDays = new int[months];
+            for (int i = 0; i < months; i++) {
+                monthStartDays[i] = (int) firstMonth.plusMonths(i).atDay(1).toEpochDay();
+            }
+            this.categoryCounts = new long[categoryCount];
+            this.categoryCents = new long[categoryCount];
+            this.monthCounts = new long[months];
+            this.monthCents = new long[months];
+        }
+        
+        public YearMonth monthAt(int offset) {
+            return firstMonth.plusMonths(offset);
+        }
+        
+        public Expense.PaymentMethod paymentMethodAt(int ordinal) {
+            return PAYMENT_METHODS[ordinal];
+        }
+        
+        @Value
+        public static class Row {
+            String id;
+            LocalDate date;
+            long cents;
+            String categoryId;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.expensetracker.service;
+
+import com.expensetracker.exception.BadRequestException;
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.CategoryRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a user's expenses as CSV or newline-delimited JSON straight from a Mongo cursor to the
+ * response. Rows are encoded into buffers reused for the whole export, so heap use does not grow
+ * with the number of expenses; category names come from a dictionary loaded once per request.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExpenseExportService {
+    
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String[] CSV_COLUMNS = {"id", "date", "amount", "currency", "category", "description",
+            "merchant", "paymentMethod", "tags", "notes", "recurring"};
+    
+    private final MongoTemplate mongoTemplate;
+    private final CategoryRepository categoryRepository;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * The export as a response body, ordered by date. Arguments are checked and the category
+     * dictionary is loaded before the body is returned, so those errors still get a normal error
+     * response; expenses are only read once the body is written.
+     */
+    public StreamingResponseBody export(String userId, Format format, LocalDate startDate, LocalDate endDate,
+                                        boolean gzip) {
+        if (startDate != null && endDate != null && endDate.isBefore(startDate)) {
+            throw new BadRequestException("endDate must not be before startDate");
+        }
+        
+        Map<String, String> categoryNames = new HashMap<>();
+        categoryRepository.findByUserIdOrDefaultCategoryTrue(userId)
+                .forEach(category -> categoryNames.put(category.getId(), category.getName()));
+        
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (startDate != null || endDate != null) {
+            criteria = criteria.and("date");
+            if (startDate != null) {
+                criteria = criteria.gte(startDate);
+            }
+            if (endDate != null) {
+                criteria = criteria.lte(endDate);
+            }
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "date")) // served by the user/date index, no in-memory sort
+                .cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().exclude("userId", "receiptUrls", "anomalyScore", "anomaly", "createdAt", "updatedAt");
+        
+        return outputStream -> {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, WRITE_BUFFER_SIZE) : outputStream;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            
+            long rows;
+            try (Stream<Expense> expenses = mongoTemplate.stream(query, Expense.class)) {
+                rows = format == Format.CSV
+                        ? writeCsv(expenses.iterator(), categoryNames, writer)
+                        : writeNdjson(expenses.iterator(), categoryNames, writer);
+            }
+            
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+            log.info("Exported {} expenses as {} for user: {}", rows, format, userId);
+        };
+    }
+    
+    private long writeCsv(Iterator<Expense> expenses, Map<String, String> categoryNames, Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        char[] chars = new char[256];
+        
+        line.append(String.join(",", CSV_COLUMNS)).append('\n');
+        chars = write(line, chars, writer);
+        
+        long rows = 0;
+        while (expenses.hasNext()) {
+            Expense expense = expenses.next();
+            line.setLength(0);
+            appendCsv(line, expense.getId()).append(',');
+            line.append(expense.getDate()).append(',');
+            line.append(expense.getAmount().toPlainString()).append(',');
+            appendCsv(line, expense.getCurrency()).append(',');
+            appendCsv(line, categoryName(categoryNames, expense.getCategoryId())).append(',');
+            appendCsv(line, expense.getDescription()).append(',');
+            appendCsv(line, expense.getMerchant()).append(',');
+            line.append(expense.getPaymentMethod() != null ? expense.getPaymentMethod().name() : "").append(',');
+            appendCsv(line, expense.getTags() != null ? String.join(";", expense.getTags()) : null).append(',');
+            appendCsv(line, expense.getNotes()).append(',');
+            line.append(expense.isRecurring()).append('\n');
+            
+            chars = write(line, chars, writer);
+            rows++;
+        }
+        return rows;
+    }
+    
+    private long writeNdjson(Iterator<Expense> expenses, Map<String, String> categoryNames, Writer writer) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        
+        long rows = 0;
+        while (expenses.hasNext()) {
+            Expense expense = expenses.next();
+            generator.writeStartObject();
+            generator.writeStringField("id", expense.getId());
+            generator.writeStringField("date", expense.getDate().toString());
+            generator.writeNumberField("amount", expense.getAmount());
+            generator.writeStringField("currency", expense.getCurrency());
+            generator.writeStringField("categoryId", expense.getCategoryId());
+            generator.writeStringField("category", categoryName(categoryNames, expense.getCategoryId()));
+            generator.writeStringField("description", expense.getDescription());
+            generator.writeStringField("merchant", expense.getMerchant());
+            generator.writeStringField("paymentMethod",
+                    expense.getPaymentMethod() != null ? expense.getPaymentMethod().name() : null);
+            generator.writeArrayFieldStart("tags");
+            if (expense.getTags() != null) {
+                for (String tag : expense.getTags()) {
+                    generator.writeString(tag);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeStringField("notes", expense.getNotes());
+            generator.writeBooleanField("recurring", expense.isRecurring());
+            generator.writeEndObject();
+            rows++;
+        }
+        if (rows > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return rows;
+    }
+    
+    // Copies the line into the reused char buffer (grown when a row is longer) and writes it
+    private static char[] write(StringBuilder line, char[] chars, Writer writer) throws IOException {
+        char[] buffer = chars.length >= line.length() ? chars : new char[Math.max(line.length(), chars.length * 2)];
+        line.getChars(0, line.length(), buffer, 0);
+        writer.write(buffer, 0, line.length());
+        return buffer;
+    }
+    
+    /**
+     * Appends a field, quoted when needed. Text a spreadsheet would evaluate as a formula (starting
+     * with '=', '+', '-', '@', a tab or a carriage return) is prefixed with a quote so it stays text.
+     */
+    static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            return line.append(value);
+        }
+        
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+    
+    private static String categoryName(Map<String, String> categoryNames, String categoryId) {
+        return categoryNames.getOrDefault(categoryId, CategoryNameResolver.UNKNOWN);
+    }
+    
+    @Getter
+    public enum Format {
+        CSV("csv", MediaType.parseMediaType("text/csv")),
+        NDJSON("ndjson", MediaType.parseMediaType("application/x-ndjson"));
+        
+        private final String extension;
+        private final MediaType mediaType;
+        
+        Format(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+        
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.extension.equals(value.toLowerCase(Locale.ROOT))) {
+                    return format;
+                }
+            }
+            throw new BadRequestException("format must be csv or ndjson");
+        }
+    }
+}
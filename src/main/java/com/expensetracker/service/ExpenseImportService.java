@@ -0,0 +1,544 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.expense.ExpenseBatchResponse;
+import com.expensetracker.dto.expense.ExpenseImportRequest;
+import com.expensetracker.dto.expense.ExpenseRequest;
+import com.expensetracker.dto.expense.ImportJobResponse;
+import com.expensetracker.exception.BadRequestException;
+import com.expensetracker.exception.RateLimitExceededException;
+import com.expensetracker.exception.ResourceNotFoundException;
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.CategoryRepository;
+import com.expensetracker.util.CsvReader;
+import com.expensetracker.util.OfxReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Imports bank statements (CSV or OFX) streamed as a request body. An import is created first,
+ * so the client has the job id before it starts the upload, and the statement is then uploaded
+ * to that job. The request thread parses the body a record at a time and hands bounded batches
+ * to a writer on the dedicated import executor through a small blocking queue: when the writer
+ * falls behind, parsing (and so the upload) waits. Memory is bounded by the queue, whatever the
+ * size of the file. Progress is kept in an in-memory job per import, polled through {@link #getJob}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExpenseImportService {
+    
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int MAX_DESCRIPTION_LENGTH = 200;
+    private static final int MAX_MERCHANT_LENGTH = 100;
+    private static final int MAX_NOTES_LENGTH = 500;
+    private static final Set<String> OFX_ELEMENTS = Set.of("DTPOSTED", "TRNAMT", "NAME", "MEMO");
+    
+    private final ExpenseService expenseService;
+    private final CategoryRepository categoryRepository;
+    private final Executor importExecutor;
+    
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${app.import.max-queued-batches:4}")
+    private int maxQueuedBatches;
+    
+    @Value("${app.import.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+    
+    @Value("${app.import.upload-timeout-minutes:10}")
+    private long uploadTimeoutMinutes;
+    
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    
+    /**
+     * Checks the options and creates a job waiting for its statement, see {@link #upload}.
+     */
+    public ImportJobResponse createImport(String userId, ExpenseImportRequest options) {
+        categoryRepository.findById(options.getCategoryId())
+                .orElseThrow(() -> new ResourceNotFoundException("Category", "id", options.getCategoryId()));
+        if (options.getDecimalSeparator() != '.' && options.getDecimalSeparator() != ',') {
+            throw new BadRequestException("decimalSeparator must be '.' or ','");
+        }
+        
+        DateTimeFormatter dateFormat;
+        try {
+            dateFormat = options.getFormat() == ExpenseImportRequest.Format.OFX
+                    ? DateTimeFormatter.BASIC_ISO_DATE
+                    : DateTimeFormatter.ofPattern(options.getDateFormat());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid date format: " + options.getDateFormat());
+        }
+        
+        Job job = new Job(UUID.randomUUID().toString(), userId, options, dateFormat);
+        register(job);
+        log.info("Import {} created for user: {}", job.id, userId);
+        return job.toResponse();
+    }
+    
+    /**
+     * Reads the job's whole statement from {@code body} and returns once it has been parsed;
+     * saving the last batches may still be in progress, see the returned job.
+     */
+    public ImportJobResponse upload(String userId, String jobId, InputStream body) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.userId.equals(userId)) {
+            throw new ResourceNotFoundException("Import job", "id", jobId);
+        }
+        if (!job.startUpload()) {
+            throw new BadRequestException("The statement of import " + jobId + " has already been uploaded");
+        }
+        
+        StatementSource source;
+        try {
+            source = open(job.options, body);
+        } catch (BadRequestException e) {
+            job.fail(e.getMessage());
+            job.finish();
+            throw e;
+        }
+        try {
+            BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(maxQueuedBatches);
+            try {
+                importExecutor.execute(() -> write(job, queue));
+            } catch (RejectedExecutionException e) {
+                job.fail("Too many imports in progress");
+                job.finish();
+                throw new RateLimitExceededException("Too many imports in progress, please try again later");
+            }
+            
+            log.info("Import {} started for user: {}", job.id, userId);
+            read(job, source, job.options, job.dateFormat, queue);
+            return job.toResponse();
+        } finally {
+            try {
+                source.close();
+            } catch (IOException e) {
+                log.warn("Could not close import body for user: {}", userId, e);
+            }
+        }
+    }
+    
+    public ImportJobResponse getJob(String userId, String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.userId.equals(userId)) {
+            throw new ResourceNotFoundException("Import job", "id", jobId);
+        }
+        return job.toResponse();
+    }
+    
+    private StatementSource open(ExpenseImportRequest options, InputStream body) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        if (options.getFormat() == ExpenseImportRequest.Format.OFX) {
+            OfxReader ofx = new OfxReader(reader, OFX_ELEMENTS);
+            return new StatementSource() {
+                @Override
+                public String[] next() throws IOException {
+                    Map<String, String> transaction = ofx.next();
+                    if (transaction == null) {
+                        return null;
+                    }
+                    String posted = transaction.get("DTPOSTED");
+                    return new String[] {
+                            posted != null && posted.length() > 8 ? posted.substring(0, 8) : posted,
+                            transaction.get("TRNAMT"),
+                            transaction.get("NAME"),
+                            transaction.get("NAME"),
+                            transaction.get("MEMO")
+                    };
+                }
+                
+                @Override
+                public void close() throws IOException {
+                    ofx.close();
+                }
+            };
+        }
+        
+        CsvReader csv = new CsvReader(reader, options.getDelimiter(), MAX_RECORD_LENGTH);
+        List<String> header;
+        try {
+            header = options.isHeader() ? csv.next() : null;
+        } catch (IOException e) {
+            throw new BadRequestException("Could not read the CSV header: " + e.getMessage());
+        }
+        int[] columns = {
+                column(header, options.getDateColumn(), "dateColumn", true),
+                column(header, options.getAmountColumn(), "amountColumn", true),
+                column(header, options.getDescriptionColumn(), "descriptionColumn", true),
+                column(header, options.getMerchantColumn(), "merchantColumn", false),
+                column(header, options.getNotesColumn(), "notesColumn", false)
+        };
+        return new StatementSource() {
+            @Override
+            public String[] next() throws IOException {
+                List<String> record = csv.next();
+                if (record == null) {
+                    return null;
+                }
+                String[] fields = new String[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    fields[i] = columns[i] >= 0 && columns[i] < record.size() ? record.get(columns[i]) : null;
+                }
+                return fields;
+            }
+            
+            @Override
+            public void close() throws IOException {
+                csv.close();
+            }
+        };
+    }
+    
+    // Position of a mapped column: a header name (case-insensitive) or a zero-based index
+    private int column(List<String> header, String mapping, String option, boolean required) {
+        if (mapping == null || mapping.isBlank()) {
+            if (required) {
+                throw new BadRequestException(option + " is required");
+            }
+            return -1;
+        }
+        
+        String name = mapping.trim();
+        if (header != null) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).trim().equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+        }
+        try {
+            return Integer.parseInt(name);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(option + " '" + name + "' is not a column of the statement");
+        }
+    }
+    
+    private void read(Job job, StatementSource source, ExpenseImportRequest options,
+                      DateTimeFormatter dateFormat, BlockingQueue<Batch> queue) {
+        boolean debitsNegative = options.getFormat() == ExpenseImportRequest.Format.OFX || options.isDebitsNegative();
+        Batch batch = new Batch(batchSize);
+        long row = 0;
+        try {
+            String[] fields;
+            while ((fields = source.next()) != null) {
+                row++;
+                job.rowRead();
+                
+                ExpenseRequest request;
+                try {
+                    request = toRequest(fields, options, dateFormat, debitsNegative);
+                } catch (DateTimeParseException | IllegalArgumentException | ArithmeticException e) {
+                    job.rowFailed(row, "Could not parse row: " + e.getMessage());
+                    continue;
+                }
+                if (request == null) {
+                    job.rowSkipped();
+                    continue;
+                }
+                
+                batch.add(row, request);
+                if (batch.requests.size() == batchSize) {
+                    if (!enqueue(job, queue, batch)) {
+                        return;
+                    }
+                    batch = new Batch(batchSize);
+                }
+            }
+            if (!batch.requests.isEmpty()) {
+                enqueue(job, queue, batch);
+            }
+        } catch (IOException e) {
+            job.fail("Could not read the statement after row " + row + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Import interrupted");
+        } finally {
+            try {
+                enqueue(job, queue, Batch.END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Waits for room in the queue; false if the job has failed or the writer has stopped, so the
+     * rest of the body is not read. The end marker is still delivered to a failed job's writer,
+     * which keeps draining until it sees it.
+     */
+    private boolean enqueue(Job job, BlockingQueue<Batch> queue, Batch batch) throws InterruptedException {
+        boolean end = batch == Batch.END;
+        if (!end && job.isFailed()) {
+            return false;
+        }
+        while (!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+            if (job.isFinished() || !end && job.isFailed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void write(Job job, BlockingQueue<Batch> queue) {
+        try {
+            for (Batch batch = queue.take(); batch != Batch.END; batch = queue.take()) {
+                if (job.isFailed()) {
+                    // Keep draining so the reader never waits on a stopped writer
+                    continue;
+                }
+                try {
+                    job.batchWritten(expenseService.createExpenses(job.userId, batch.requests), batch.rows);
+                } catch (RuntimeException e) {
+                    log.error("Import {} failed to save a batch", job.id, e);
+                    job.fail("Could not save expenses from row " + batch.rows.get(0) + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Import interrupted");
+        } finally {
+            job.finish();
+            log.info("Import {} finished for user: {}", job.id, job.userId);
+        }
+    }
+    
+    // Null when the row is not an expense (a credit, or a zero amount)
+    private ExpenseRequest toRequest(String[] fields, ExpenseImportRequest options,
+                                     DateTimeFormatter dateFormat, boolean debitsNegative) {
+        String date = required(fields[0], "date");
+        BigDecimal amount = parseAmount(required(fields[1], "amount"), options.getDecimalSeparator());
+        if (debitsNegative) {
+            amount = amount.negate();
+        }
+        if (amount.signum() <= 0) {
+            return null;
+        }
+        
+        ExpenseRequest request = new ExpenseRequest();
+        request.setCategoryId(options.getCategoryId());
+        request.setAmount(amount);
+        request.setCurrency(options.getCurrency());
+        request.setDescription(truncate(fields[2], MAX_DESCRIPTION_LENGTH));
+        request.setDate(LocalDate.parse(date.trim(), dateFormat));
+        if (request.getDate().isBefore(Expense.MIN_DATE)) {
+            throw new IllegalArgumentException("date before " + Expense.MIN_DATE);
+        }
+        request.setPaymentMethod(options.getPaymentMethod());
+        request.setMerchant(truncate(fields[3], MAX_MERCHANT_LENGTH));
+        request.setNotes(truncate(fields[4], MAX_NOTES_LENGTH));
+        return request;
+    }
+    
+    private static String required(String value, String name) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        return value;
+    }
+    
+    /**
+     * Accepts currency symbols, spaces, thousands separators and accounting parentheses for
+     * negatives. The separator other than {@code decimalSeparator} only groups thousands, so an
+     * amount like "12,50" with a '.' decimal separator is rejected rather than read as 1250.
+     */
+    static BigDecimal parseAmount(String value, char decimalSeparator) {
+        String text = value.trim();
+        boolean parenthesized = text.startsWith("(") && text.endsWith(")");
+        String number = text.replaceAll("[^0-9.,\\-]", "");
+        char groupingSeparator = decimalSeparator == '.' ? ',' : '.';
+        
+        int decimal = number.lastIndexOf(decimalSeparator);
+        String integer = decimal >= 0 ? number.substring(0, decimal) : number;
+        String fraction = decimal >= 0 ? number.substring(decimal + 1) : "";
+        if (integer.indexOf(decimalSeparator) >= 0 || fraction.indexOf(groupingSeparator) >= 0) {
+            throw new IllegalArgumentException("invalid amount '" + text + "'");
+        }
+        if (integer.indexOf(groupingSeparator) >= 0) {
+            if (!integer.matches("-?\\d{1,3}(" + Pattern.quote(String.valueOf(groupingSeparator)) + "\\d{3})+")) {
+                throw new IllegalArgumentException("ambiguous amount '" + text + "', check decimalSeparator");
+            }
+            integer = integer.replace(String.valueOf(groupingSeparator), "");
+        }
+        
+        BigDecimal amount = new BigDecimal(fraction.isEmpty() ? integer : integer + "." + fraction);
+        return parenthesized ? amount.negate() : amount;
+    }
+    
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String text = value.trim();
+        return text.length() > maxLength ? text.substring(0, maxLength) : text;
+    }
+    
+    // One unfinished import per user; finished jobs are dropped after the retention period and
+    // jobs whose statement never arrived after the upload timeout
+    private synchronized void register(Job job) {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+        LocalDateTime uploadCutoff = LocalDateTime.now().minusMinutes(uploadTimeoutMinutes);
+        jobs.values().removeIf(existing -> existing.isFinished() && existing.finishedAt.isBefore(cutoff)
+                || existing.isPending() && existing.createdAt.isBefore(uploadCutoff));
+        
+        if (jobs.values().stream().anyMatch(existing -> existing.userId.equals(job.userId) && !existing.isFinished())) {
+            throw new RateLimitExceededException("An import is already running for this user");
+        }
+        jobs.put(job.id, job);
+    }
+    
+    private interface StatementSource extends Closeable {
+        
+        /**
+         * Raw date, amount, description, merchant and notes of the next transaction, or
+         * {@code null} at the end of the statement.
+         */
+        String[] next() throws IOException;
+    }
+    
+    private static class Batch {
+        
+        static final Batch END = new Batch(0);
+        
+        final List<Long> rows;
+        final List<ExpenseRequest> requests;
+        
+        Batch(int capacity) {
+            this.rows = new ArrayList<>(capacity);
+            this.requests = new ArrayList<>(capacity);
+        }
+        
+        void add(long row, ExpenseRequest request) {
+            rows.add(row);
+            requests.add(request);
+        }
+    }
+    
+    private static class Job {
+        
+        private final String id;
+        private final String userId;
+        private final ExpenseImportRequest options;
+        private final DateTimeFormatter dateFormat;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final List<ImportJobResponse.RowError> errors = new ArrayList<>();
+        
+        private LocalDateTime startedAt;
+        private long rowsRead;
+        private long created;
+        private long failed;
+        private long skipped;
+        private String failure;
+        private LocalDateTime finishedAt;
+        
+        Job(String id, String userId, ExpenseImportRequest options, DateTimeFormatter dateFormat) {
+            this.id = id;
+            this.userId = userId;
+            this.options = options;
+            this.dateFormat = dateFormat;
+        }
+        
+        // False if the statement was already uploaded (or is being uploaded)
+        synchronized boolean startUpload() {
+            if (startedAt != null || finishedAt != null) {
+                return false;
+            }
+            startedAt = LocalDateTime.now();
+            return true;
+        }
+        
+        synchronized boolean isPending() {
+            return startedAt == null && finishedAt == null;
+        }
+        
+        synchronized void rowRead() {
+            rowsRead++;
+        }
+        
+        synchronized void rowSkipped() {
+            skipped++;
+        }
+        
+        synchronized void rowFailed(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(ImportJobResponse.RowError.builder().row(row).message(message).build());
+            }
+        }
+        
+        synchronized void batchWritten(ExpenseBatchResponse response, List<Long> rows) {
+            created += response.getCreated();
+            for (ExpenseBatchResponse.ItemError error : response.getErrors()) {
+                rowFailed(rows.get(error.getIndex()), error.getMessage());
+            }
+        }
+        
+        synchronized void fail(String message) {
+            if (failure == null) {
+                failure = message;
+            }
+        }
+        
+        synchronized boolean isFailed() {
+            return failure != null;
+        }
+        
+        synchronized void finish() {
+            finishedAt = LocalDateTime.now();
+        }
+        
+        synchronized boolean isFinished() {
+            return finishedAt != null;
+        }
+        
+        synchronized ImportJobResponse toResponse() {
+            ImportJobResponse.Status status;
+            if (finishedAt != null) {
+                status = failure != null ? ImportJobResponse.Status.FAILED : ImportJobResponse.Status.COMPLETED;
+            } else {
+                status = startedAt != null ? ImportJobResponse.Status.RUNNING : ImportJobResponse.Status.PENDING;
+            }
+            return ImportJobResponse.builder()
+                    .jobId(id)
+                    .status(status)
+                    .format(options.getFormat())
+                    .rowsRead(rowsRead)
+                    .created(created)
+                    .failed(failed)
+                    .skipped(skipped)
+                    .errors(new ArrayList<>(errors))
+                    .message(failure)
+                    .createdAt(createdAt)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.ExpenseRollup;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.util.MoneyUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the expense_rollups collection: one document per (user, day, category, payment method)
+ * holding count, sum, min and max in cents. Writes are applied with atomic $inc upserts; min/max
+ * cannot be decremented, so a bucket is recomputed from its (few) raw expenses when the removed
+ * amount was one of its extremes. Rebuilds and recomputes go through {@link VersionedDocuments}, so
+ * they never overwrite a concurrent update; analytics read rollups only once the first backfill
+ * has completed.
+ * <p>
+ * An expense write is bracketed by {@link #beginChange} and {@link #applyChange}: the affected
+ * buckets carry the write's id in {@code pending} (creating an empty bucket if needed) from before
+ * the expense is saved until its contribution has been applied. A rebuild that already counts the
+ * saved expense therefore cannot replace the bucket before the $inc lands, which would count the
+ * expense twice.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExpenseRollupService {
+    
+    private static final String BACKFILL_MARKERS = "backfill_markers";
+    private static final String BACKFILL_MARKER_ID = "expense_rollups";
+    
+    private final ExpenseRepository expenseRepository;
+    private final MongoTemplate mongoTemplate;
+    private final VersionedDocuments versionedDocuments;
+    private final AnalyticsBlockCache analyticsBlockCache;
+    
+    private volatile boolean backfilled;
+    
+    /**
+     * Marks the buckets an expense write affects as having a write in flight. Call it before the
+     * expense itself is written and pass the returned id to {@link #applyChange}, or to
+     * {@link #abortChange} if the write fails.
+     */
+    public String beginChange(Expense previous, Expense current) {
+        return begin(Stream.of(previous, current).filter(Objects::nonNull).toList());
+    }
+    
+    /**
+     * Moves an expense's contribution from its previous bucket to its current one and ends the
+     * write started by {@link #beginChange}. Pass {@code null} as previous for a create and
+     * {@code null} as current for a delete. Must be called after the expense itself has been written.
+     */
+    public void applyChange(Expense previous, Expense current, String changeId) {
+        if (previous != null && current != null && keyOf(previous).equals(keyOf(current))) {
+            applyDelta(previous, current, changeId);
+            return;
+        }
+        
+        if (previous != null) {
+            remove(previous, changeId);
+        }
+        if (current != null) {
+            add(current, changeId);
+        }
+    }
+    
+    /**
+     * Ends a write started by {@link #beginChange} or {@link #beginCreated} that did not happen,
+     * dropping the buckets that were created only to mark it.
+     */
+    public void abortChange(Collection<Expense> expenses, String changeId) {
+        for (String key : expenses.stream().map(this::keyOf).distinct().toList()) {
+            mongoTemplate.updateFirst(byKey(key), new Update().pull("pending", changeId), ExpenseRollup.class);
+            removeIfEmpty(key);
+        }
+    }
+    
+    /**
+     * {@link #beginChange} for a batch of expenses about to be created.
+     */
+    public String beginCreated(List<Expense> expenses) {
+        return begin(expenses);
+    }
+    
+    /**
+     * Adds newly created expenses: their contributions are combined per bucket first, then sent as
+     * one bulk write with a single upsert per bucket. Ends the write started by {@link #beginCreated}.
+     */
+    public void applyCreated(List<Expense> expenses, String changeId) {
+        Map<String, ExpenseRollup> rollups = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            long cents = MoneyUtil.toCents(expense.getAmount());
+            ExpenseRollup rollup = rollups.computeIfAbsent(keyOf(expense), key -> {
+                ExpenseRollup created = new ExpenseRollup();
+                created.setUserId(expense.getUserId());
+                created.setDay(expense.getDate());
+                created.setCategoryId(expense.getCategoryId());
+                created.setPaymentMethod(expense.getPaymentMethod());
+                created.setMinCents(Long.MAX_VALUE);
+                created.setMaxCents(Long.MIN_VALUE);
+                return created;
+            });
+            rollup.setCount(rollup.getCount() + 1);
+            rollup.setSumCents(MoneyUtil.add(rollup.getSumCents(), cents));
+            rollup.setMinCents(Math.min(rollup.getMinCents(), cents));
+            rollup.setMaxCents(Math.max(rollup.getMaxCents(), cents));
+        }
+        if (rollups.isEmpty()) {
+            return;
+        }
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ExpenseRollup.class);
+        rollups.forEach((key, rollup) -> bulk.upsert(byKey(key), new Update()
+                .inc("count", rollup.getCount())
+                .inc("sumCents", rollup.getSumCents())
+                .min("minCents", rollup.getMinCents())
+                .max("maxCents", rollup.getMaxCents())
+                .inc("version", 1)
+                .pull("pending", changeId)
+                .setOnInsert("userId", rollup.getUserId())
+                .setOnInsert("day", rollup.getDay())
+                .setOnInsert("categoryId", rollup.getCategoryId())
+                .setOnInsert("paymentMethod", rollup.getPaymentMethod())));
+        bulk.execute();
+    }
+    
+    @Async
+    public void rebuildAll() {
+        List<String> userIds = mongoTemplate.findDistinct(new Query(), "userId", Expense.class, String.class);
+        log.info("Rebuilding expense rollups for {} users", userIds.size());
+        
+        for (String userId : userIds) {
+            rebuildForUser(userId);
+        }
+        
+        markBackfilled();
+        log.info("Expense rollup rebuild completed");
+    }
+    
+    /**
+     * Recomputes the user's rollups from their expenses. Each rollup is replaced only if no live
+     * update changed it since the rebuild started; the ones that did change are recomputed on
+     * their own afterwards.
+     */
+    public void rebuildForUser(String userId) {
+        versionedDocuments.rebuild(ExpenseRollup.class, Criteria.where("userId").is(userId),
+                () -> aggregateRollups(userId), this::computeBucket);
+        analyticsBlockCache.invalidateUser(userId);
+        log.debug("Rebuilt expense rollups for user: {}", userId);
+    }
+    
+    /**
+     * Whether the rollups cover every expense. Until the first backfill has written its marker,
+     * rollups may be missing and analytics should not be served from them.
+     */
+    public boolean isBackfilled() {
+        if (!backfilled && mongoTemplate.exists(byKey(BACKFILL_MARKER_ID), BACKFILL_MARKERS)) {
+            backfilled = true;
+        }
+        return backfilled;
+    }
+    
+    private Map<String, ExpenseRollup> aggregateRollups(String userId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("userId").is(userId)),
+                Aggregation.project("date", "categoryId", "paymentMethod")
+                        .and(ConvertOperators.valueOf("amount").convertToDecimal()).as("amount"),
+                Aggregation.group("date", "categoryId", "paymentMethod")
+                        .count().as("count")
+                        .sum("amount").as("sum")
+                        .min("amount").as("min")
+                        .max("amount").as("max"));
+        
+        Map<String, ExpenseRollup> rollups = new LinkedHashMap<>();
+        for (Document bucket : mongoTemplate.aggregate(aggregation, Expense.class, Document.class)) {
+            Document key = bucket.get("_id", Document.class);
+            
+            ExpenseRollup rollup = new ExpenseRollup();
+            rollup.setUserId(userId);
+            rollup.setDay(key.getDate("date").toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+            rollup.setCategoryId(key.getString("categoryId"));
+            rollup.setPaymentMethod(key.getString("paymentMethod") != null
+                    ? Expense.PaymentMethod.valueOf(key.getString("paymentMethod"))
+                    : null);
+            rollup.setId(ExpenseRollup.keyOf(userId, rollup.getDay(), rollup.getCategoryId(), rollup.getPaymentMethod()));
+            rollup.setCount(((Number) bucket.get("count")).longValue());
+            rollup.setSumCents(MoneyUtil.toCents(bucket.get("sum", Decimal128.class).bigDecimalValue()));
+            rollup.setMinCents(MoneyUtil.toCents(bucket.get("min", Decimal128.class).bigDecimalValue()));
+            rollup.setMaxCents(MoneyUtil.toCents(bucket.get("max", Decimal128.class).bigDecimalValue()));
+            rollups.put(rollup.getId(), rollup);
+        }
+        return rollups;
+    }
+    
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (isBackfilled()) {
+            return;
+        }
+        if (expenseRepository.count() > 0) {
+            log.info("Expense rollups have not been backfilled, rebuilding from existing expenses");
+            rebuildAll();
+        } else {
+            markBackfilled();
+        }
+    }
+    
+    private void markBackfilled() {
+        mongoTemplate.upsert(byKey(BACKFILL_MARKER_ID), new Update().set("completedAt", new Date()), BACKFILL_MARKERS);
+        backfilled = true;
+    }
+    
+    // Adds the write's id to every affected bucket, upserting empty buckets that do not exist yet
+    private String begin(List<Expense> expenses) {
+        String changeId = UUID.randomUUID().toString();
+        Map<String, Expense> buckets = new LinkedHashMap<>();
+        expenses.forEach(expense -> buckets.putIfAbsent(keyOf(expense), expense));
+        if (buckets.isEmpty()) {
+            return changeId;
+        }
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ExpenseRollup.class);
+        buckets.forEach((key, expense) -> bulk.upsert(byKey(key), new Update()
+                .addToSet("pending", changeId)
+                .set("pendingAt", new Date())
+                .inc("version", 1)
+                .setOnInsert("userId", expense.getUserId())
+                .setOnInsert("day", expense.getDate())
+                .setOnInsert("categoryId", expense.getCategoryId())
+                .setOnInsert("paymentMethod", expense.getPaymentMethod())));
+        bulk.execute();
+        return changeId;
+    }
+    
+    private void add(Expense expense, String changeId) {
+        long cents = MoneyUtil.toCents(expense.getAmount());
+        
+        Update update = new Update()
+                .inc("count", 1)
+                .inc("sumCents", cents)
+                .min("minCents", cents)
+                .max("maxCents", cents)
+                .inc("version", 1)
+                .pull("pending", changeId)
+                .setOnInsert("userId", expense.getUserId())
+                .setOnInsert("day", expense.getDate())
+                .setOnInsert("categoryId", expense.getCategoryId())
+                .setOnInsert("paymentMethod", expense.getPaymentMethod());
+        
+        mongoTemplate.upsert(byKey(keyOf(expense)), update, ExpenseRollup.class);
+    }
+    
+    private void remove(Expense expense, String changeId) {
+        long cents = MoneyUtil.toCents(expense.getAmount());
+        String key = keyOf(expense);
+        
+        ExpenseRollup rollup = mongoTemplate.findAndModify(byKey(key),
+                new Update().inc("count", -1).inc("sumCents", -cents).inc("version", 1).pull("pending", changeId),
+                FindAndModifyOptions.options().returnNew(true),
+                ExpenseRollup.class);
+        
+        if (rollup == null) {
+            // Bucket was never rolled up (pending backfill)
+            return;
+        }
+        
+        if (rollup.getCount() <= 0) {
+            removeIfEmpty(key);
+        } else if (cents == rollup.getMinCents() || cents == rollup.getMaxCents()) {
+            versionedDocuments.recompute(ExpenseRollup.class, key, this::computeBucket);
+        }
+    }
+    
+    private void applyDelta(Expense previous, Expense current, String changeId) {
+        long previousCents = MoneyUtil.toCents(previous.getAmount());
+        long currentCents = MoneyUtil.toCents(current.getAmount());
+        if (previousCents == currentCents) {
+            mongoTemplate.updateFirst(byKey(keyOf(current)),
+                    new Update().inc("version", 1).pull("pending", changeId), ExpenseRollup.class);
+            return;
+        }
+        
+        ExpenseRollup rollup = mongoTemplate.findAndModify(byKey(keyOf(current)),
+                new Update()
+                        .inc("sumCents", currentCents - previousCents)
+                        .min("minCents", currentCents)
+                        .max("maxCents", currentCents)
+                        .inc("version", 1)
+                        .pull("pending", changeId),
+                FindAndModifyOptions.options().returnNew(true),
+                ExpenseRollup.class);
+        
+        if (rollup != null
+                && (previousCents == rollup.getMinCents() || previousCents == rollup.getMaxCents())) {
+            versionedDocuments.recompute(ExpenseRollup.class, keyOf(current), this::computeBucket);
+        }
+    }
+    
+    // Drops a bucket left without expenses, unless another write is about to add to it
+    private void removeIfEmpty(String key) {
+        mongoTemplate.remove(byKey(key).addCriteria(Criteria.where("count").not().gt(0))
+                .addCriteria(Criteria.where("pending.0").exists(false)), ExpenseRollup.class);
+    }
+    
+    // The bucket's rollup from its (few) raw expenses, or null if it has none left
+    private ExpenseRollup computeBucket(String key) {
+        String[] parts = key.split("\\|", 4);
+        String userId = parts[0];
+        LocalDate day = LocalDate.parse(parts[1]);
+        String categoryId = "null".equals(parts[2]) ? null : parts[2];
+        Expense.PaymentMethod paymentMethod = "null".equals(parts[3]) ? null : Expense.PaymentMethod.valueOf(parts[3]);
+        
+        Query query = new Query(Criteria.where("userId").is(userId)
+                .and("date").is(day)
+                .and("categoryId").is(categoryId)
+                .and("paymentMethod").is(paymentMethod));
+        query.fields().include("amount");
+        
+        List<Expense> expenses = mongoTemplate.find(query, Expense.class);
+        if (expenses.isEmpty()) {
+            return null;
+        }
+        
+        ExpenseRollup rollup = new ExpenseRollup();
+        rollup.setId(key);
+        rollup.setUserId(userId);
+        rollup.setDay(day);
+        rollup.setCategoryId(categoryId);
+        rollup.setPaymentMethod(paymentMethod);
+        rollup.setMinCents(Long.MAX_VALUE);
+        rollup.setMaxCents(Long.MIN_VALUE);
+        
+        for (Expense bucketExpense : expenses) {
+            long cents = MoneyUtil.toCents(bucketExpense.getAmount());
+            rollup.setCount(rollup.getCount() + 1);
+            rollup.setSumCents(MoneyUtil.add(rollup.getSumCents(), cents));
+            rollup.setMinCents(Math.min(rollup.getMinCents(), cents));
+            rollup.setMaxCents(Math.max(rollup.getMaxCents(), cents));
+        }
+        return rollup;
+    }
+    
+    private Query byKey(String key) {
+        return new Query(Criteria.where("_id").is(key));
+    }
+    
+    private String keyOf(Expense expense) {
+        return ExpenseRollup.keyOf(expense.getUserId(), expense.getDate(),
+                expense.getCategoryId(), expense.getPaymentMethod());
+    }
+}
@@ -1,6 +1,7 @@
 package com.expensetracker.service;
 
 import com.expensetracker.dto.common.PagedResponse;
+import com.expensetracker.dto.expense.ExpenseBatchResponse;
 import com.expensetracker.dto.expense.ExpenseRequest;
 import com.expensetracker.dto.expense.ExpenseResponse;
 import com.expensetracker.exception.BadRequestException;
@@ -10,9 +11,10 @@ import com.expensetracker.model.Expense;
 import com.expensetracker.repository.CategoryRepository;
 import com.expensetracker.repository.ExpenseRepository;
 import com.expensetracker.util.FileUploadUtil;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -24,7 +26,11 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -36,40 +42,134 @@ public class ExpenseService {
     private final CategoryRepository categoryRepository;
     private final FileUploadUtil fileUploadUtil;
     private final BudgetService budgetService;
+    private final ExpenseRollupService expenseRollupService;
+    private final CategoryNameResolver categoryNameResolver;
+    private final CacheGenerationService cacheGenerationService;
+    private final AnalyticsBlockCache analyticsBlockCache;
+    private final ColumnarExpenseStore columnarExpenseStore;
+    private final SpendIndexService spendIndexService;
+    private final SpendDistributionService spendDistributionService;
+    private final SpendCalendarService spendCalendarService;
+    private final HeavyHitterService heavyHitterService;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final Validator validator;
     
     @Transactional
-    @CacheEvict(value = "expenses", key = "#userId")
     public ExpenseResponse createExpense(String userId, ExpenseRequest request) {
         // Validate category
         Category category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "id", request.getCategoryId()));
         
-        Expense expense = new Expense();
-        expense.setUserId(userId);
-        expense.setCategoryId(request.getCategoryId());
-        expense.setAmount(request.getAmount());
-        expense.setCurrency(request.getCurrency());
-        expense.setDescription(request.getDescription());
-        expense.setDate(request.getDate());
-        expense.setPaymentMethod(request.getPaymentMethod());
-        expense.setMerchant(request.getMerchant());
-        expense.setNotes(request.getNotes());
-        expense.setTags(request.getTags());
-        expense.setRecurring(request.isRecurring());
-        expense.setRecurringFrequency(request.getRecurringFrequency());
-        expense.setRecurringEndDate(request.getRecurringEndDate());
+        Expense expense = toExpense(userId, request);
+        anomalyDetectionService.flag(null, expense);
         
-        expense = expenseRepository.save(expense);
+        String rollupChange = expenseRollupService.beginChange(null, expense);
+        spendIndexService.beginChange(userId);
+        try {
+            expense = expenseRepository.save(expense);
+        } catch (RuntimeException e) {
+            spendIndexService.abortChange(userId);
+            expenseRollupService.abortChange(List.of(expense), rollupChange);
+            throw e;
+        }
         log.info("Expense created: {} for user: {}", expense.getId(), userId);
         
+        expenseRollupService.applyChange(null, expense, rollupChange);
+        columnarExpenseStore.applyChange(null, expense);
+        spendIndexService.applyChange(null, expense);
+        spendDistributionService.applyChange(null, expense);
+        spendCalendarService.applyChange(null, expense);
+        heavyHitterService.applyChange(null, expense);
+        anomalyDetectionService.applyChange(null, expense);
+        analyticsBlockCache.invalidate(userId, List.of(expense.getDate()));
+        
         // Update budget spent amount
         budgetService.updateBudgetSpentAmount(userId, request.getCategoryId(), request.getDate());
+        cacheGenerationService.bump(userId);
         
         return mapToResponse(expense, category.getName());
     }
     
+    /**
+     * Creates up to a thousand expenses at once. Invalid items (failed validation or unknown
+     * category) are reported by position and skipped; the rest are inserted in one bulk write, the
+     * derived collections are updated in bulk, and each affected budget is recomputed once.
+     */
+    @Transactional
+    public ExpenseBatchResponse createExpenses(String userId, List<ExpenseRequest> requests) {
+        List<ExpenseBatchResponse.ItemError> errors = new ArrayList<>();
+        
+        // Validate all categories with one query
+        Set<String> categoryIds = requests.stream()
+                .filter(Objects::nonNull)
+                .map(ExpenseRequest::getCategoryId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, String> categoryNames = new HashMap<>();
+        categoryRepository.findAllById(categoryIds).forEach(category -> categoryNames.put(category.getId(), category.getName()));
+        
+        List<Expense> expenses = new ArrayList<>();
+        for (int index = 0; index < requests.size(); index++) {
+            ExpenseRequest request = requests.get(index);
+            if (request == null) {
+                errors.add(itemError(index, "Expense is required"));
+                continue;
+            }
+            
+            Set<ConstraintViolation<ExpenseRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                errors.add(itemError(index, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "))));
+            } else if (!categoryNames.containsKey(request.getCategoryId())) {
+                errors.add(itemError(index, "Category not found with id: '" + request.getCategoryId() + "'"));
+            } else {
+                expenses.add(toExpense(userId, request));
+            }
+        }
+        
+        if (!expenses.isEmpty()) {
+            anomalyDetectionService.flagAll(userId, expenses);
+            String rollupChange = expenseRollupService.beginCreated(expenses);
+            spendIndexService.beginChange(userId);
+            try {
+                expenses = expenseRepository.insert(expenses);
+            } catch (RuntimeException e) {
+                spendIndexService.abortChange(userId);
+                expenseRollupService.abortChange(expenses, rollupChange);
+                throw e;
+            }
+            log.info("{} expenses created in batch for user: {}", expenses.size(), userId);
+            
+            expenseRollupService.applyCreated(expenses, rollupChange);
+            spendDistributionService.applyCreated(expenses);
+            spendCalendarService.applyCreated(expenses);
+            anomalyDetectionService.applyCreated(userId, expenses);
+            heavyHitterService.applyCreated(expenses);
+            columnarExpenseStore.applyCreated(userId, expenses);
+            spendIndexService.applyCreated(userId, expenses);
+            analyticsBlockCache.invalidate(userId, expenses.stream().map(Expense::getDate).distinct().toList());
+            
+            // Each affected budget is recomputed once for the whole batch
+            budgetService.updateBudgetSpentAmounts(userId, expenses);
+            cacheGenerationService.bump(userId);
+        }
+        
+        return ExpenseBatchResponse.builder()
+                .created(expenses.size())
+                .failed(errors.size())
+                .expenses(expenses.stream()
+                        .map(expense -> mapToResponse(expense, categoryNames.get(expense.getCategoryId())))
+                        .collect(Collectors.toList()))
+                .errors(errors)
+                .build();
+    }
+    
     @Transactional(readOnly = true)
-    @Cacheable(value = "expenses", key = "#userId + '-' + #page + '-' + #size")
+    @Cacheable(value = "expenses",
+            key = "#userId + ':' + @cacheGenerationService.current(#userId) + ':' "
+                    + "+ #page + '-' + #size + '-' + #sortBy + '-' + #sortDir")
     public PagedResponse<ExpenseResponse> getAllExpenses(String userId, int page, int size, String sortBy, String sortDir) {
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) 
                 ? Sort.by(sortBy).ascending() 
@@ -78,22 +178,7 @@ public class ExpenseService {
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<Expense> expensePage = expenseRepository.findByUserId(userId, pageable);
         
-        List<ExpenseResponse> content = expensePage.getContent().stream()
-                .map(expense -> {
-                    String categoryName = getCategoryName(expense.getCategoryId());
-                    return mapToResponse(expense, categoryName);
-                })
-                .collect(Collectors.toList());
-        
-        return PagedResponse.<ExpenseResponse>builder()
-                .content(content)
-                .pageNumber(expensePage.getNumber())
-                .pageSize(expensePage.getSize())
-                .totalElements(expensePage.getTotalElements())
-                .totalPages(expensePage.getTotalPages())
-                .last(expensePage.isLast())
-                .first(expensePage.isFirst())
-                .build();
+        return toPagedResponse(userId, expensePage);
     }
     
     @Transactional(readOnly = true)
@@ -106,7 +191,7 @@ public class ExpenseService {
             throw new BadRequestException("You don't have access to this expense");
         }
         
-        String categoryName = getCategoryName(expense.getCategoryId());
+        String categoryName = categoryNameResolver.getName(userId, expense.getCategoryId());
         return mapToResponse(expense, categoryName);
     }
     
@@ -117,22 +202,7 @@ public class ExpenseService {
         Pageable pageable = PageRequest.of(page, size, Sort.by("date").descending());
         Page<Expense> expensePage = expenseRepository.findByUserIdAndDateBetween(userId, startDate, endDate, pageable);
         
-        List<ExpenseResponse> content = expensePage.getContent().stream()
-                .map(expense -> {
-                    String categoryName = getCategoryName(expense.getCategoryId());
-                    return mapToResponse(expense, categoryName);
-                })
-                .collect(Collectors.toList());
-        
-        return PagedResponse.<ExpenseResponse>builder()
-                .content(content)
-                .pageNumber(expensePage.getNumber())
-                .pageSize(expensePage.getSize())
-                .totalElements(expensePage.getTotalElements())
-                .totalPages(expensePage.getTotalPages())
-                .last(expensePage.isLast())
-                .first(expensePage.isFirst())
-                .build();
+        return toPagedResponse(userId, expensePage);
     }
     
     @Transactional(readOnly = true)
@@ -142,24 +212,10 @@ public class ExpenseService {
         Pageable pageable = PageRequest.of(page, size, Sort.by("date").descending());
         Page<Expense> expensePage = expenseRepository.findByUserIdAndCategoryId(userId, categoryId, pageable);
         
-        String categoryName = getCategoryName(categoryId);
-        List<ExpenseResponse> content = expensePage.getContent().stream()
-                .map(expense -> mapToResponse(expense, categoryName))
-                .collect(Collectors.toList());
-        
-        return PagedResponse.<ExpenseResponse>builder()
-                .content(content)
-                .pageNumber(expensePage.getNumber())
-                .pageSize(expensePage.getSize())
-                .totalElements(expensePage.getTotalElements())
-                .totalPages(expensePage.getTotalPages())
-                .last(expensePage.isLast())
-                .first(expensePage.isFirst())
-                .build();
+        return toPagedResponse(userId, expensePage);
     }
     
     @Transactional
-    @CacheEvict(value = "expenses", key = "#userId")
     public ExpenseResponse updateExpense(String userId, String expenseId, ExpenseRequest request) {
         Expense expense = expenseRepository.findById(expenseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Expense", "id", expenseId));
@@ -173,6 +229,8 @@ public class ExpenseService {
         Category category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Category", "id", request.getCategoryId()));
         
+        Expense previous = snapshot(expense);
+        
         expense.setCategoryId(request.getCategoryId());
         expense.setAmount(request.getAmount());
         expense.setCurrency(request.getCurrency());
@@ -185,18 +243,36 @@ public class ExpenseService {
         expense.setRecurring(request.isRecurring());
         expense.setRecurringFrequency(request.getRecurringFrequency());
         expense.setRecurringEndDate(request.getRecurringEndDate());
+        anomalyDetectionService.flag(previous, expense);
         
-        expense = expenseRepository.save(expense);
+        String rollupChange = expenseRollupService.beginChange(previous, expense);
+        spendIndexService.beginChange(userId);
+        try {
+            expense = expenseRepository.save(expense);
+        } catch (RuntimeException e) {
+            spendIndexService.abortChange(userId);
+            expenseRollupService.abortChange(List.of(previous, expense), rollupChange);
+            throw e;
+        }
         log.info("Expense updated: {} for user: {}", expense.getId(), userId);
         
+        expenseRollupService.applyChange(previous, expense, rollupChange);
+        columnarExpenseStore.applyChange(previous, expense);
+        spendIndexService.applyChange(previous, expense);
+        spendDistributionService.applyChange(previous, expense);
+        spendCalendarService.applyChange(previous, expense);
+        heavyHitterService.applyChange(previous, expense);
+        anomalyDetectionService.applyChange(previous, expense);
+        analyticsBlockCache.invalidate(userId, List.of(previous.getDate(), expense.getDate()));
+        
         // Update budget spent amount
         budgetService.updateBudgetSpentAmount(userId, request.getCategoryId(), request.getDate());
+        cacheGenerationService.bump(userId);
         
         return mapToResponse(expense, category.getName());
     }
     
     @Transactional
-    @CacheEvict(value = "expenses", key = "#userId")
     public void deleteExpense(String userId, String expenseId) {
         Expense expense = expenseRepository.findById(expenseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Expense", "id", expenseId));
@@ -211,15 +287,32 @@ public class ExpenseService {
             fileUploadUtil.deleteFile(receiptUrl);
         }
         
-        expenseRepository.delete(expense);
+        String rollupChange = expenseRollupService.beginChange(expense, null);
+        spendIndexService.beginChange(userId);
+        try {
+            expenseRepository.delete(expense);
+        } catch (RuntimeException e) {
+            spendIndexService.abortChange(userId);
+            expenseRollupService.abortChange(List.of(expense), rollupChange);
+            throw e;
+        }
         log.info("Expense deleted: {} for user: {}", expenseId, userId);
         
+        expenseRollupService.applyChange(expense, null, rollupChange);
+        columnarExpenseStore.applyChange(expense, null);
+        spendIndexService.applyChange(expense, null);
+        spendDistributionService.applyChange(expense, null);
+        spendCalendarService.applyChange(expense, null);
+        heavyHitterService.applyChange(expense, null);
+        anomalyDetectionService.applyChange(expense, null);
+        analyticsBlockCache.invalidate(userId, List.of(expense.getDate()));
+        
         // Update budget spent amount
         budgetService.updateBudgetSpentAmount(userId, expense.getCategoryId(), expense.getDate());
+        cacheGenerationService.bump(userId);
     }
     
     @Transactional
-    @CacheEvict(value = "expenses", key = "#userId")
     public ExpenseResponse uploadReceipt(String userId, String expenseId, MultipartFile file) {
         Expense expense = expenseRepository.findById(expenseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Expense", "id", expenseId));
@@ -242,15 +335,79 @@ public class ExpenseService {
         
         expense = expenseRepository.save(expense);
         log.info("Receipt uploaded for expense: {}", expenseId);
+        cacheGenerationService.bump(userId);
         
-        String categoryName = getCategoryName(expense.getCategoryId());
+        String categoryName = categoryNameResolver.getName(userId, expense.getCategoryId());
         return mapToResponse(expense, categoryName);
     }
     
-    private String getCategoryName(String categoryId) {
-        return categoryRepository.findById(categoryId)
-                .map(Category::getName)
-                .orElse("Unknown");
+    private Expense toExpense(String userId, ExpenseRequest request) {
+        Expense expense = new Expense();
+        expense.setUserId(userId);
+        expense.setCategoryId(request.getCategoryId());
+        expense.setAmount(request.getAmount());
+        expense.setCurrency(request.getCurrency());
+        expense.setDescription(request.getDescription());
+        expense.setDate(request.getDate());
+        expense.setPaymentMethod(request.getPaymentMethod());
+        expense.setMerchant(request.getMerchant());
+        expense.setNotes(request.getNotes());
+        expense.setTags(request.getTags());
+        expense.setRecurring(request.isRecurring());
+        expense.setRecurringFrequency(request.getRecurringFrequency());
+        expense.setRecurringEndDate(request.getRecurringEndDate());
+        return expense;
+    }
+    
+    private ExpenseBatchResponse.ItemError itemError(int index, String message) {
+        return ExpenseBatchResponse.ItemError.builder()
+                .index(index)
+                .message(message)
+                .build();
+    }
+    
+    private Expense snapshot(Expense expense) {
+        Expense copy = new Expense();
+        copy.setId(expense.getId());
+        copy.setUserId(expense.getUserId());
+        copy.setCategoryId(expense.getCategoryId());
+        copy.setAmount(expense.getAmount());
+        copy.setCurrency(expense.getCurrency());
+        copy.setDescription(expense.getDescription());
+        copy.setDate(expense.getDate());
+        copy.setPaymentMethod(expense.getPaymentMethod());
+        copy.setMerchant(expense.getMerchant());
+        copy.setNotes(expense.getNotes());
+        copy.setTags(expense.getTags() != null ? new ArrayList<>(expense.getTags()) : null);
+        copy.setReceiptUrls(expense.getReceiptUrls() != null ? new ArrayList<>(expense.getReceiptUrls()) : null);
+        copy.setRecurring(expense.isRecurring());
+        copy.setRecurringFrequency(expense.getRecurringFrequency());
+        copy.setRecurringEndDate(expense.getRecurringEndDate());
+        copy.setAnomalyScore(expense.getAnomalyScore());
+        copy.setAnomaly(expense.isAnomaly());
+        copy.setCreatedAt(expense.getCreatedAt());
+        copy.setUpdatedAt(expense.getUpdatedAt());
+        return copy;
+    }
+    
+    private PagedResponse<ExpenseResponse> toPagedResponse(String userId, Page<Expense> expensePage) {
+        // Resolve every category on the page at once instead of one lookup per row
+        Map<String, String> categoryNames = categoryNameResolver.resolveNames(userId,
+                expensePage.getContent().stream().map(Expense::getCategoryId).collect(Collectors.toSet()));
+        
+        List<ExpenseResponse> content = expensePage.getContent().stream()
+                .map(expense -> mapToResponse(expense, categoryNames.get(expense.getCategoryId())))
+                .collect(Collectors.toList());
+        
+        return PagedResponse.<ExpenseResponse>builder()
+                .content(content)
+                .pageNumber(expensePage.getNumber())
+                .pageSize(expensePage.getSize())
+                .totalElements(expensePage.getTotalElements())
+                .totalPages(expensePage.getTotalPages())
+                .last(expensePage.isLast())
+                .first(expensePage.isFirst())
+                .build();
     }
     
     private ExpenseResponse mapToResponse(Expense expense, String categoryName) {
@@ -271,6 +428,8 @@ public class ExpenseService {
                 .recurring(expense.isRecurring())
                 .recurringFrequency(expense.getRecurringFrequency())
                 .recurringEndDate(expense.getRecurringEndDate())
+                .anomaly(expense.getAnomalyScore() != null ? expense.isAnomaly() : null)
+                .anomalyScore(expense.getAnomalyScore())
                 .createdAt(expense.getCreatedAt())
                 .updatedAt(expense.getUpdatedAt())
                 .build();
@@ -0,0 +1,264 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.analytics.ForecastResponse;
+import com.expensetracker.exception.BadRequestException;
+import com.expensetracker.model.Budget;
+import com.expensetracker.model.Expense;
+import com.expensetracker.util.MoneyUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Projects spend to the end of the current week, month, quarter or year, per category and overall,
+ * from the in-memory daily totals of {@link SpendIndexService}, so a forecast never reads raw
+ * expenses. The expected spend of each remaining day is an exponentially weighted daily rate of
+ * recent non-recurring spend, scaled by the category's day-of-week profile; recurring expenses are
+ * projected separately onto the dates they fall due.
+ */
+@Service
+@RequiredArgsConstructor
+public class ForecastService {
+    
+    private static final int HISTORY_DAYS = 91;
+    private static final int SPAN_DAYS = 28;
+    private static final double ALPHA = 2.0 / (SPAN_DAYS + 1);
+    
+    // Pseudo-observations at the mean per weekday, so a few odd weeks cannot skew the profile
+    private static final double SEASONALITY_PRIOR_DAYS = 2;
+    
+    private final SpendIndexService spendIndexService;
+    private final CategoryNameResolver categoryNameResolver;
+    
+    public ForecastResponse getForecast(String userId, Budget.BudgetPeriod period) {
+        LocalDate today = LocalDate.now();
+        LocalDate periodStart = switch (period) {
+            case WEEKLY -> today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY -> today.withDayOfMonth(1);
+            case QUARTERLY -> today.with(IsoFields.DAY_OF_QUARTER, 1);
+            case YEARLY -> today.withDayOfYear(1);
+            case CUSTOM -> throw new BadRequestException("Forecasts are only available for calendar periods");
+        };
+        LocalDate periodEnd = switch (period) {
+            case WEEKLY -> periodStart.plusDays(6);
+            case MONTHLY -> today.withDayOfMonth(today.lengthOfMonth());
+            case QUARTERLY -> periodStart.plusMonths(3).minusDays(1);
+            default -> today.withDayOfYear(today.lengthOfYear());
+        };
+        
+        LocalDate historyStart = today.minusDays(HISTORY_DAYS);
+        LocalDate firstDay = periodStart.isBefore(historyStart) ? periodStart : historyStart;
+        SpendIndexService.History history = spendIndexService.getHistory(userId, firstDay, today);
+        
+        Map<String, long[]> dailyCents = history.getDailyCentsByCategory();
+        Map<String, long[]> discretionaryCents = new HashMap<>();
+        dailyCents.forEach((categoryId, values) -> discretionaryCents.put(categoryId, values.clone()));
+        
+        // Recurring expenses are projected on their own, so their logged occurrences are left out of the rate
+        Map<String, Long> recurringCents = new HashMap<>();
+        for (Expense expense : latestOfEachSeries(history.getRecurringExpenses())) {
+            long cents = MoneyUtil.toCents(expense.getAmount());
+            long projected = cents * countOccurrences(expense, today.plusDays(1), periodEnd);
+            if (projected != 0) {
+                recurringCents.merge(expense.getCategoryId(), projected, Long::sum);
+            }
+        }
+        for (Expense expense : history.getRecurringExpenses()) {
+            long[] values = discretionaryCents.get(expense.getCategoryId());
+            int offset = (int) ChronoUnit.DAYS.between(firstDay, expense.getDate());
+            if (values != null && offset >= 0 && offset < values.length) {
+                values[offset] -= MoneyUtil.toCents(expense.getAmount());
+            }
+        }
+        
+        int periodOffset = (int) ChronoUnit.DAYS.between(firstDay, periodStart);
+        int historyOffset = (int) ChronoUnit.DAYS.between(firstDay, historyStart);
+        int todayOffset = (int) ChronoUnit.DAYS.between(firstDay, today);
+        int activeFrom = firstActiveOffset(dailyCents, historyOffset, todayOffset);
+        
+        Set<String> categoryIds = new HashSet<>(dailyCents.keySet());
+        categoryIds.addAll(recurringCents.keySet());
+        Map<String, String> categoryNames = categoryNameResolver.resolveNames(userId, categoryIds);
+        
+        List<ForecastResponse.Projection> categories = new ArrayList<>();
+        long[] overall = new long[4];
+        for (String categoryId : categoryIds) {
+            long[] values = dailyCents.get(categoryId);
+            long spentToDate = 0;
+            double dailyRate = 0;
+            long projectedDiscretionary = 0;
+            if (values != null) {
+                for (int i = periodOffset; i <= todayOffset; i++) {
+                    spentToDate += values[i];
+                }
+                
+                long[] discretionary = discretionaryCents.get(categoryId);
+                dailyRate = weightedDailyRate(discretionary, activeFrom, todayOffset);
+                double[] seasonality = weekdayFactors(discretionary, activeFrom, todayOffset, firstDay);
+                double expected = 0;
+                for (LocalDate day = today.plusDays(1); !day.isAfter(periodEnd); day = day.plusDays(1)) {
+                    expected += dailyRate * seasonality[day.getDayOfWeek().ordinal()];
+                }
+                projectedDiscretionary = Math.max(0, Math.round(expected));
+            }
+            long projectedRecurring = recurringCents.getOrDefault(categoryId, 0L);
+            
+            if (spentToDate == 0 && projectedDiscretionary == 0 && projectedRecurring == 0) {
+                continue;
+            }
+            categories.add(toProjection(categoryId, categoryNames.get(categoryId), spentToDate,
+                    Math.round(dailyRate), projectedDiscretionary, projectedRecurring));
+            overall[0] += spentToDate;
+            overall[1] += Math.round(dailyRate);
+            overall[2] += projectedDiscretionary;
+            overall[3] += projectedRecurring;
+        }
+        categories.sort(Comparator.comparing(ForecastResponse.Projection::getProjectedTotal).reversed());
+        
+        return ForecastResponse.builder()
+                .period(period)
+                .periodStart(periodStart)
+                .periodEnd(periodEnd)
+                .asOf(today)
+                .overall(toProjection(null, null, overall[0], overall[1], overall[2], overall[3]))
+                .categories(categories)
+                .build();
+    }
+    
+    /**
+     * Exponentially weighted mean of the days before today, normalized by the weights actually
+     * used so a short history is not biased towards zero.
+     */
+    private double weightedDailyRate(long[] values, int fromOffset, int todayOffset) {
+        double weighted = 0;
+        double weights = 0;
+        double weight = 1;
+        for (int i = todayOffset - 1; i >= fromOffset; i--) {
+            weighted += weight * values[i];
+            weights += weight;
+            weight *= 1 - ALPHA;
+        }
+        return weights > 0 ? weighted / weights : 0;
+    }
+    
+    /**
+     * Ratio of each weekday's mean spend to the overall daily mean, shrunk towards 1 and
+     * normalized to average 1, indexed by {@link DayOfWeek#ordinal()}.
+     */
+    private double[] weekdayFactors(long[] values, int fromOffset, int todayOffset, LocalDate firstDay) {
+        double[] sums = new double[7];
+        int[] days = new int[7];
+        double total = 0;
+        for (int i = fromOffset; i < todayOffset; i++) {
+            int weekday = firstDay.plusDays(i).getDayOfWeek().ordinal();
+            sums[weekday] += values[i];
+            days[weekday]++;
+            total += values[i];
+        }
+        
+        double[] factors = new double[7];
+        int count = todayOffset - fromOffset;
+        double mean = count > 0 ? total / count : 0;
+        if (mean <= 0) {
+            Arrays.fill(factors, 1);
+            return factors;
+        }
+        
+        double sum = 0;
+        for (int weekday = 0; weekday < 7; weekday++) {
+            factors[weekday] = (sums[weekday] + SEASONALITY_PRIOR_DAYS * mean)
+                    / ((days[weekday] + SEASONALITY_PRIOR_DAYS) * mean);
+            sum += factors[weekday];
+        }
+        for (int weekday = 0; weekday < 7; weekday++) {
+            factors[weekday] *= 7 / sum;
+        }
+        return factors;
+    }
+    
+    /**
+     * First day of the history window with any spend, so the days before a new user's first expense
+     * do not count as days without spending.
+     */
+    private int firstActiveOffset(Map<String, long[]> dailyCents, int fromOffset, int todayOffset) {
+        for (int i = fromOffset; i < todayOffset; i++) {
+            for (long[] values : dailyCents.values()) {
+                if (values[i] != 0) {
+                    return i;
+                }
+            }
+        }
+        return todayOffset;
+    }
+    
+    /**
+     * A series logged occurrence by occurrence (each marked recurring) is projected once, from its
+     * latest occurrence.
+     */
+    private List<Expense> latestOfEachSeries(List<Expense> recurringExpenses) {
+        Map<List<Object>, Expense> latest = new HashMap<>();
+        for (Expense expense : recurringExpenses) {
+            List<Object> series = List.of(Objects.toString(expense.getCategoryId()), expense.getRecurringFrequency(),
+                    MoneyUtil.toCents(expense.getAmount()), Objects.toString(expense.getMerchant(), ""),
+                    Objects.toString(expense.getDescription(), ""));
+            latest.merge(series, expense, (existing, candidate) ->
+                    candidate.getDate().isAfter(existing.getDate()) ? candidate : existing);
+        }
+        return new ArrayList<>(latest.values());
+    }
+    
+    /**
+     * Occurrences of the expense that fall in {@code [from, to]} and not after its recurring end
+     * date.
+     */
+    private long countOccurrences(Expense expense, LocalDate from, LocalDate to) {
+        LocalDate last = expense.getRecurringEndDate() != null && expense.getRecurringEndDate().isBefore(to)
+                ? expense.getRecurringEndDate()
+                : to;
+        ChronoUnit unit = switch (expense.getRecurringFrequency()) {
+            case DAILY -> ChronoUnit.DAYS;
+            case WEEKLY -> ChronoUnit.WEEKS;
+            case MONTHLY -> ChronoUnit.MONTHS;
+            case YEARLY -> ChronoUnit.YEARS;
+        };
+        
+        LocalDate start = expense.getDate();
+        long step = Math.max(1, unit.between(start, from));
+        // A future-dated expense is not in the spend history yet, so it is due like any other occurrence
+        long count = !start.isBefore(from) && !start.isAfter(last) ? 1 : 0;
+        for (LocalDate occurrence = start.plus(step, unit); !occurrence.isAfter(last);
+             occurrence = start.plus(++step, unit)) {
+            if (!occurrence.isBefore(from)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private ForecastResponse.Projection toProjection(String categoryId, String categoryName, long spentToDate,
+                                                     long dailyRate, long projectedDiscretionary, long projectedRecurring) {
+        return ForecastResponse.Projection.builder()
+                .categoryId(categoryId)
+                .categoryName(categoryName)
+                .spentToDate(MoneyUtil.toAmount(spentToDate))
+                .dailyRate(MoneyUtil.toAmount(dailyRate))
+                .projectedDiscretionary(MoneyUtil.toAmount(projectedDiscretionary))
+                .projectedRecurring(MoneyUtil.toAmount(projectedRecurring))
+                .projectedTotal(MoneyUtil.toAmount(spentToDate + projectedDiscretionary + projectedRecurring))
+                .build();
+    }
+}
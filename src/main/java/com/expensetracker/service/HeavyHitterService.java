@@ -0,0 +1,460 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.analytics.HeavyHitterResponse;
+import com.expensetracker.exception.BadRequestException;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.HeavyHitterSketch;
+import com.expensetracker.util.MoneyUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the heavy_hitter_sketches collection, a Space-Saving summary of merchants and of tags
+ * per (user, month), and serves top merchants and tags by merging the months of a range. Each write
+ * is a handful of conditional single-document updates; when a user has few expenses in the range
+ * the answer is computed exactly with an aggregation instead. Rebuilds go through
+ * {@link VersionedDocuments}, so they never overwrite a concurrent update.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HeavyHitterService {
+    
+    static final int CAPACITY = 100;
+    private static final int MAX_K = 50;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    
+    private final MongoTemplate mongoTemplate;
+    private final VersionedDocuments versionedDocuments;
+    
+    @Value("${app.heavy-hitters.exact-threshold:2000}")
+    private long exactThreshold;
+    
+    /**
+     * The k most frequent merchants or tags over whole months, with the spend attributed to each.
+     */
+    public HeavyHitterResponse getTop(String userId, HeavyHitterSketch.Dimension dimension,
+                                      YearMonth startMonth, YearMonth endMonth, int k) {
+        if (endMonth.isBefore(startMonth)) {
+            throw new BadRequestException("endMonth must not be before startMonth");
+        }
+        if (k < 1 || k > MAX_K) {
+            throw new BadRequestException("k must be between 1 and " + MAX_K);
+        }
+        
+        Query query = new Query(Criteria.where("userId").is(userId)
+                .and("dimension").is(dimension)
+                .and("month").gte(startMonth.toString()).lte(endMonth.toString()));
+        List<HeavyHitterSketch> sketches = mongoTemplate.find(query, HeavyHitterSketch.class);
+        
+        long total = sketches.stream().mapToLong(HeavyHitterSketch::getTotal).sum();
+        boolean exact = total <= exactThreshold;
+        List<HeavyHitterResponse.Item> items = exact
+                ? aggregateExact(userId, dimension, startMonth, endMonth, k)
+                : mergeSketches(sketches, k);
+        
+        return HeavyHitterResponse.builder()
+                .startMonth(startMonth.toString())
+                .endMonth(endMonth.toString())
+                .exact(exact)
+                .items(items)
+                .build();
+    }
+    
+    /**
+     * Moves an expense's merchant and tags from its previous month to its current one. Pass
+     * {@code null} as previous for a create and {@code null} as current for a delete.
+     */
+    public void applyChange(Expense previous, Expense current) {
+        for (HeavyHitterSketch.Dimension dimension : HeavyHitterSketch.Dimension.values()) {
+            List<String> previousKeys = keysOf(previous, dimension);
+            List<String> currentKeys = keysOf(current, dimension);
+            if (previous != null && current != null && previousKeys.equals(currentKeys)
+                    && sketchIdOf(previous, dimension).equals(sketchIdOf(current, dimension))
+                    && MoneyUtil.toCents(previous.getAmount()) == MoneyUtil.toCents(current.getAmount())) {
+                continue;
+            }
+            
+            for (String key : previousKeys) {
+                decrement(previous, dimension, key);
+            }
+            for (String key : currentKeys) {
+                offer(current, dimension, key);
+            }
+        }
+    }
+    
+    /**
+     * Adds newly created expenses: occurrences are counted per sketch first, then each touched
+     * sketch is read once, updated with weighted Space-Saving in memory and written back with one
+     * versioned replace, retried when a concurrent update gets there first.
+     */
+    public void applyCreated(List<Expense> expenses) {
+        // sketch id -> key -> {occurrences, cents}
+        Map<String, Map<String, long[]>> occurrences = new LinkedHashMap<>();
+        Map<String, HeavyHitterSketch> emptySketches = new HashMap<>();
+        for (Expense expense : expenses) {
+            long cents = MoneyUtil.toCents(expense.getAmount());
+            for (HeavyHitterSketch.Dimension dimension : HeavyHitterSketch.Dimension.values()) {
+                for (String key : keysOf(expense, dimension)) {
+                    String id = sketchIdOf(expense, dimension);
+                    emptySketches.computeIfAbsent(id, sketchId -> newSketch(sketchId, expense, dimension));
+                    long[] totals = occurrences.computeIfAbsent(id, sketchId -> new LinkedHashMap<>())
+                            .computeIfAbsent(key, name -> new long[2]);
+                    totals[0]++;
+                    totals[1] += cents;
+                }
+            }
+        }
+        
+        occurrences.forEach((id, counts) -> offerAll(emptySketches.get(id), counts));
+    }
+    
+    @Async
+    public void rebuildAll() {
+        List<String> userIds = mongoTemplate.findDistinct(new Query(), "userId", Expense.class, String.class);
+        log.info("Rebuilding heavy hitter sketches for {} users", userIds.size());
+        
+        for (String userId : userIds) {
+            rebuildForUser(userId);
+        }
+        
+        log.info("Heavy hitter sketch rebuild completed");
+    }
+    
+    /**
+     * Recounts the user's merchants and tags exactly and keeps the most frequent {@code CAPACITY}
+     * per month; every dropped key counted no more than the smallest kept one, as Space-Saving
+     * requires. Each sketch is replaced only if no live update changed it since the rebuild
+     * started; the ones that did change are recounted on their own afterwards.
+     */
+    public void rebuildForUser(String userId) {
+        versionedDocuments.rebuild(HeavyHitterSketch.class, Criteria.where("userId").is(userId),
+                () -> computeSketches(userId, Criteria.where("userId").is(userId)), this::computeSketch);
+        log.debug("Rebuilt heavy hitter sketches for user: {}", userId);
+    }
+    
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (mongoTemplate.estimatedCount(HeavyHitterSketch.class) == 0 && mongoTemplate.estimatedCount(Expense.class) > 0) {
+            log.info("Heavy hitter sketches are empty, backfilling from existing expenses");
+            rebuildAll();
+        }
+    }
+    
+    private Map<String, HeavyHitterSketch> computeSketches(String userId, Criteria criteria) {
+        Query query = new Query(criteria).cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include("date", "amount", "merchant", "tags");
+        
+        Map<String, HeavyHitterSketch> sketches = new HashMap<>();
+        Map<String, Map<String, HeavyHitterSketch.Entry>> entriesBySketch = new HashMap<>();
+        try (Stream<Expense> expenses = mongoTemplate.stream(query, Expense.class)) {
+            expenses.forEach(expense -> {
+                expense.setUserId(userId);
+                long cents = MoneyUtil.toCents(expense.getAmount());
+                for (HeavyHitterSketch.Dimension dimension : HeavyHitterSketch.Dimension.values()) {
+                    for (String key : keysOf(expense, dimension)) {
+                        HeavyHitterSketch sketch = sketches.computeIfAbsent(sketchIdOf(expense, dimension),
+                                id -> newSketch(id, expense, dimension));
+                        sketch.setTotal(sketch.getTotal() + 1);
+                        HeavyHitterSketch.Entry entry = entriesBySketch
+                                .computeIfAbsent(sketch.getId(), id -> new HashMap<>())
+                                .computeIfAbsent(key, name -> new HeavyHitterSketch.Entry(name, 0, 0, 0));
+                        entry.setCount(entry.getCount() + 1);
+                        entry.setCents(entry.getCents() + cents);
+                    }
+                }
+            });
+        }
+        
+        for (HeavyHitterSketch sketch : sketches.values()) {
+            sketch.setEntries(entriesBySketch.get(sketch.getId()).values().stream()
+                    .sorted(Comparator.comparingLong(HeavyHitterSketch.Entry::getCount).reversed())
+                    .limit(CAPACITY)
+                    .toList());
+        }
+        return sketches;
+    }
+    
+    // The sketch of one dimension and month recounted from its raw expenses, or null if it is empty
+    private HeavyHitterSketch computeSketch(String id) {
+        String[] parts = id.split("\\|", 3);
+        String userId = parts[0];
+        HeavyHitterSketch.Dimension dimension = HeavyHitterSketch.Dimension.valueOf(parts[1]);
+        YearMonth month = YearMonth.parse(parts[2]);
+        
+        Criteria criteria = Criteria.where("userId").is(userId)
+                .and("date").gte(month.atDay(1)).lte(month.atEndOfMonth());
+        return computeSketches(userId, criteria).get(id);
+    }
+    
+    /**
+     * Space-Saving insert: bump the key if it is monitored, else add it while there is room, else
+     * let it take over the entry with the smallest count. Each step is a conditional update, so a
+     * concurrent writer makes it fail and the loop retries from the top with backoff; a sketch
+     * that keeps losing is recounted from the raw expenses, which already include this write.
+     */
+    private void offer(Expense expense, HeavyHitterSketch.Dimension dimension, String key) {
+        String id = sketchIdOf(expense, dimension);
+        long cents = MoneyUtil.toCents(expense.getAmount());
+        
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0 && !VersionedDocuments.backOff(attempt)) {
+                break;
+            }
+            Query monitored = new Query(Criteria.where("_id").is(id).and("entries.key").is(key));
+            Update increment = new Update().inc("entries.$.count", 1).inc("entries.$.cents", cents).inc("total", 1)
+                    .inc("version", 1);
+            if (mongoTemplate.updateFirst(monitored, increment, HeavyHitterSketch.class).getMatchedCount() > 0) {
+                return;
+            }
+            
+            HeavyHitterSketch.Entry admitted = new HeavyHitterSketch.Entry(key, 1, 0, cents);
+            Query hasRoom = new Query(Criteria.where("_id").is(id)
+                    .and("entries.key").ne(key)
+                    .and("entries." + (CAPACITY - 1)).exists(false));
+            Update push = new Update().push("entries", admitted).inc("total", 1).inc("version", 1);
+            if (mongoTemplate.updateFirst(hasRoom, push, HeavyHitterSketch.class).getMatchedCount() > 0) {
+                return;
+            }
+            
+            HeavyHitterSketch sketch = mongoTemplate.findById(id, HeavyHitterSketch.class);
+            if (sketch == null) {
+                HeavyHitterSketch created = newSketch(id, expense, dimension);
+                Update insert = new Update()
+                        .setOnInsert("userId", created.getUserId())
+                        .setOnInsert("dimension", dimension)
+                        .setOnInsert("month", created.getMonth())
+                        .setOnInsert("total", 1)
+                        .setOnInsert("entries", List.of(admitted))
+                        .inc("version", 1);
+                if (mongoTemplate.upsert(new Query(Criteria.where("_id").is(id)), insert, HeavyHitterSketch.class)
+                        .getUpsertedId() != null) {
+                    return;
+                }
+                continue;
+            }
+            if (sketch.getEntries().size() < CAPACITY) {
+                continue;
+            }
+            
+            HeavyHitterSketch.Entry smallest = Collections.min(sketch.getEntries(),
+                    Comparator.comparingLong(HeavyHitterSketch.Entry::getCount));
+            HeavyHitterSketch.Entry replacement = new HeavyHitterSketch.Entry(key,
+                    smallest.getCount() + 1, smallest.getCount(), cents);
+            Query replaceable = new Query(Criteria.where("_id").is(id)
+                    .and("entries.key").ne(key)
+                    .and("entries").elemMatch(Criteria.where("key").is(smallest.getKey())
+                            .and("count").is(smallest.getCount())));
+            Update replace = new Update().set("entries.$[smallest]", replacement).inc("total", 1).inc("version", 1)
+                    .filterArray(Criteria.where("smallest.key").is(smallest.getKey()));
+            if (mongoTemplate.updateFirst(replaceable, replace, HeavyHitterSketch.class).getMatchedCount() > 0) {
+                return;
+            }
+        }
+        
+        recount(id);
+    }
+    
+    private void offerAll(HeavyHitterSketch empty, Map<String, long[]> counts) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0 && !VersionedDocuments.backOff(attempt)) {
+                break;
+            }
+            HeavyHitterSketch sketch = mongoTemplate.findById(empty.getId(), HeavyHitterSketch.class);
+            Long version = sketch != null ? sketch.getVersion() : null;
+            if (sketch == null) {
+                sketch = newSketch(empty.getId(), empty.getUserId(), empty.getDimension(), empty.getMonth());
+            }
+            sketch.setEntries(new ArrayList<>(sketch.getEntries()));
+            
+            for (Map.Entry<String, long[]> count : counts.entrySet()) {
+                admit(sketch, count.getKey(), count.getValue()[0], count.getValue()[1]);
+            }
+            if (versionedDocuments.replace(HeavyHitterSketch.class, sketch.getId(), sketch, version)) {
+                return;
+            }
+        }
+        
+        recount(empty.getId());
+    }
+    
+    private void recount(String id) {
+        log.warn("Heavy hitter sketch {} kept changing under {} attempts, recounting it", id, MAX_ATTEMPTS);
+        versionedDocuments.recompute(HeavyHitterSketch.class, id, this::computeSketch);
+    }
+    
+    /**
+     * Weighted Space-Saving insert of {@code count} occurrences into an in-memory sketch; a key
+     * that is not monitored takes over the smallest entry with all of its occurrences at once.
+     */
+    static void admit(HeavyHitterSketch sketch, String key, long count, long cents) {
+        sketch.setTotal(sketch.getTotal() + count);
+        List<HeavyHitterSketch.Entry> entries = sketch.getEntries();
+        for (HeavyHitterSketch.Entry entry : entries) {
+            if (entry.getKey().equals(key)) {
+                entry.setCount(entry.getCount() + count);
+                entry.setCents(entry.getCents() + cents);
+                return;
+            }
+        }
+        
+        if (entries.size() < CAPACITY) {
+            entries.add(new HeavyHitterSketch.Entry(key, count, 0, cents));
+            return;
+        }
+        HeavyHitterSketch.Entry smallest = Collections.min(entries,
+                Comparator.comparingLong(HeavyHitterSketch.Entry::getCount));
+        entries.set(entries.indexOf(smallest),
+                new HeavyHitterSketch.Entry(key, smallest.getCount() + count, smallest.getCount(), cents));
+    }
+    
+    /**
+     * Space-Saving has no delete; a removed occurrence is subtracted from its entry when the key is
+     * still monitored and otherwise only from the total.
+     */
+    private void decrement(Expense expense, HeavyHitterSketch.Dimension dimension, String key) {
+        String id = sketchIdOf(expense, dimension);
+        long cents = MoneyUtil.toCents(expense.getAmount());
+        
+        Query monitored = new Query(Criteria.where("_id").is(id).and("entries.key").is(key));
+        Update decrement = new Update().inc("entries.$.count", -1).inc("entries.$.cents", -cents).inc("total", -1)
+                .inc("version", 1);
+        if (mongoTemplate.updateFirst(monitored, decrement, HeavyHitterSketch.class).getMatchedCount() == 0) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(id)),
+                    new Update().inc("total", -1).inc("version", 1), HeavyHitterSketch.class);
+        }
+    }
+    
+    /**
+     * Sums each key over the months. In a full month an unmonitored key occurred at most as often
+     * as that month's smallest entry, which bounds the error of the merged count together with
+     * the entries' own errors. An entry only holds the spend since its key was last admitted, so
+     * the summed spend is reported as a lower bound.
+     */
+    private List<HeavyHitterResponse.Item> mergeSketches(List<HeavyHitterSketch> sketches, int k) {
+        // key -> {count, error, cents, smallest counts of full months where monitored}
+        Map<String, long[]> merged = new HashMap<>();
+        long fullMonthsSmallest = 0;
+        
+        for (HeavyHitterSketch sketch : sketches) {
+            boolean full = sketch.getEntries().size() >= CAPACITY;
+            long smallest = full
+                    ? sketch.getEntries().stream().mapToLong(HeavyHitterSketch.Entry::getCount).min().orElse(0)
+                    : 0;
+            fullMonthsSmallest += smallest;
+            
+            for (HeavyHitterSketch.Entry entry : sketch.getEntries()) {
+                long[] totals = merged.computeIfAbsent(entry.getKey(), key -> new long[4]);
+                totals[0] += entry.getCount();
+                totals[1] += entry.getError();
+                totals[2] += entry.getCents();
+                totals[3] += smallest;
+            }
+        }
+        
+        final long absentBound = fullMonthsSmallest;
+        return merged.entrySet().stream()
+                .filter(entry -> entry.getValue()[0] > 0)
+                .sorted(Comparator.<Map.Entry<String, long[]>>comparingLong(entry -> entry.getValue()[0]).reversed()
+                        .thenComparing(Map.Entry::getKey))
+                .limit(k)
+                .map(entry -> {
+                    long[] totals = entry.getValue();
+                    return HeavyHitterResponse.Item.builder()
+                            .name(entry.getKey())
+                            .count(totals[0])
+                            .maxError(Math.max(totals[1], absentBound - totals[3]))
+                            .minAmount(MoneyUtil.toAmount(Math.max(0, totals[2])))
+                            .build();
+                })
+                .toList();
+    }
+    
+    private List<HeavyHitterResponse.Item> aggregateExact(String userId, HeavyHitterSketch.Dimension dimension,
+                                                          YearMonth startMonth, YearMonth endMonth, int k) {
+        String field = dimension == HeavyHitterSketch.Dimension.MERCHANT ? "merchant" : "tags";
+        
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(Aggregation.match(Criteria.where("userId").is(userId)
+                .and("date").gte(startMonth.atDay(1)).lte(endMonth.atEndOfMonth())));
+        operations.add(Aggregation.project(field)
+                .and(ConvertOperators.valueOf("amount").convertToDecimal()).as("amount"));
+        if (dimension == HeavyHitterSketch.Dimension.TAG) {
+            operations.add(Aggregation.unwind(field));
+        }
+        operations.add(Aggregation.match(Criteria.where(field).nin(null, "")));
+        operations.add(Aggregation.group(field).count().as("count").sum("amount").as("amount"));
+        operations.add(Aggregation.sort(Sort.by(Sort.Direction.DESC, "count").and(Sort.by(Sort.Direction.ASC, "_id"))));
+        operations.add(Aggregation.limit(k));
+        
+        List<HeavyHitterResponse.Item> items = new ArrayList<>();
+        for (Document result : mongoTemplate.aggregate(Aggregation.newAggregation(operations), Expense.class, Document.class)) {
+            items.add(HeavyHitterResponse.Item.builder()
+                    .name(result.getString("_id"))
+                    .count(((Number) result.get("count")).longValue())
+                    .maxError(0L)
+                    .amount(result.get("amount", Decimal128.class).bigDecimalValue())
+                    .build());
+        }
+        return items;
+    }
+    
+    private HeavyHitterSketch newSketch(String id, Expense expense, HeavyHitterSketch.Dimension dimension) {
+        return newSketch(id, expense.getUserId(), dimension, YearMonth.from(expense.getDate()).toString());
+    }
+    
+    private HeavyHitterSketch newSketch(String id, String userId, HeavyHitterSketch.Dimension dimension, String month) {
+        HeavyHitterSketch sketch = new HeavyHitterSketch();
+        sketch.setId(id);
+        sketch.setUserId(userId);
+        sketch.setDimension(dimension);
+        sketch.setMonth(month);
+        return sketch;
+    }
+    
+    private List<String> keysOf(Expense expense, HeavyHitterSketch.Dimension dimension) {
+        if (expense == null) {
+            return List.of();
+        }
+        if (dimension == HeavyHitterSketch.Dimension.MERCHANT) {
+            String merchant = expense.getMerchant();
+            return merchant == null || merchant.isEmpty() ? List.of() : List.of(merchant);
+        }
+        if (expense.getTags() == null) {
+            return List.of();
+        }
+        return expense.getTags().stream().filter(tag -> tag != null && !tag.isEmpty()).toList();
+    }
+    
+    private String sketchIdOf(Expense expense, HeavyHitterSketch.Dimension dimension) {
+        return HeavyHitterSketch.keyOf(expense.getUserId(), dimension, YearMonth.from(expense.getDate()).toString());
+    }
+}
@@ -0,0 +1,294 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.analytics.HeatmapResponse;
+import com.expensetracker.exception.BadRequestException;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.SpendCalendar;
+import com.expensetracker.util.MoneyUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the spend_calendars collection, one fixed 366-slot array of daily spend per (user,
+ * year), for the calendar heatmap. Writes move a single slot with an atomic $inc; recently read
+ * years are kept in memory and reloaded after a TTL so writes made on other instances are picked
+ * up. This instance's writes evict the year both before and after they reach Mongo, so a load
+ * racing a write is never kept and a write is never applied twice. Rebuilds go through
+ * {@link VersionedDocuments}, so they never overwrite a concurrent update.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SpendCalendarService {
+    
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    private static final int MIN_YEAR = 1900;
+    private static final int MAX_YEAR = 9999;
+    
+    private final MongoTemplate mongoTemplate;
+    private final VersionedDocuments versionedDocuments;
+    
+    @Value("${app.heatmap.max-entries:10000}")
+    private int maxEntries;
+    
+    @Value("${app.heatmap.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    private Map<String, Resident> resident;
+    
+    // Keys being loaded; a write meanwhile means the loaded array may have missed it
+    private final Map<String, Boolean> loading = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    void init() {
+        resident = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Resident> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+    
+    /**
+     * Spend for every day of the year as one array of cents, starting on January 1st.
+     */
+    public HeatmapResponse getHeatmap(String userId, int year) {
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            throw new BadRequestException("year must be between " + MIN_YEAR + " and " + MAX_YEAR);
+        }
+        
+        long[] dailyCents = Arrays.copyOf(getDailyCents(userId, year), Year.of(year).length());
+        long total = 0;
+        long max = 0;
+        for (long cents : dailyCents) {
+            total = MoneyUtil.add(total, cents);
+            max = Math.max(max, cents);
+        }
+        
+        return HeatmapResponse.builder()
+                .year(year)
+                .startDate(LocalDate.of(year, 1, 1))
+                .total(MoneyUtil.toAmount(total))
+                .max(MoneyUtil.toAmount(max))
+                .dailyCents(dailyCents)
+                .build();
+    }
+    
+    /**
+     * Moves an expense's amount from its previous day to its current one. Pass {@code null} as
+     * previous for a create and {@code null} as current for a delete.
+     */
+    public void applyChange(Expense previous, Expense current) {
+        if (previous != null && current != null && previous.getDate().equals(current.getDate())
+                && MoneyUtil.toCents(previous.getAmount()) == MoneyUtil.toCents(current.getAmount())) {
+            return;
+        }
+        
+        if (previous != null) {
+            add(previous, -MoneyUtil.toCents(previous.getAmount()));
+        }
+        if (current != null) {
+            add(current, MoneyUtil.toCents(current.getAmount()));
+        }
+    }
+    
+    /**
+     * Adds newly created expenses: amounts are summed per day first, then every touched year is
+     * created if missing and incremented, with one bulk write for each step.
+     */
+    public void applyCreated(List<Expense> expenses) {
+        Map<String, long[]> deltas = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            LocalDate date = expense.getDate();
+            long[] dailyCents = deltas.computeIfAbsent(SpendCalendar.keyOf(expense.getUserId(), date.getYear()),
+                    key -> new long[SpendCalendar.DAYS]);
+            int slot = date.getDayOfYear() - 1;
+            dailyCents[slot] = MoneyUtil.add(dailyCents[slot], MoneyUtil.toCents(expense.getAmount()));
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        
+        deltas.keySet().forEach(this::evict);
+        BulkOperations create = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SpendCalendar.class);
+        BulkOperations increment = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SpendCalendar.class);
+        deltas.forEach((key, dailyCents) -> {
+            int separator = key.lastIndexOf('|');
+            create.upsert(new Query(Criteria.where("_id").is(key)), new Update()
+                    .setOnInsert("userId", key.substring(0, separator))
+                    .setOnInsert("year", Integer.parseInt(key.substring(separator + 1)))
+                    .setOnInsert("dailyCents", new long[SpendCalendar.DAYS]));
+            
+            Update update = new Update().inc("version", 1);
+            for (int slot = 0; slot < dailyCents.length; slot++) {
+                if (dailyCents[slot] != 0) {
+                    update.inc("dailyCents." + slot, dailyCents[slot]);
+                }
+            }
+            increment.updateOne(new Query(Criteria.where("_id").is(key)), update);
+        });
+        create.execute();
+        increment.execute();
+        deltas.keySet().forEach(this::evict);
+    }
+    
+    @Async
+    public void rebuildAll() {
+        List<String> userIds = mongoTemplate.findDistinct(new Query(), "userId", Expense.class, String.class);
+        log.info("Rebuilding spend calendars for {} users", userIds.size());
+        
+        for (String userId : userIds) {
+            rebuildForUser(userId);
+        }
+        
+        log.info("Spend calendar rebuild completed");
+    }
+    
+    /**
+     * Recomputes the user's calendars from their expenses. Each calendar is replaced only if no
+     * live update changed it since the rebuild started; the ones that did change are recomputed on
+     * their own afterwards.
+     */
+    public void rebuildForUser(String userId) {
+        versionedDocuments.rebuild(SpendCalendar.class, Criteria.where("userId").is(userId),
+                () -> computeCalendars(userId, Criteria.where("userId").is(userId)), this::computeCalendar);
+        List<String> keys;
+        synchronized (resident) {
+            keys = resident.keySet().stream().filter(key -> key.startsWith(userId + "|")).toList();
+        }
+        keys.forEach(this::evict);
+        log.debug("Rebuilt spend calendars for user: {}", userId);
+    }
+    
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (mongoTemplate.estimatedCount(SpendCalendar.class) == 0 && mongoTemplate.estimatedCount(Expense.class) > 0) {
+            log.info("Spend calendars are empty, backfilling from existing expenses");
+            rebuildAll();
+        }
+    }
+    
+    private long[] getDailyCents(String userId, int year) {
+        String key = SpendCalendar.keyOf(userId, year);
+        Resident entry = resident.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt <= ttlSeconds * 1000) {
+            return entry.snapshot();
+        }
+        
+        // A load already running for the key keeps its marker, so a write's mark is not overwritten
+        loading.putIfAbsent(key, Boolean.FALSE);
+        SpendCalendar calendar = mongoTemplate.findById(key, SpendCalendar.class);
+        entry = new Resident(System.currentTimeMillis(),
+                calendar != null ? calendar.getDailyCents() : new long[SpendCalendar.DAYS]);
+        // Under the lock evict takes, so an eviction cannot fall between the check and the put
+        synchronized (resident) {
+            if (Boolean.FALSE.equals(loading.remove(key))) {
+                resident.put(key, entry);
+            }
+        }
+        return entry.snapshot();
+    }
+    
+    private void add(Expense expense, long cents) {
+        if (cents == 0) {
+            return;
+        }
+        
+        LocalDate date = expense.getDate();
+        String key = SpendCalendar.keyOf(expense.getUserId(), date.getYear());
+        int slot = date.getDayOfYear() - 1;
+        
+        evict(key);
+        Query byKey = new Query(Criteria.where("_id").is(key));
+        Update increment = new Update().inc("dailyCents." + slot, cents).inc("version", 1);
+        if (mongoTemplate.updateFirst(byKey, increment, SpendCalendar.class).getMatchedCount() == 0) {
+            // An upsert with the $inc alone would create "dailyCents" as an object keyed by slot
+            mongoTemplate.upsert(byKey, new Update()
+                    .setOnInsert("userId", expense.getUserId())
+                    .setOnInsert("year", date.getYear())
+                    .setOnInsert("dailyCents", new long[SpendCalendar.DAYS]), SpendCalendar.class);
+            mongoTemplate.updateFirst(byKey, increment, SpendCalendar.class);
+        }
+        evict(key);
+    }
+    
+    // Drops the resident year and marks a running load dirty, so it is not kept
+    private void evict(String key) {
+        synchronized (resident) {
+            loading.computeIfPresent(key, (id, dirty) -> Boolean.TRUE);
+            resident.remove(key);
+        }
+    }
+    
+    private Map<String, SpendCalendar> computeCalendars(String userId, Criteria criteria) {
+        Query query = new Query(criteria).cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include("date", "amount");
+        
+        Map<String, SpendCalendar> calendars = new HashMap<>();
+        try (Stream<Expense> expenses = mongoTemplate.stream(query, Expense.class)) {
+            expenses.forEach(expense -> {
+                LocalDate date = expense.getDate();
+                SpendCalendar calendar = calendars.computeIfAbsent(SpendCalendar.keyOf(userId, date.getYear()), key -> {
+                    SpendCalendar created = new SpendCalendar();
+                    created.setId(key);
+                    created.setUserId(userId);
+                    created.setYear(date.getYear());
+                    return created;
+                });
+                long[] dailyCents = calendar.getDailyCents();
+                int slot = date.getDayOfYear() - 1;
+                dailyCents[slot] = MoneyUtil.add(dailyCents[slot], MoneyUtil.toCents(expense.getAmount()));
+            });
+        }
+        return calendars;
+    }
+    
+    // The calendar of one year from its raw expenses, or null if it has none
+    private SpendCalendar computeCalendar(String key) {
+        int separator = key.lastIndexOf('|');
+        String userId = key.substring(0, separator);
+        Year year = Year.parse(key.substring(separator + 1));
+        
+        Criteria criteria = Criteria.where("userId").is(userId)
+                .and("date").gte(year.atDay(1)).lte(year.atMonth(12).atEndOfMonth());
+        return computeCalendars(userId, criteria).get(key);
+    }
+    
+    private static class Resident {
+        
+        private final long loadedAt;
+        private final long[] dailyCents;
+        
+        Resident(long loadedAt, long[] dailyCents) {
+            this.loadedAt = loadedAt;
+            this.dailyCents = dailyCents;
+        }
+        
+        long[] snapshot() {
+            return dailyCents.clone();
+        }
+    }
+}
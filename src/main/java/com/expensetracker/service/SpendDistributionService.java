@@ -0,0 +1,282 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.analytics.DistributionResponse;
+import com.expensetracker.exception.BadRequestException;
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.SpendHistogram;
+import com.expensetracker.util.LogHistogram;
+import com.expensetracker.util.MoneyUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the spend_histograms collection, one {@link LogHistogram} per (user, category, month),
+ * and answers percentile queries by merging the months of a range. Writes move a single bucket
+ * count with atomic $inc upserts, so distribution queries never read raw expenses. Rebuilds go
+ * through {@link VersionedDocuments}, so they never overwrite a concurrent update.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SpendDistributionService {
+    
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    private static final int MAX_BINS = 100;
+    private static final int[] PERCENTILES = {50, 75, 90, 95, 99};
+    
+    private final MongoTemplate mongoTemplate;
+    private final CategoryNameResolver categoryNameResolver;
+    private final VersionedDocuments versionedDocuments;
+    
+    /**
+     * Percentiles and a coarse histogram of expense amounts per category over whole months,
+     * optionally restricted to one category.
+     */
+    public DistributionResponse getDistribution(String userId, YearMonth startMonth, YearMonth endMonth,
+                                                String categoryId, int bins) {
+        if (endMonth.isBefore(startMonth)) {
+            throw new BadRequestException("endMonth must not be before startMonth");
+        }
+        if (bins < 1 || bins > MAX_BINS) {
+            throw new BadRequestException("bins must be between 1 and " + MAX_BINS);
+        }
+        
+        Criteria criteria = Criteria.where("userId").is(userId)
+                .and("month").gte(startMonth.toString()).lte(endMonth.toString());
+        if (categoryId != null) {
+            criteria.and("categoryId").is(categoryId);
+        }
+        
+        Map<String, LogHistogram> histograms = new HashMap<>();
+        for (SpendHistogram document : mongoTemplate.find(new Query(criteria), SpendHistogram.class)) {
+            LogHistogram histogram = histograms.computeIfAbsent(document.getCategoryId(), id -> new LogHistogram());
+            document.getBuckets().forEach((bucket, count) -> histogram.add(Integer.parseInt(bucket), count));
+        }
+        histograms.values().removeIf(LogHistogram::isEmpty);
+        
+        Map<String, String> names = categoryNameResolver.resolveNames(userId, histograms.keySet());
+        List<DistributionResponse.CategoryDistribution> categories = new ArrayList<>();
+        histograms.forEach((id, histogram) -> categories.add(toCategoryDistribution(id, names.get(id), histogram, bins)));
+        categories.sort(Comparator.comparing(DistributionResponse.CategoryDistribution::getCount).reversed());
+        
+        return DistributionResponse.builder()
+                .startMonth(startMonth.toString())
+                .endMonth(endMonth.toString())
+                .relativeAccuracy(LogHistogram.RELATIVE_ACCURACY)
+                .categories(categories)
+                .build();
+    }
+    
+    /**
+     * Moves an expense from its previous bucket to its current one. Pass {@code null} as previous
+     * for a create and {@code null} as current for a delete.
+     */
+    public void applyChange(Expense previous, Expense current) {
+        if (previous != null && current != null
+                && keyOf(previous).equals(keyOf(current)) && bucketOf(previous) == bucketOf(current)) {
+            return;
+        }
+        
+        if (previous != null) {
+            remove(previous);
+        }
+        if (current != null) {
+            add(current);
+        }
+    }
+    
+    /**
+     * Adds newly created expenses with one bulk write, a single upsert per touched histogram.
+     */
+    public void applyCreated(List<Expense> expenses) {
+        Map<String, SpendHistogram> histograms = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            SpendHistogram histogram = histograms.computeIfAbsent(keyOf(expense), key -> {
+                SpendHistogram created = new SpendHistogram();
+                created.setUserId(expense.getUserId());
+                created.setCategoryId(expense.getCategoryId());
+                created.setMonth(YearMonth.from(expense.getDate()).toString());
+                return created;
+            });
+            histogram.setCount(histogram.getCount() + 1);
+            histogram.getBuckets().merge(String.valueOf(bucketOf(expense)), 1L, Long::sum);
+        }
+        if (histograms.isEmpty()) {
+            return;
+        }
+        
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SpendHistogram.class);
+        histograms.forEach((key, histogram) -> {
+            Update update = new Update()
+                    .inc("count", histogram.getCount())
+                    .inc("version", 1)
+                    .setOnInsert("userId", histogram.getUserId())
+                    .setOnInsert("categoryId", histogram.getCategoryId())
+                    .setOnInsert("month", histogram.getMonth());
+            histogram.getBuckets().forEach((bucket, count) -> update.inc("buckets." + bucket, count));
+            bulk.upsert(byKey(key), update);
+        });
+        bulk.execute();
+    }
+    
+    @Async
+    public void rebuildAll() {
+        List<String> userIds = mongoTemplate.findDistinct(new Query(), "userId", Expense.class, String.class);
+        log.info("Rebuilding spend histograms for {} users", userIds.size());
+        
+        for (String userId : userIds) {
+            rebuildForUser(userId);
+        }
+        
+        log.info("Spend histogram rebuild completed");
+    }
+    
+    /**
+     * Recomputes the user's histograms from their expenses. Each histogram is replaced only if no
+     * live update changed it since the rebuild started; the ones that did change are recomputed on
+     * their own afterwards.
+     */
+    public void rebuildForUser(String userId) {
+        versionedDocuments.rebuild(SpendHistogram.class, Criteria.where("userId").is(userId),
+                () -> computeHistograms(userId, Criteria.where("userId").is(userId)), this::computeHistogram);
+        log.debug("Rebuilt spend histograms for user: {}", userId);
+    }
+    
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (mongoTemplate.estimatedCount(SpendHistogram.class) == 0 && mongoTemplate.estimatedCount(Expense.class) > 0) {
+            log.info("Spend histograms are empty, backfilling from existing expenses");
+            rebuildAll();
+        }
+    }
+    
+    private void add(Expense expense) {
+        Update update = new Update()
+                .inc("count", 1)
+                .inc("buckets." + bucketOf(expense), 1)
+                .inc("version", 1)
+                .setOnInsert("userId", expense.getUserId())
+                .setOnInsert("categoryId", expense.getCategoryId())
+                .setOnInsert("month", YearMonth.from(expense.getDate()).toString());
+        
+        mongoTemplate.upsert(byKey(keyOf(expense)), update, SpendHistogram.class);
+    }
+    
+    private void remove(Expense expense) {
+        String key = keyOf(expense);
+        String bucketField = "buckets." + bucketOf(expense);
+        
+        SpendHistogram histogram = mongoTemplate.findAndModify(byKey(key),
+                new Update().inc("count", -1).inc(bucketField, -1).inc("version", 1),
+                FindAndModifyOptions.options().returnNew(true),
+                SpendHistogram.class);
+        
+        if (histogram == null) {
+            // Histogram was never built (pending backfill)
+            return;
+        }
+        
+        if (histogram.getCount() <= 0) {
+            mongoTemplate.remove(byKey(key).addCriteria(Criteria.where("count").lte(0)), SpendHistogram.class);
+        } else {
+            // Keep the stored map sparse
+            mongoTemplate.updateFirst(byKey(key).addCriteria(Criteria.where(bucketField).lte(0)),
+                    new Update().unset(bucketField), SpendHistogram.class);
+        }
+    }
+    
+    private Map<String, SpendHistogram> computeHistograms(String userId, Criteria criteria) {
+        Query query = new Query(criteria).cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include("date", "amount", "categoryId");
+        
+        Map<String, SpendHistogram> histograms = new LinkedHashMap<>();
+        try (Stream<Expense> expenses = mongoTemplate.stream(query, Expense.class)) {
+            expenses.forEach(expense -> {
+                expense.setUserId(userId);
+                SpendHistogram histogram = histograms.computeIfAbsent(keyOf(expense), key -> {
+                    SpendHistogram created = new SpendHistogram();
+                    created.setId(key);
+                    created.setUserId(userId);
+                    created.setCategoryId(expense.getCategoryId());
+                    created.setMonth(YearMonth.from(expense.getDate()).toString());
+                    return created;
+                });
+                histogram.setCount(histogram.getCount() + 1);
+                histogram.getBuckets().merge(String.valueOf(bucketOf(expense)), 1L, Long::sum);
+            });
+        }
+        return histograms;
+    }
+    
+    // The histogram of one category and month from its raw expenses, or null if it has none left
+    private SpendHistogram computeHistogram(String key) {
+        String[] parts = key.split("\\|", 3);
+        String userId = parts[0];
+        String categoryId = "null".equals(parts[1]) ? null : parts[1];
+        YearMonth month = YearMonth.parse(parts[2]);
+        
+        Criteria criteria = Criteria.where("userId").is(userId)
+                .and("categoryId").is(categoryId)
+                .and("date").gte(month.atDay(1)).lte(month.atEndOfMonth());
+        return computeHistograms(userId, criteria).get(key);
+    }
+    
+    private DistributionResponse.CategoryDistribution toCategoryDistribution(String categoryId, String categoryName,
+                                                                            LogHistogram histogram, int bins) {
+        Map<String, BigDecimal> percentiles = new LinkedHashMap<>();
+        for (int percentile : PERCENTILES) {
+            percentiles.put("p" + percentile, MoneyUtil.toAmount(histogram.quantile(percentile / 100.0)));
+        }
+        
+        List<DistributionResponse.Bin> histogramBins = new ArrayList<>();
+        for (long[] bin : histogram.bins(bins)) {
+            histogramBins.add(DistributionResponse.Bin.builder()
+                    .from(MoneyUtil.toAmount(bin[0]))
+                    .to(MoneyUtil.toAmount(bin[1]))
+                    .count(bin[2])
+                    .build());
+        }
+        
+        return DistributionResponse.CategoryDistribution.builder()
+                .categoryId(categoryId)
+                .categoryName(categoryName)
+                .count(histogram.getTotalCount())
+                .percentiles(percentiles)
+                .histogram(histogramBins)
+                .build();
+    }
+    
+    private Query byKey(String key) {
+        return new Query(Criteria.where("_id").is(key));
+    }
+    
+    private int bucketOf(Expense expense) {
+        return LogHistogram.bucketOf(MoneyUtil.toCents(expense.getAmount()));
+    }
+    
+    private String keyOf(Expense expense) {
+        return SpendHistogram.keyOf(expense.getUserId(), expense.getCategoryId(),
+                YearMonth.from(expense.getDate()).toString());
+    }
+}
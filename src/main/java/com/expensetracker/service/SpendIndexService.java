@@ -0,0 +1,432 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.util.DailyValues;
+import com.expensetracker.util.FenwickTree;
+import com.expensetracker.util.MoneyUtil;
+import com.expensetracker.util.MovingWindowSums;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Per-user Fenwick trees of spend (cents) and expense count by epoch day, overall and per
+ * category, answering "total between day A and day B" in O(log n), a dense array of overall daily
+ * spend with 7/30/90-day moving sums ending today, and the user's recurring expenses. A user's index is built from
+ * Mongo on first access, kept current by {@link ExpenseService} writes, and rebuilt after a TTL so
+ * writes made on other instances are picked up. That rebuild runs in the background: requests keep
+ * reading the previous index until the new one is installed, so only a user's first read waits
+ * for a build.
+ * <p>
+ * A write is bracketed by {@link #beginChange} and {@link #applyChange}, which adds the difference
+ * between the expense's previous and current state. A build that overlaps a write may or may not
+ * have read it, so it answers the read that started it but is not installed: the next read builds
+ * again. An installed index therefore only ever receives writes begun after its build, and memory
+ * stays O(days) per category however many expenses the user has.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SpendIndexService {
+    
+    private static final int CURSOR_BATCH_SIZE = 1000;
+    private static final int INITIAL_DAYS = 2 * 366;
+    
+    public static final int[] MOVING_WINDOWS = {7, 30, 90};
+    
+    private final MongoTemplate mongoTemplate;
+    private final Executor spendIndexExecutor;
+    
+    @Value("${app.spend-index.max-users:1000}")
+    private int maxUsers;
+    
+    @Value("${app.spend-index.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    private Map<String, UserIndex> indexes;
+    
+    // Writes begun and not yet applied or aborted, per user; guarded by indexes
+    private final Map<String, WritesInFlight> writesInFlight = new HashMap<>();
+    
+    // Builds of each user's index that are running; guarded by indexes
+    private final Map<String, List<Build>> runningBuilds = new HashMap<>();
+    
+    // Users whose stale index is being rebuilt in the background
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    
+    @PostConstruct
+    void init() {
+        indexes = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserIndex> eldest) {
+                return size() > maxUsers;
+            }
+        });
+    }
+    
+    /**
+     * Spend and count of the user's expenses dated in {@code [startDate, endDate]}, optionally
+     * restricted to one category.
+     */
+    public Totals getTotals(String userId, String categoryId, LocalDate startDate, LocalDate endDate) {
+        return getIndex(userId).totals(categoryId, startDate.toEpochDay(), endDate.toEpochDay());
+    }
+    
+    /**
+     * Daily spend per category for every day in {@code [startDate, endDate]}, with the user's
+     * recurring expenses, read from one consistent state of the index.
+     */
+    public History getHistory(String userId, LocalDate startDate, LocalDate endDate) {
+        return getIndex(userId).history(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+    
+    /**
+     * Overall spend per day in {@code [startDate, endDate]} with the {@link #MOVING_WINDOWS} sums
+     * trailing each of those days, produced in one pass over the daily values, and the current
+     * window sums.
+     */
+    public MovingSums getMovingSums(String userId, LocalDate startDate, LocalDate endDate) {
+        return getIndex(userId).movingSums(startDate.toEpochDay(), endDate.toEpochDay(), LocalDate.now().toEpochDay());
+    }
+    
+    /**
+     * Spend per day in {@code [startDate, endDate]}, overall or for one category.
+     */
+    public long[] getDailyCents(String userId, String categoryId, LocalDate startDate, LocalDate endDate) {
+        return getIndex(userId).dailyCents(categoryId, startDate.toEpochDay(), endDate.toEpochDay());
+    }
+    
+    /**
+     * Call before one or more of the user's expenses are written, then {@link #applyChange} or
+     * {@link #applyCreated} once the write is saved, or {@link #abortChange} if it fails.
+     */
+    public void beginChange(String userId) {
+        synchronized (indexes) {
+            WritesInFlight writes = writesInFlight.computeIfAbsent(userId, id -> new WritesInFlight());
+            writes.count++;
+            writes.lastBegunAt = System.currentTimeMillis();
+            runningBuilds.getOrDefault(userId, List.of()).forEach(build -> build.overlapped = true);
+        }
+    }
+    
+    /**
+     * Ends a write started by {@link #beginChange} that did not happen.
+     */
+    public void abortChange(String userId) {
+        synchronized (indexes) {
+            endChange(userId);
+        }
+    }
+    
+    /**
+     * Mirrors an expense write started by {@link #beginChange} into the user's index if it is
+     * resident. Pass {@code null} as previous for a create and {@code null} as current for a delete.
+     */
+    public void applyChange(Expense previous, Expense current) {
+        String userId = current != null ? current.getUserId() : previous.getUserId();
+        
+        UserIndex index;
+        synchronized (indexes) {
+            endChange(userId);
+            index = indexes.get(userId);
+        }
+        if (index != null) {
+            index.apply(previous, current);
+        }
+    }
+    
+    /**
+     * Mirrors newly created expenses of one user, written after one {@link #beginChange}, into
+     * their index if it is resident, taking each lock once for the whole batch.
+     */
+    public void applyCreated(String userId, List<Expense> expenses) {
+        UserIndex index;
+        synchronized (indexes) {
+            endChange(userId);
+            index = indexes.get(userId);
+        }
+        if (index != null) {
+            index.applyCreated(expenses);
+        }
+    }
+    
+    // Guarded by indexes
+    private void endChange(String userId) {
+        WritesInFlight writes = writesInFlight.get(userId);
+        if (writes != null && --writes.count <= 0) {
+            writesInFlight.remove(userId);
+        }
+    }
+    
+    private UserIndex getIndex(String userId) {
+        UserIndex index = indexes.get(userId);
+        if (index == null) {
+            return build(userId);
+        }
+        if (System.currentTimeMillis() - index.builtAt > ttlSeconds * 1000) {
+            refresh(userId);
+        }
+        return index;
+    }
+    
+    // Rebuilds the user's index in the background, at most once at a time per user
+    private void refresh(String userId) {
+        if (!refreshing.add(userId)) {
+            return;
+        }
+        try {
+            spendIndexExecutor.execute(() -> {
+                try {
+                    build(userId);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to refresh spend index for user: {}", userId, e);
+                } finally {
+                    refreshing.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(userId);
+        }
+    }
+    
+    private UserIndex build(String userId) {
+        Build build = new Build();
+        synchronized (indexes) {
+            WritesInFlight writes = writesInFlight.get(userId);
+            if (writes != null) {
+                if (System.currentTimeMillis() - writes.lastBegunAt > VersionedDocuments.PENDING_TIMEOUT.toMillis()) {
+                    // Left by writers that died before applying or aborting
+                    writesInFlight.remove(userId);
+                } else {
+                    build.overlapped = true;
+                }
+            }
+            runningBuilds.computeIfAbsent(userId, id -> new ArrayList<>()).add(build);
+        }
+        
+        UserIndex index = null;
+        try {
+            index = read(userId);
+        } finally {
+            // Under the lock writes begin and end with, so a write either overlaps this build or
+            // begins after it is installed
+            synchronized (indexes) {
+                List<Build> builds = runningBuilds.get(userId);
+                builds.remove(build);
+                if (builds.isEmpty()) {
+                    runningBuilds.remove(userId);
+                }
+                
+                UserIndex resident = indexes.get(userId);
+                if (index != null && !build.overlapped && (resident == null || resident.builtAt <= index.builtAt)) {
+                    indexes.put(userId, index);
+                }
+            }
+        }
+        return index;
+    }
+    
+    private UserIndex read(String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId)).cursorBatchSize(CURSOR_BATCH_SIZE);
+        query.fields().include("date", "amount", "categoryId",
+                "recurring", "recurringFrequency", "recurringEndDate", "description", "merchant");
+        
+        UserIndex index = new UserIndex(System.currentTimeMillis(), LocalDate.now().toEpochDay() - INITIAL_DAYS / 2);
+        try (Stream<Expense> expenses = mongoTemplate.stream(query, Expense.class)) {
+            expenses.forEach(expense -> index.apply(null, expense));
+        }
+        
+        log.debug("Built spend index for user: {}", userId);
+        return index;
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class Totals {
+        private final long cents;
+        private final long count;
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class History {
+        private final Map<String, long[]> dailyCentsByCategory;
+        private final List<Expense> recurringExpenses;
+    }
+    
+    @Getter
+    @AllArgsConstructor
+    public static class MovingSums {
+        private final long[] dailyCents;
+        private final long[][] windowCents; // [window][day]
+        private final LocalDate latestDay;
+        private final long[] latestWindowCents;
+    }
+    
+    private static class UserIndex {
+        
+        private final long builtAt;
+        private final long firstDay;
+        private final DayTotals overall;
+        private final Map<String, DayTotals> byCategory = new HashMap<>();
+        private final Map<String, Expense> recurringById = new HashMap<>();
+        private final DailyValues overallDaily;
+        private final MovingWindowSums latestWindows;
+        
+        UserIndex(long builtAt, long firstDay) {
+            this.builtAt = builtAt;
+            this.firstDay = firstDay;
+            this.overall = new DayTotals(firstDay);
+            this.overallDaily = new DailyValues(firstDay, INITIAL_DAYS);
+            this.latestWindows = new MovingWindowSums(MOVING_WINDOWS, LocalDate.now().toEpochDay());
+        }
+        
+        // Takes out the previous state of the expense and adds its current one
+        synchronized void apply(Expense previous, Expense current) {
+            if (previous != null) {
+                add(previous, -1);
+                recurringById.remove(previous.getId());
+            }
+            if (current != null) {
+                add(current, 1);
+                if (current.isRecurring() && current.getRecurringFrequency() != null) {
+                    recurringById.put(current.getId(), recurringCopy(current));
+                }
+            }
+        }
+        
+        synchronized void applyCreated(List<Expense> expenses) {
+            for (Expense expense : expenses) {
+                apply(null, expense);
+            }
+        }
+        
+        private void add(Expense expense, int sign) {
+            if (expense.getDate().isBefore(Expense.MIN_DATE)) {
+                // Rejected on write since MIN_DATE was introduced; older stored data is left out
+                return;
+            }
+            long day = expense.getDate().toEpochDay();
+            long cents = sign * MoneyUtil.toCents(expense.getAmount());
+            overall.add(day, cents, sign);
+            overallDaily.add(day, cents);
+            latestWindows.add(day, cents);
+            byCategory.computeIfAbsent(expense.getCategoryId(), id -> new DayTotals(firstDay)).add(day, cents, sign);
+        }
+        
+        synchronized History history(long fromDay, long toDay) {
+            Map<String, long[]> dailyCents = new HashMap<>();
+            int days = (int) (toDay - fromDay + 1);
+            byCategory.forEach((categoryId, dayTotals) -> {
+                if (dayTotals.counts.sum(fromDay, toDay) == 0) {
+                    return;
+                }
+                long[] values = new long[days];
+                for (int i = 0; i < days; i++) {
+                    values[i] = dayTotals.cents.sum(fromDay + i, fromDay + i);
+                }
+                dailyCents.put(categoryId, values);
+            });
+            return new History(dailyCents, new ArrayList<>(recurringById.values()));
+        }
+        
+        synchronized MovingSums movingSums(long fromDay, long toDay, long today) {
+            long[] daily = dailyCents(null, fromDay, toDay);
+            long[][] windows = MovingWindowSums.series(MOVING_WINDOWS, fromDay, toDay, overallDaily::get);
+            
+            latestWindows.advanceTo(today);
+            long[] latest = new long[MOVING_WINDOWS.length];
+            for (int i = 0; i < latest.length; i++) {
+                latest[i] = latestWindows.sum(i);
+            }
+            return new MovingSums(daily, windows, LocalDate.ofEpochDay(latestWindows.endDay()), latest);
+        }
+        
+        synchronized long[] dailyCents(String categoryId, long fromDay, long toDay) {
+            long[] daily = new long[(int) (toDay - fromDay + 1)];
+            if (categoryId == null) {
+                for (int i = 0; i < daily.length; i++) {
+                    daily[i] = overallDaily.get(fromDay + i);
+                }
+                return daily;
+            }
+            
+            DayTotals dayTotals = byCategory.get(categoryId);
+            if (dayTotals != null && dayTotals.counts.sum(fromDay, toDay) != 0) {
+                for (int i = 0; i < daily.length; i++) {
+                    daily[i] = dayTotals.cents.sum(fromDay + i, fromDay + i);
+                }
+            }
+            return daily;
+        }
+        
+        synchronized Totals totals(String categoryId, long fromDay, long toDay) {
+            DayTotals dayTotals = categoryId != null ? byCategory.get(categoryId) : overall;
+            if (dayTotals == null) {
+                return new Totals(0, 0);
+            }
+            return new Totals(dayTotals.cents.sum(fromDay, toDay), dayTotals.counts.sum(fromDay, toDay));
+        }
+    }
+    
+    private static class WritesInFlight {
+        private int count;
+        private long lastBegunAt;
+    }
+    
+    private static class Build {
+        private boolean overlapped; // guarded by indexes
+    }
+    
+    // Detached from the caller's entity, so later changes to it cannot leak into the index
+    private static Expense recurringCopy(Expense expense) {
+        Expense copy = new Expense();
+        copy.setId(expense.getId());
+        copy.setUserId(expense.getUserId());
+        copy.setCategoryId(expense.getCategoryId());
+        copy.setAmount(expense.getAmount());
+        copy.setDate(expense.getDate());
+        copy.setDescription(expense.getDescription());
+        copy.setMerchant(expense.getMerchant());
+        copy.setRecurring(true);
+        copy.setRecurringFrequency(expense.getRecurringFrequency());
+        copy.setRecurringEndDate(expense.getRecurringEndDate());
+        return copy;
+    }
+    
+    private static class DayTotals {
+        
+        private final FenwickTree cents;
+        private final FenwickTree counts;
+        
+        DayTotals(long firstDay) {
+            this.cents = new FenwickTree(firstDay, INITIAL_DAYS);
+            this.counts = new FenwickTree(firstDay, INITIAL_DAYS);
+        }
+        
+        void add(long day, long deltaCents, int deltaCount) {
+            cents.add(day, deltaCents);
+            counts.add(day, deltaCount);
+        }
+    }
+}
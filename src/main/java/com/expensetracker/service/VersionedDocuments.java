@@ -0,0 +1,172 @@
+package com.expensetracker.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Compare-and-set writes for derived documents that live writes keep up to date with $inc. Every
+ * live update of such a document also increments its {@code version}; a rebuild reads the versions
+ * first, computes the documents from the raw expenses, and replaces each one only if its version is
+ * unchanged, so it never deletes or overwrites a concurrent update. Documents that lost the race
+ * are recomputed one at a time.
+ * <p>
+ * A document whose {@code pending} array is not empty has a live update in flight that may already
+ * be visible in the raw expenses but not yet in the document, so it is not replaced or removed
+ * until that update has landed, or until {@code pendingAt} is older than {@link #PENDING_TIMEOUT}
+ * and the writer is presumed dead.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class VersionedDocuments {
+    
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BACKOFF_MILLIS = 20;
+    static final Duration PENDING_TIMEOUT = Duration.ofMinutes(1);
+    
+    private final MongoTemplate mongoTemplate;
+    
+    /**
+     * Replaces the documents of {@code type} matching {@code scope} with the computed ones, keyed
+     * by id. {@code compute} runs after the versions are read; {@code recompute} returns the
+     * document for a single id, or {@code null} if it should not exist.
+     */
+    <T> void rebuild(Class<T> type, Criteria scope, Supplier<Map<String, T>> compute, Function<String, T> recompute) {
+        Map<String, Long> versions = versions(type, scope);
+        Map<String, T> documents = compute.get();
+        
+        List<String> conflicts = new ArrayList<>();
+        documents.forEach((id, document) -> {
+            if (!replace(type, id, document, versions.get(id))) {
+                conflicts.add(id);
+            }
+        });
+        versions.forEach((id, version) -> {
+            if (!documents.containsKey(id) && !remove(type, id, version)) {
+                conflicts.add(id);
+            }
+        });
+        
+        for (String id : conflicts) {
+            recompute(type, id, recompute);
+        }
+    }
+    
+    /**
+     * Sets the document with the given id to {@code recompute}'s result, retrying with backoff
+     * while live updates change it or are in flight.
+     */
+    <T> void recompute(Class<T> type, String id, Function<String, T> recompute) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0 && !backOff(attempt)) {
+                break;
+            }
+            Long version = version(type, id);
+            T document = recompute.apply(id);
+            
+            boolean written;
+            if (document != null) {
+                written = replace(type, id, document, version);
+            } else {
+                written = version == null || remove(type, id, version);
+            }
+            if (written) {
+                return;
+            }
+        }
+        log.warn("Gave up recomputing {} {} after {} concurrent updates", type.getSimpleName(), id, MAX_ATTEMPTS);
+    }
+    
+    Map<String, Long> versions(Class<?> type, Criteria scope) {
+        Query query = new Query(scope);
+        query.fields().include("_id", "version");
+        
+        Map<String, Long> versions = new HashMap<>();
+        for (Document document : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(type))) {
+            versions.put(document.getString("_id"), versionOf(document));
+        }
+        return versions;
+    }
+    
+    /** The document's version, or {@code null} if it does not exist. */
+    Long version(Class<?> type, String id) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        query.fields().include("_id", "version");
+        
+        Document document = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(type));
+        return document != null ? versionOf(document) : null;
+    }
+    
+    /**
+     * Writes the document if it is still at {@code expectedVersion}, or inserts it if
+     * {@code expectedVersion} is {@code null}. Returns whether it was written.
+     */
+    boolean replace(Class<?> type, String id, Object entity, Long expectedVersion) {
+        String collection = mongoTemplate.getCollectionName(type);
+        Document document = new Document();
+        mongoTemplate.getConverter().write(entity, document);
+        
+        if (expectedVersion == null) {
+            document.put("_id", id);
+            document.put("version", 0L);
+            try {
+                mongoTemplate.insert(document, collection);
+                return true;
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+        }
+        
+        document.remove("_id");
+        document.put("version", expectedVersion + 1);
+        Document filter = byVersion(id, expectedVersion).getQueryObject();
+        return mongoTemplate.execute(collection, c -> c.replaceOne(filter, document)).getMatchedCount() > 0;
+    }
+    
+    boolean remove(Class<?> type, String id, long expectedVersion) {
+        return mongoTemplate.remove(byVersion(id, expectedVersion), type).getDeletedCount() > 0;
+    }
+    
+    // Documents written before versions were introduced have none, which counts as version 0
+    static Query byVersion(String id, long version) {
+        Criteria atVersion = version == 0
+                ? new Criteria().orOperator(Criteria.where("version").is(0L), Criteria.where("version").exists(false))
+                : Criteria.where("version").is(version);
+        Criteria settled = new Criteria().orOperator(
+                Criteria.where("pending.0").exists(false),
+                Criteria.where("pendingAt").lt(Date.from(Instant.now().minus(PENDING_TIMEOUT))));
+        return new Query(Criteria.where("_id").is(id).andOperator(atVersion, settled));
+    }
+    
+    // Sleeps before the given retry, doubling each time; returns false if interrupted
+    static boolean backOff(int attempt) {
+        try {
+            Thread.sleep(BACKOFF_MILLIS << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private static long versionOf(Document document) {
+        Number version = (Number) document.get("version");
+        return version != null ? version.longValue() : 0;
+    }
+}
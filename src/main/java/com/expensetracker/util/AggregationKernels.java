@@ -0,0 +1,83 @@
+package com.expensetracker.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+
+/**
+ * Reductions over the primitive expense columns (epoch days, cents, category indexes). Every
+ * method considers only rows {@code [0, size)} whose day lies in {@code [startDay, endDay]} and,
+ * when {@code category >= 0}, whose category index equals it.
+ * <p>
+ * {@link #get()} returns SIMD kernels built on {@code jdk.incubator.vector} when they were compiled
+ * in (the {@code vector} Maven profile), the JVM was started with
+ * {@code --add-modules jdk.incubator.vector} and has 256-bit or wider vectors, otherwise the scalar
+ * implementation.
+ */
+public interface AggregationKernels {
+    
+    int COUNT = 0;
+    int SUM = 1;
+    int MIN = 2;
+    int MAX = 3;
+    
+    /**
+     * Writes count, sum, min and max of the matching cents into {@code out} at the
+     * {@link #COUNT}, {@link #SUM}, {@link #MIN} and {@link #MAX} offsets.
+     */
+    void summarize(int[] days, long[] cents, short[] categories, int size,
+                   int startDay, int endDay, int category, long[] out);
+    
+    /**
+     * Adds count and sum of matching rows per bucket, where bucket {@code b} covers days from
+     * {@code bucketStartDays[b]} up to the next bucket start (ascending starts, e.g. months).
+     */
+    void sumByBucket(int[] days, long[] cents, short[] categories, int size,
+                     int startDay, int endDay, int category, int[] bucketStartDays, long[] counts, long[] sums);
+    
+    /**
+     * Adds count and sum of matching rows per category index ({@code counts.length} categories).
+     */
+    void sumByCategory(int[] days, long[] cents, short[] categories, int size,
+                       int startDay, int endDay, int category, long[] counts, long[] sums);
+    
+    /**
+     * Adds the sum of matching rows per byte key (e.g. payment method ordinal).
+     */
+    void sumByKey(int[] days, long[] cents, short[] categories, byte[] keys, int size,
+                  int startDay, int endDay, int category, long[] sums);
+    
+    static AggregationKernels get() {
+        return Holder.INSTANCE;
+    }
+    
+    @Slf4j
+    final class Holder {
+        
+        private static final String VECTOR_KERNELS = "com.expensetracker.util.VectorAggregationKernels";
+        private static final AggregationKernels INSTANCE = create();
+        
+        private Holder() {
+        }
+        
+        private static AggregationKernels create() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                try {
+                    // Looked up by name: the class only exists in builds with the vector profile
+                    Method factory = Class.forName(VECTOR_KERNELS).getDeclaredMethod("createIfSupported");
+                    AggregationKernels kernels = (AggregationKernels) factory.invoke(null);
+                    if (kernels != null) {
+                        log.info("Using SIMD aggregation kernels");
+                        return kernels;
+                    }
+                } catch (ClassNotFoundException e) {
+                    log.debug("SIMD aggregation kernels not compiled in");
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    log.warn("Vector API unavailable, falling back to scalar aggregation kernels", e);
+                }
+            }
+            log.info("Using scalar aggregation kernels");
+            return new ScalarAggregationKernels();
+        }
+    }
+}
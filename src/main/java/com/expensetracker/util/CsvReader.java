@@ -0,0 +1,119 @@
+package com.expensetracker.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 reader: quoted fields may contain delimiters, doubled quotes and line breaks.
+ * Only the current record is held in memory, and records longer than {@code maxRecordLength}
+ * characters are rejected so a malformed file cannot grow it without bound.
+ */
+public class CsvReader implements Closeable {
+    
+    private final Reader reader;
+    private final char delimiter;
+    private final int maxRecordLength;
+    private final StringBuilder field = new StringBuilder();
+    
+    private long lineNumber = 1;
+    private int pending = -2; // one character of lookahead; -2 when none
+    
+    public CsvReader(Reader reader, char delimiter, int maxRecordLength) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.maxRecordLength = maxRecordLength;
+    }
+    
+    /**
+     * The fields of the next record, or {@code null} at the end of the input. Blank lines are skipped.
+     */
+    public List<String> next() throws IOException {
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        int length = 0;
+        boolean quoted = false;
+        boolean started = false;
+        
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (quoted) {
+                    throw new IOException("Unterminated quoted field at line " + lineNumber);
+                }
+                if (!started) {
+                    return null;
+                }
+                record.add(field.toString());
+                return record;
+            }
+            if (++length > maxRecordLength) {
+                throw new IOException("Record at line " + lineNumber + " exceeds " + maxRecordLength + " characters");
+            }
+            
+            if (quoted) {
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(following);
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+                started = true;
+            } else if (c == delimiter) {
+                record.add(field.toString());
+                field.setLength(0);
+                started = true;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') {
+                        unread(following);
+                    }
+                }
+                lineNumber++;
+                if (!started && field.length() == 0) {
+                    length = 0;
+                    continue;
+                }
+                record.add(field.toString());
+                return record;
+            } else if (c == '\uFEFF' && lineNumber == 1 && !started && field.length() == 0) {
+                // Byte order mark
+                length--;
+            } else {
+                field.append((char) c);
+                started = true;
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+    
+    private void unread(int c) {
+        pending = c;
+    }
+}
@@ -0,0 +1,54 @@
+package com.expensetracker.util;
+
+/**
+ * Dense long value per epoch day with O(1) reads and updates. The covered range grows (doubling)
+ * when a day outside it is updated, up to {@link FenwickTree#MAX_DAYS}; days outside it read as zero.
+ */
+public class DailyValues {
+    
+    private long firstDay;
+    private long[] values;
+    
+    public DailyValues(long firstDay, int days) {
+        this.firstDay = firstDay;
+        this.values = new long[Math.max(1, days)];
+    }
+    
+    /**
+     * @throws IllegalArgumentException if covering the day would span more than {@link FenwickTree#MAX_DAYS}
+     */
+    public void add(long day, long delta) {
+        ensureCovers(day);
+        int index = (int) (day - firstDay);
+        values[index] = Math.addExact(values[index], delta);
+    }
+    
+    public long get(long day) {
+        long index = day - firstDay;
+        return index >= 0 && index < values.length ? values[(int) index] : 0;
+    }
+    
+    private void ensureCovers(long day) {
+        long lastDay = firstDay + values.length - 1;
+        if (day >= firstDay && day <= lastDay) {
+            return;
+        }
+        
+        long newFirstDay = Math.min(firstDay, day);
+        long newLastDay = Math.max(lastDay, day);
+        long span = newLastDay - newFirstDay + 1;
+        if (span > FenwickTree.MAX_DAYS) {
+            throw new IllegalArgumentException("Covering day " + day + " would span more than " + FenwickTree.MAX_DAYS + " days");
+        }
+        int newDays = (int) Math.min(Math.max(span, values.length * 2L), FenwickTree.MAX_DAYS);
+        if (day < firstDay) {
+            // Grow towards the past by the extra capacity as well
+            newFirstDay = newLastDay - newDays + 1;
+        }
+        
+        long[] grown = new long[newDays];
+        System.arraycopy(values, 0, grown, (int) (firstDay - newFirstDay), values.length);
+        firstDay = newFirstDay;
+        values = grown;
+    }
+}
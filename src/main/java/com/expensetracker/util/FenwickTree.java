@@ -0,0 +1,94 @@
+package com.expensetracker.util;
+
+/**
+ * Binary indexed tree of long values over a contiguous range of epoch days, giving O(log n) point
+ * updates and range sums. The covered range grows (doubling) when a day outside it is updated, up
+ * to {@link #MAX_DAYS}.
+ */
+public class FenwickTree {
+    
+    // About 179 years, enough for any expense date from Expense.MIN_DATE to today
+    public static final int MAX_DAYS = 1 << 16;
+    
+    private long firstDay;
+    private long[] tree;
+    
+    public FenwickTree(long firstDay, int days) {
+        this.firstDay = firstDay;
+        this.tree = new long[Math.max(1, days) + 1];
+    }
+    
+    /**
+     * @throws IllegalArgumentException if covering the day would span more than {@link #MAX_DAYS}
+     */
+    public void add(long day, long delta) {
+        ensureCovers(day);
+        for (int i = (int) (day - firstDay) + 1; i < tree.length; i += i & -i) {
+            tree[i] = Math.addExact(tree[i], delta);
+        }
+    }
+    
+    /**
+     * Sum of values for days in {@code [fromDay, toDay]}; days outside the covered range count as zero.
+     */
+    public long sum(long fromDay, long toDay) {
+        if (fromDay > toDay) {
+            return 0;
+        }
+        return Math.subtractExact(prefix(toDay), prefix(fromDay - 1));
+    }
+    
+    public long firstDay() {
+        return firstDay;
+    }
+    
+    public int days() {
+        return tree.length - 1;
+    }
+    
+    // Sum of values for days up to and including the given day
+    private long prefix(long day) {
+        long offset = day - firstDay + 1;
+        if (offset <= 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = (int) Math.min(offset, tree.length - 1); i > 0; i -= i & -i) {
+            total = Math.addExact(total, tree[i]);
+        }
+        return total;
+    }
+    
+    private void ensureCovers(long day) {
+        long lastDay = firstDay + days() - 1;
+        if (day >= firstDay && day <= lastDay) {
+            return;
+        }
+        
+        long newFirstDay = Math.min(firstDay, day);
+        long newLastDay = Math.max(lastDay, day);
+        long span = newLastDay - newFirstDay + 1;
+        if (span > MAX_DAYS) {
+            throw new IllegalArgumentException("Covering day " + day + " would span more than " + MAX_DAYS + " days");
+        }
+        int newDays = (int) Math.min(Math.max(span, days() * 2L), MAX_DAYS);
+        if (day < firstDay) {
+            // Grow towards the past by the extra capacity as well
+            newFirstDay = newLastDay - newDays + 1;
+        }
+        
+        long[] values = new long[days()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = sum(firstDay + i, firstDay + i);
+        }
+        
+        long oldFirstDay = firstDay;
+        firstDay = newFirstDay;
+        tree = new long[newDays + 1];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0) {
+                add(oldFirstDay + i, values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.expensetracker.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable histogram of cent amounts with logarithmic buckets (the DDSketch mapping): bucket
+ * {@code i} holds values in {@code (GAMMA^(i-1), GAMMA^i]}, so any quantile is estimated within
+ * {@value #RELATIVE_ACCURACY} relative error. Unlike t-digest, counts can be decremented, which
+ * lets expense updates and deletes be applied incrementally. Bucket 0 holds zero amounts.
+ */
+public class LogHistogram {
+    
+    public static final double RELATIVE_ACCURACY = 0.01;
+    
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long totalCount;
+    
+    public static int bucketOf(long cents) {
+        return cents <= 0 ? 0 : Math.max(1, (int) Math.ceil(Math.log(cents) / LOG_GAMMA));
+    }
+    
+    /**
+     * Representative value of a bucket: the point with equal relative error to both bounds.
+     */
+    public static long valueOf(int bucket) {
+        return bucket == 0 ? 0 : Math.round(2 * Math.pow(GAMMA, bucket) / (GAMMA + 1));
+    }
+    
+    public void add(int bucket, long count) {
+        long updated = counts.merge(bucket, count, Long::sum);
+        if (updated <= 0) {
+            counts.remove(bucket);
+        }
+        totalCount += count;
+    }
+    
+    public long getTotalCount() {
+        return totalCount;
+    }
+    
+    public boolean isEmpty() {
+        return totalCount <= 0;
+    }
+    
+    /**
+     * Estimated value at quantile {@code q} in [0, 1], in cents.
+     */
+    public long quantile(double q) {
+        if (isEmpty()) {
+            return 0;
+        }
+        
+        long rank = (long) Math.ceil(q * totalCount);
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= Math.max(1, rank)) {
+                return valueOf(entry.getKey());
+            }
+        }
+        return valueOf(counts.lastKey());
+    }
+    
+    /**
+     * Collapses the buckets into at most {@code bins} groups of equal width in log space; each
+     * entry is {from cents, to cents, count}.
+     */
+    public List<long[]> bins(int bins) {
+        List<long[]> result = new ArrayList<>();
+        if (isEmpty()) {
+            return result;
+        }
+        
+        int first = counts.firstKey();
+        int last = counts.lastKey();
+        int width = Math.max(1, (int) Math.ceil((last - first + 1) / (double) bins));
+        
+        for (int from = first; from <= last; from += width) {
+            int to = from + width - 1;
+            long count = counts.subMap(from, true, to, true).values().stream().mapToLong(Long::longValue).sum();
+            if (count > 0) {
+                long lower = from <= 1 ? from : (long) Math.floor(Math.pow(GAMMA, from - 1)) + 1;
+                long upper = to == 0 ? 0 : (long) Math.floor(Math.pow(GAMMA, to));
+                result.add(new long[]{lower, upper, count});
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package com.expensetracker.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of an evenly spaced series: keeps the first and last
+ * points and, from each of {@code maxPoints - 2} buckets in between, the point forming the largest
+ * triangle with the previously kept point and the next bucket's average. One pass; every value is
+ * read at most twice.
+ */
+public final class Lttb {
+    
+    private Lttb() {
+    }
+    
+    /**
+     * Indexes of the kept points, ascending.
+     */
+    public static List<Integer> downsample(long[] values, int maxPoints) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints must be at least 3");
+        }
+        int size = values.length;
+        List<Integer> kept = new ArrayList<>(Math.min(size, maxPoints));
+        if (maxPoints >= size) {
+            for (int i = 0; i < size; i++) {
+                kept.add(i);
+            }
+            return kept;
+        }
+        
+        double bucketSize = (double) (size - 2) / (maxPoints - 2);
+        int previous = 0;
+        kept.add(previous);
+        
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, size);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += i;
+                averageY += values[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            averageX /= nextCount;
+            averageY /= nextCount;
+            
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+            double largestArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                // Twice the triangle area; only the comparison matters
+                double area = Math.abs((previous - averageX) * (values[i] - values[previous])
+                        - (previous - i) * (averageY - values[previous]));
+                if (area > largestArea) {
+                    largestArea = area;
+                    chosen = i;
+                }
+            }
+            
+            kept.add(chosen);
+            previous = chosen;
+        }
+        
+        kept.add(size - 1);
+        return kept;
+    }
+}
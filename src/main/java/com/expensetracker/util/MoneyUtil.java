@@ -0,0 +1,42 @@
+package com.expensetracker.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money helpers. Amounts are validated to at most two fraction digits
+ * ({@code @Digits(integer = 10, fraction = 2)} on requests), so they can be accumulated as a
+ * primitive {@code long} number of cents in hot loops and only turned back into a
+ * {@link BigDecimal} at the DTO boundary.
+ */
+public final class MoneyUtil {
+    
+    private static final int SCALE = 2;
+    
+    private MoneyUtil() {
+    }
+    
+    /**
+     * Converts an amount to cents; throws {@link ArithmeticException} if it does not fit in a long.
+     * Amounts stored with more fraction digits, before requests were validated, are rounded half
+     * even to the cent rather than rejected.
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+    
+    public static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+    
+    /**
+     * Overflow-checked addition of two cent values.
+     */
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+    
+    public static long subtract(long cents, long otherCents) {
+        return Math.subtractExact(cents, otherCents);
+    }
+}
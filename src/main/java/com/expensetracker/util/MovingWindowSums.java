@@ -0,0 +1,102 @@
+package com.expensetracker.util;
+
+import java.util.Arrays;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Sums of daily values over several trailing windows (e.g. 7, 30 and 90 days) ending at
+ * {@link #endDay()}, backed by a ring buffer of the last {@code max(windows)} days. Changing a
+ * day's value adjusts every window that contains it in O(window count); moving the end forward
+ * costs O(window count) per day.
+ */
+public class MovingWindowSums {
+    
+    private final int[] windows;
+    private final long[] sums;
+    private final long[] ring;
+    private long endDay;
+    
+    public MovingWindowSums(int[] windows, long endDay) {
+        this.windows = windows.clone();
+        this.sums = new long[windows.length];
+        this.ring = new long[maxOf(windows)];
+        this.endDay = endDay;
+    }
+    
+    public long endDay() {
+        return endDay;
+    }
+    
+    public long sum(int windowIndex) {
+        return sums[windowIndex];
+    }
+    
+    public void add(long day, long delta) {
+        if (day > endDay) {
+            advanceTo(day);
+        }
+        if (day <= endDay - ring.length) {
+            return;
+        }
+        
+        ring[slot(day)] += delta;
+        for (int i = 0; i < windows.length; i++) {
+            if (day > endDay - windows[i]) {
+                sums[i] += delta;
+            }
+        }
+    }
+    
+    /**
+     * Moves the end of every window forward to {@code day}; days entering the windows count as zero
+     * until {@link #add}ed.
+     */
+    public void advanceTo(long day) {
+        if (day - endDay >= ring.length) {
+            Arrays.fill(ring, 0);
+            Arrays.fill(sums, 0);
+            endDay = day;
+            return;
+        }
+        
+        while (endDay < day) {
+            long entering = endDay + 1;
+            for (int i = 0; i < windows.length; i++) {
+                // The leaving day's slot is only reused by the entering day for the longest window
+                sums[i] -= ring[slot(entering - windows[i])];
+            }
+            ring[slot(entering)] = 0;
+            endDay = entering;
+        }
+    }
+    
+    /**
+     * Trailing window sums for every day in {@code [fromDay, toDay]} in one pass over the daily
+     * values, indexed {@code [window][day - fromDay]}.
+     */
+    public static long[][] series(int[] windows, long fromDay, long toDay, LongUnaryOperator dailyValue) {
+        MovingWindowSums moving = new MovingWindowSums(windows, fromDay - 1 - maxOf(windows));
+        long[][] series = new long[windows.length][(int) (toDay - fromDay + 1)];
+        for (long day = moving.endDay + 1; day <= toDay; day++) {
+            moving.add(day, dailyValue.applyAsLong(day));
+            if (day >= fromDay) {
+                for (int i = 0; i < windows.length; i++) {
+                    series[i][(int) (day - fromDay)] = moving.sums[i];
+                }
+            }
+        }
+        return series;
+    }
+    
+    private int slot(long day) {
+        return (int) Math.floorMod(day, (long) ring.length);
+    }
+    
+    private static int maxOf(int[] windows) {
+        int longest = 1;
+        for (int window : windows) {
+            longest = Math.max(longest, window);
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,94 @@
+package com.expensetracker.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming reader of the transactions ({@code <STMTTRN>} aggregates) of an OFX statement, for both
+ * the SGML (1.x, unclosed elements) and XML (2.x) flavours. Only the elements listed are kept, and
+ * only the current transaction is held in memory.
+ */
+public class OfxReader implements Closeable {
+    
+    private static final String TRANSACTION = "STMTTRN";
+    private static final int MAX_TOKEN_LENGTH = 4096;
+    
+    private final Reader reader;
+    private final Set<String> elements;
+    private final StringBuilder token = new StringBuilder();
+    
+    private int c = -2; // current character, carried over between calls; -2 before the first read
+    
+    public OfxReader(Reader reader, Set<String> elements) {
+        this.reader = reader;
+        this.elements = elements;
+    }
+    
+    /**
+     * Element name to text of the next transaction, or {@code null} at the end of the input.
+     */
+    public Map<String, String> next() throws IOException {
+        Map<String, String> transaction = null;
+        String element = null;
+        
+        if (c == -2) {
+            c = reader.read();
+        }
+        while (c != -1) {
+            if (c != '<') {
+                // Text: the value of the element just opened
+                c = readUntil('<', c);
+                String text = token.toString().trim();
+                if (transaction != null && element != null && !text.isEmpty() && elements.contains(element)) {
+                    transaction.put(element, unescape(text));
+                }
+                continue;
+            }
+            
+            c = readUntil('>', reader.read());
+            String tag = token.toString().trim().toUpperCase();
+            if (tag.equals(TRANSACTION)) {
+                transaction = new HashMap<>();
+            } else if (tag.equals("/" + TRANSACTION) && transaction != null) {
+                return transaction;
+            }
+            element = tag.startsWith("/") || tag.startsWith("?") || tag.startsWith("!") ? null : tag;
+        }
+        return null;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    private static String unescape(String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+        return text.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&nbsp;", " ")
+                .replace("&amp;", "&");
+    }
+    
+    // Reads into the token from the given character up to the terminator (consumed for '>' only)
+    private int readUntil(char terminator, int first) throws IOException {
+        token.setLength(0);
+        int next = first;
+        while (next != -1 && next != terminator) {
+            if (token.length() == MAX_TOKEN_LENGTH) {
+                throw new IOException("OFX token exceeds " + MAX_TOKEN_LENGTH + " characters");
+            }
+            token.append((char) next);
+            next = reader.read();
+        }
+        return terminator == '>' && next != -1 ? reader.read() : next;
+    }
+}
@@ -0,0 +1,66 @@
+package com.expensetracker.util;
+
+/**
+ * Count, mean and sum of squared deviations of a stream of values, maintained with Welford's
+ * update so a value can be added or removed in O(1) without loss of precision from large sums.
+ */
+public class RunningStats {
+    
+    private long count;
+    private double mean;
+    private double m2;
+    
+    public RunningStats() {
+    }
+    
+    public RunningStats(RunningStats other) {
+        this.count = other.count;
+        this.mean = other.mean;
+        this.m2 = other.m2;
+    }
+    
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+    
+    /**
+     * Reverses {@link #add} for a value previously added.
+     */
+    public void remove(double value) {
+        if (count <= 1) {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+            return;
+        }
+        double previousMean = (count * mean - value) / (count - 1);
+        m2 = Math.max(0, m2 - (value - mean) * (value - previousMean));
+        mean = previousMean;
+        count--;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public double getMean() {
+        return mean;
+    }
+    
+    /**
+     * Sum of squared deviations from the mean.
+     */
+    public double getM2() {
+        return m2;
+    }
+    
+    /**
+     * Sample standard deviation, or zero with fewer than two values.
+     */
+    public double getStandardDeviation() {
+        return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0;
+    }
+}
@@ -0,0 +1,117 @@
+package com.expensetracker.util;
+
+import java.util.Arrays;
+
+/**
+ * Plain loop implementation of {@link AggregationKernels}; also the grouped sums of the vector
+ * kernels, where one pass with a scatter into the groups beats a masked vector pass per group.
+ */
+public class ScalarAggregationKernels implements AggregationKernels {
+    
+    // Bucket sums use a day -> bucket table (at most 256 KB) unless it would outweigh the rows scanned
+    private static final int MAX_LOOKUP_DAYS = 1 << 16;
+    
+    @Override
+    public void summarize(int[] days, long[] cents, short[] categories, int size,
+                          int startDay, int endDay, int category, long[] out) {
+        long count = 0;
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        
+        for (int i = 0; i < size; i++) {
+            if (matches(days[i], categories[i], startDay, endDay, category)) {
+                long value = cents[i];
+                count++;
+                sum = Math.addExact(sum, value);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        
+        out[COUNT] = count;
+        out[SUM] = sum;
+        out[MIN] = min;
+        out[MAX] = max;
+    }
+    
+    @Override
+    public void sumByBucket(int[] days, long[] cents, short[] categories, int size,
+                            int startDay, int endDay, int category, int[] bucketStartDays, long[] counts, long[] sums) {
+        if (bucketStartDays.length == 0) {
+            return;
+        }
+        int firstDay = Math.max(startDay, bucketStartDays[0]);
+        long span = (long) endDay - firstDay + 1;
+        if (span <= 0) {
+            return;
+        }
+        if (span > MAX_LOOKUP_DAYS || span > 4L * size) {
+            sumByBucketSearch(days, cents, categories, size, firstDay, endDay, category, bucketStartDays, counts, sums);
+            return;
+        }
+        
+        // Bucket of every day in the range, so each row costs one array read instead of a search
+        int[] bucketOfDay = new int[(int) span];
+        for (int b = 0; b < bucketStartDays.length; b++) {
+            int from = clamp(bucketStartDays[b] - firstDay, (int) span);
+            int to = b + 1 < bucketStartDays.length ? clamp(bucketStartDays[b + 1] - firstDay, (int) span) : (int) span;
+            if (from < to) {
+                Arrays.fill(bucketOfDay, from, to, b);
+            }
+        }
+        
+        for (int i = 0; i < size; i++) {
+            int day = days[i];
+            if (matches(day, categories[i], firstDay, endDay, category)) {
+                int bucket = bucketOfDay[day - firstDay];
+                counts[bucket]++;
+                sums[bucket] = Math.addExact(sums[bucket], cents[i]);
+            }
+        }
+    }
+    
+    private static void sumByBucketSearch(int[] days, long[] cents, short[] categories, int size,
+                                          int startDay, int endDay, int category, int[] bucketStartDays,
+                                          long[] counts, long[] sums) {
+        for (int i = 0; i < size; i++) {
+            int day = days[i];
+            if (matches(day, categories[i], startDay, endDay, category)) {
+                int index = Arrays.binarySearch(bucketStartDays, day);
+                int bucket = index >= 0 ? index : -index - 2;
+                counts[bucket]++;
+                sums[bucket] = Math.addExact(sums[bucket], cents[i]);
+            }
+        }
+    }
+    
+    @Override
+    public void sumByCategory(int[] days, long[] cents, short[] categories, int size,
+                              int startDay, int endDay, int category, long[] counts, long[] sums) {
+        for (int i = 0; i < size; i++) {
+            if (matches(days[i], categories[i], startDay, endDay, category)) {
+                int index = categories[i];
+                counts[index]++;
+                sums[index] = Math.addExact(sums[index], cents[i]);
+            }
+        }
+    }
+    
+    @Override
+    public void sumByKey(int[] days, long[] cents, short[] categories, byte[] keys, int size,
+                         int startDay, int endDay, int category, long[] sums) {
+        for (int i = 0; i < size; i++) {
+            if (matches(days[i], categories[i], startDay, endDay, category)) {
+                sums[keys[i]] = Math.addExact(sums[keys[i]], cents[i]);
+            }
+        }
+    }
+    
+    private static int clamp(int offset, int span) {
+        return Math.max(0, Math.min(span, offset));
+    }
+    
+    static boolean matches(int day, short rowCategory, int startDay, int endDay, int category) {
+        return day >= startDay && day <= endDay && (category < 0 || rowCategory == category);
+    }
+}
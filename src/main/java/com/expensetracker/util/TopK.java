@@ -0,0 +1,55 @@
+package com.expensetracker.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the {@code k} greatest items offered, according to the given comparator, in a min-heap of
+ * at most {@code k} entries: O(n log k) time and O(k) memory instead of sorting all n items. The
+ * comparator should be a total order (break ties on a unique key) so results are deterministic.
+ */
+public final class TopK<T> {
+    
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private final PriorityQueue<T> heap;
+    
+    public TopK(int k, Comparator<? super T> comparator) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)) + 1, comparator);
+    }
+    
+    public void offer(T item) {
+        if (heap.size() < k) {
+            heap.add(item);
+        } else if (k > 0 && comparator.compare(item, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(item);
+        }
+    }
+    
+    public void offerAll(Iterable<? extends T> items) {
+        for (T item : items) {
+            offer(item);
+        }
+    }
+    
+    public int size() {
+        return heap.size();
+    }
+    
+    /**
+     * The retained items, greatest first.
+     */
+    public List<T> toSortedList() {
+        List<T> sorted = new ArrayList<>(heap);
+        sorted.sort(comparator.reversed());
+        return sorted;
+    }
+}
@@ -0,0 +1,171 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseRepositoryCustomImpl;
+import com.expensetracker.service.AnalyticsAccumulator;
+import com.expensetracker.support.MongoTestSupport;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * One dashboard request computed by the server-side $facet aggregation, by the STREAMING engine's
+ * single pass over a projected cursor, and by fetching the range's full documents and computing
+ * every section in the JVM, as {@code getAnalytics} did before either engine. The gc profiler the
+ * jmh profile enables reports allocation per request as {@code gc.alloc.rate.norm}. Runs against the MongoDB at {@code BENCHMARK_MONGO_URI} when it is set and
+ * against an in-memory mongo-java-server otherwise. The in-memory server runs in the benchmark JVM
+ * and leaves out network and storage costs, so compare engines only against a real server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyticsEngineBenchmark {
+    
+    private static final String USER_ID = "benchmark-user";
+    private static final String DATABASE = "analytics_benchmark";
+    private static final int CATEGORIES = 12;
+    private static final int YEARS = 5;
+    private static final int TOP_EXPENSES_LIMIT = 10;
+    private static final Expense.PaymentMethod[] PAYMENT_METHODS = Expense.PaymentMethod.values();
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+    
+    @Param({"1000", "20000"})
+    private int rows;
+    
+    @Param({"1", "5"})
+    private int rangeYears;
+    
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private ExpenseRepository expenseRepository;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    
+    @Setup
+    public void setUp() {
+        String uri = System.getenv("BENCHMARK_MONGO_URI");
+        if (uri == null || uri.isBlank()) {
+            server = new MongoServer(new MemoryBackend());
+            client = MongoClients.create(server.bindAndGetConnectionString());
+            mongoTemplate = MongoTestSupport.inMemoryMongoTemplate(client, DATABASE);
+        } else {
+            client = MongoClients.create(uri);
+            mongoTemplate = MongoTestSupport.mongoTemplate(client, DATABASE);
+        }
+        mongoTemplate.dropCollection(Expense.class);
+        mongoTemplate.indexOps(Expense.class).ensureIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("date", Sort.Direction.DESC)
+                .named("user_date_idx"));
+        expenseRepository = MongoTestSupport.repository(mongoTemplate, ExpenseRepository.class,
+                new ExpenseRepositoryCustomImpl(mongoTemplate));
+        
+        Random random = new Random(42);
+        endDate = LocalDate.of(2024, 12, 31);
+        startDate = endDate.minusYears(rangeYears).plusDays(1);
+        
+        List<Expense> expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Expense expense = new Expense();
+            expense.setUserId(USER_ID);
+            expense.setDate(endDate.minusDays(random.nextInt(YEARS * 365)));
+            expense.setAmount(BigDecimal.valueOf(random.nextInt(50_000) + 1, 2));
+            expense.setCategoryId("category-" + random.nextInt(CATEGORIES));
+            expense.setPaymentMethod(PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+            expense.setMerchant("merchant-" + random.nextInt(500));
+            expense.setDescription("expense " + i);
+            // The fields the dashboard never reads still travel when whole documents are fetched
+            expense.setNotes("note ".repeat(20));
+            expense.setTags(List.of("tag-" + random.nextInt(30), "tag-" + random.nextInt(30)));
+            expense.setReceiptUrls(List.of("https://receipts.example.com/" + i + ".jpg"));
+            expenses.add(expense);
+        }
+        mongoTemplate.insertAll(expenses);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        mongoTemplate.dropCollection(Expense.class);
+        client.close();
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+    
+    @Benchmark
+    public Document facetAggregation() {
+        return expenseRepository.aggregateAnalytics(USER_ID, startDate, endDate, TOP_EXPENSES_LIMIT);
+    }
+    
+    @Benchmark
+    public AnalyticsAccumulator streamedCursor() {
+        AnalyticsAccumulator accumulator = new AnalyticsAccumulator(TOP_EXPENSES_LIMIT);
+        try (Stream<Expense> expenses = expenseRepository.streamForAnalytics(USER_ID, null, startDate, endDate)) {
+            expenses.forEach(accumulator::accept);
+        }
+        return accumulator;
+    }
+    
+    @Benchmark
+    public Object[] fetchedDocuments() {
+        List<Expense> expenses = expenseRepository.findExpensesByUserAndDateRange(USER_ID, startDate, endDate);
+        return sectionsInJvm(expenses);
+    }
+    
+    // The sections as the list-based getAnalytics computed them: one pass per section over the list
+    private static Object[] sectionsInJvm(List<Expense> expenses) {
+        BigDecimal total = expenses.stream().map(Expense::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal highest = expenses.stream().map(Expense::getAmount).max(BigDecimal::compareTo).orElse(BigDecimal.ZERO);
+        BigDecimal lowest = expenses.stream().map(Expense::getAmount).min(BigDecimal::compareTo).orElse(BigDecimal.ZERO);
+        
+        Map<String, BigDecimal> categories = expenses.stream().collect(Collectors.groupingBy(Expense::getCategoryId,
+                Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)));
+        Map<String, BigDecimal> months = expenses.stream().collect(Collectors.groupingBy(
+                expense -> expense.getDate().format(MONTH),
+                Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)));
+        Map<String, BigDecimal> paymentMethods = expenses.stream().collect(Collectors.groupingBy(
+                expense -> expense.getPaymentMethod().name(),
+                Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)));
+        
+        List<Expense> topExpenses = expenses.stream()
+                .sorted(Comparator.comparing(Expense::getAmount).reversed())
+                .limit(TOP_EXPENSES_LIMIT)
+                .toList();
+        
+        return new Object[]{total, highest, lowest, categories, months, paymentMethods, topExpenses};
+    }
+}
@@ -0,0 +1,87 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.service.AnalyticsAccumulator;
+import com.expensetracker.service.ExpenseColumns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard aggregation over one user's expenses: the COLUMNAR engine's scan of primitive columns
+ * against feeding decoded {@link Expense} objects to {@link AnalyticsAccumulator}, which is what the
+ * STREAMING engine does once the cursor has decoded them. Mongo I/O is left out of both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarScanBenchmark {
+    
+    private static final int CATEGORIES = 12;
+    private static final int YEARS = 5;
+    private static final Expense.PaymentMethod[] PAYMENT_METHODS = Expense.PaymentMethod.values();
+    
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+    
+    private List<Expense> expenses;
+    private ExpenseColumns columns;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        endDate = LocalDate.of(2024, 12, 31);
+        startDate = endDate.minusYears(1).plusDays(1);
+        
+        expenses = new ArrayList<>(rows);
+        columns = new ExpenseColumns();
+        for (int i = 0; i < rows; i++) {
+            Expense expense = new Expense();
+            expense.setId(Integer.toHexString(i));
+            expense.setDate(endDate.minusDays(random.nextInt(YEARS * 365)));
+            expense.setAmount(BigDecimal.valueOf(random.nextInt(50_000) + 1, 2));
+            expense.setCategoryId("category-" + random.nextInt(CATEGORIES));
+            expense.setPaymentMethod(PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+            expense.setMerchant("merchant-" + random.nextInt(500));
+            expenses.add(expense);
+            columns.upsert(expense);
+        }
+    }
+    
+    @Benchmark
+    public ExpenseColumns.Aggregate columnar() {
+        return columns.aggregate(startDate, endDate, null, 10);
+    }
+    
+    @Benchmark
+    public AnalyticsAccumulator decodedObjects() {
+        AnalyticsAccumulator accumulator = new AnalyticsAccumulator(10);
+        for (Expense expense : expenses) {
+            LocalDate date = expense.getDate();
+            if (!date.isBefore(startDate) && !date.isAfter(endDate)) {
+                accumulator.accept(expense);
+            }
+        }
+        return accumulator;
+    }
+}
@@ -0,0 +1,107 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.util.AggregationKernels;
+import com.expensetracker.util.ScalarAggregationKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar against SIMD {@link AggregationKernels} over one year of a five-year column set. The SIMD
+ * side is whatever {@link AggregationKernels#get()} picks, so run with {@code -Pvector} to compare
+ * against the Vector API kernels; otherwise both sides are scalar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class KernelBenchmark {
+    
+    private static final int CATEGORIES = 12;
+    private static final int PAYMENT_METHODS = 7;
+    private static final int END_DAY = 20_088; // 2024-12-31
+    private static final int START_DAY = END_DAY - 364;
+    
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+    
+    private int[] days;
+    private long[] cents;
+    private short[] categories;
+    private byte[] paymentMethods;
+    private int[] monthStartDays;
+    
+    private final AggregationKernels scalar = new ScalarAggregationKernels();
+    private final AggregationKernels selected = AggregationKernels.get();
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        days = new int[rows];
+        cents = new long[rows];
+        categories = new short[rows];
+        paymentMethods = new byte[rows];
+        for (int i = 0; i < rows; i++) {
+            days[i] = END_DAY - random.nextInt(5 * 365);
+            cents[i] = random.nextInt(50_000) + 1;
+            categories[i] = (short) random.nextInt(CATEGORIES);
+            paymentMethods[i] = (byte) random.nextInt(PAYMENT_METHODS);
+        }
+        
+        monthStartDays = new int[13];
+        for (int month = 0; month < monthStartDays.length; month++) {
+            monthStartDays[month] = START_DAY - 10 + month * 30;
+        }
+    }
+    
+    @Benchmark
+    public long[] summarizeScalar() {
+        return summarize(scalar);
+    }
+    
+    @Benchmark
+    public long[] summarizeSelected() {
+        return summarize(selected);
+    }
+    
+    @Benchmark
+    public long[] dashboardScalar() {
+        return dashboard(scalar);
+    }
+    
+    @Benchmark
+    public long[] dashboardSelected() {
+        return dashboard(selected);
+    }
+    
+    private long[] summarize(AggregationKernels kernels) {
+        long[] out = new long[4];
+        kernels.summarize(days, cents, categories, rows, START_DAY, END_DAY, -1, out);
+        return out;
+    }
+    
+    // Every reduction ExpenseColumns.aggregate runs for an unfiltered dashboard
+    private long[] dashboard(AggregationKernels kernels) {
+        long[] out = summarize(kernels);
+        kernels.sumByCategory(days, cents, categories, rows, START_DAY, END_DAY, -1,
+                new long[CATEGORIES], new long[CATEGORIES]);
+        kernels.sumByBucket(days, cents, categories, rows, START_DAY, END_DAY, -1,
+                monthStartDays, new long[monthStartDays.length], new long[monthStartDays.length]);
+        kernels.sumByKey(days, cents, categories, paymentMethods, rows, START_DAY, END_DAY, -1,
+                new long[PAYMENT_METHODS]);
+        return out;
+    }
+}
@@ -0,0 +1,74 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.util.MoneyUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summing a range's amounts per category as {@link BigDecimal}s, as the analytics and budget loops
+ * did, against converting each amount to long cents once and summing with {@link MoneyUtil#add}.
+ * The jmh profile's gc profiler reports the allocation per sum.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+    
+    private static final int CATEGORIES = 12;
+    
+    @Param({"1000", "100000"})
+    private int rows;
+    
+    private BigDecimal[] amounts;
+    private int[] categories;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        amounts = new BigDecimal[rows];
+        categories = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            amounts[i] = BigDecimal.valueOf(random.nextInt(50_000) + 1, 2);
+            categories[i] = random.nextInt(CATEGORIES);
+        }
+    }
+    
+    @Benchmark
+    public BigDecimal[] bigDecimalSums() {
+        BigDecimal[] totals = new BigDecimal[CATEGORIES + 1];
+        Arrays.fill(totals, BigDecimal.ZERO);
+        for (int i = 0; i < rows; i++) {
+            totals[categories[i]] = totals[categories[i]].add(amounts[i]);
+            totals[CATEGORIES] = totals[CATEGORIES].add(amounts[i]);
+        }
+        return totals;
+    }
+    
+    @Benchmark
+    public long[] centSums() {
+        long[] totals = new long[CATEGORIES + 1];
+        for (int i = 0; i < rows; i++) {
+            long cents = MoneyUtil.toCents(amounts[i]);
+            totals[categories[i]] = MoneyUtil.add(totals[categories[i]], cents);
+            totals[CATEGORIES] = MoneyUtil.add(totals[CATEGORIES], cents);
+        }
+        return totals;
+    }
+}
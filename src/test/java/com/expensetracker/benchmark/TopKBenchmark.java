@@ -0,0 +1,75 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.service.AnalyticsAccumulator;
+import com.expensetracker.util.TopK;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code k} largest expenses of a range from a {@link TopK} heap against sorting the whole
+ * range and taking the first {@code k}, as {@code getTopExpenses} did. Both use the same
+ * tie-breaking comparator, so they select the same expenses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TopKBenchmark {
+    
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+    
+    @Param({"10", "1000"})
+    private int k;
+    
+    private List<Expense> expenses;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+        
+        expenses = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Expense expense = new Expense();
+            expense.setId(Integer.toHexString(i));
+            expense.setDate(endDate.minusDays(random.nextInt(365)));
+            expense.setAmount(BigDecimal.valueOf(random.nextInt(50_000) + 1, 2));
+            expenses.add(expense);
+        }
+    }
+    
+    @Benchmark
+    public List<Expense> boundedHeap() {
+        TopK<Expense> topExpenses = new TopK<>(k, AnalyticsAccumulator.BY_AMOUNT);
+        topExpenses.offerAll(expenses);
+        return topExpenses.toSortedList();
+    }
+    
+    @Benchmark
+    public List<Expense> fullSort() {
+        return expenses.stream()
+                .sorted(AnalyticsAccumulator.BY_AMOUNT.reversed())
+                .limit(k)
+                .toList();
+    }
+}
@@ -0,0 +1,173 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.analytics.AnalyticsResponse;
+import com.expensetracker.model.Expense;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseRepositoryCustomImpl;
+import com.expensetracker.repository.ExpenseRollupRepository;
+import com.expensetracker.repository.ExpenseRollupRepositoryCustomImpl;
+import com.expensetracker.support.MongoTestSupport;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs every analytics engine against the same expenses in an in-memory MongoDB and checks that
+ * they return the same dashboard and category summaries.
+ */
+class AnalyticsEngineEquivalenceTest {
+    
+    private static final String USER_ID = "user-1";
+    private static final String[] CATEGORIES = {"groceries", "rent", "travel", "dining", "utilities"};
+    private static final Expense.PaymentMethod[] PAYMENT_METHODS = Expense.PaymentMethod.values();
+    
+    private static MongoServer server;
+    private static MongoClient client;
+    private static Map<AnalyticsService.Engine, AnalyticsService> services;
+    
+    @BeforeAll
+    static void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        MongoTemplate mongoTemplate = MongoTestSupport.inMemoryMongoTemplate(client, "analytics");
+        mongoTemplate.insertAll(fixture());
+        
+        ExpenseRepository expenseRepository = MongoTestSupport.repository(mongoTemplate,
+                ExpenseRepository.class, new ExpenseRepositoryCustomImpl(mongoTemplate));
+        ExpenseRollupRepository expenseRollupRepository = MongoTestSupport.repository(mongoTemplate,
+                ExpenseRollupRepository.class, new ExpenseRollupRepositoryCustomImpl(mongoTemplate));
+        
+        AnalyticsBlockCache analyticsBlockCache = mock(AnalyticsBlockCache.class); // nothing cached
+        ExpenseRollupService expenseRollupService = new ExpenseRollupService(expenseRepository, mongoTemplate,
+                new VersionedDocuments(mongoTemplate), analyticsBlockCache);
+        expenseRollupService.rebuildAll();
+        
+        ColumnarExpenseStore columnarExpenseStore = new ColumnarExpenseStore(mongoTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(columnarExpenseStore, "memoryBudgetMb", 16L);
+        ReflectionTestUtils.setField(columnarExpenseStore, "ttlSeconds", 300L);
+        columnarExpenseStore.init();
+        
+        services = new EnumMap<>(AnalyticsService.Engine.class);
+        for (AnalyticsService.Engine engine : AnalyticsService.Engine.values()) {
+            AnalyticsService service = new AnalyticsService(expenseRepository, mock(CategoryNameResolver.class),
+                    expenseRollupRepository, mongoTemplate, analyticsBlockCache, columnarExpenseStore,
+                    mock(SpendIndexService.class), expenseRollupService, new MockEnvironment());
+            ReflectionTestUtils.setField(service, "engine", engine);
+            services.put(engine, service);
+        }
+    }
+    
+    @AfterAll
+    static void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Test
+    void enginesReturnTheSameDashboard() {
+        assertSameAnalytics(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31));
+        assertSameAnalytics(LocalDate.of(2023, 2, 10), LocalDate.of(2023, 7, 20));
+        assertSameAnalytics(LocalDate.of(2023, 5, 17), LocalDate.of(2023, 5, 17));
+        assertSameAnalytics(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 3, 31)); // no expenses
+    }
+    
+    @Test
+    void enginesReturnTheSameCategorySummary() {
+        for (String categoryId : CATEGORIES) {
+            Map<String, Object> expected = services.get(AnalyticsService.Engine.AGGREGATION)
+                    .getCategoryAnalytics(USER_ID, categoryId, LocalDate.of(2023, 3, 5), LocalDate.of(2023, 10, 28));
+            services.forEach((engine, service) -> assertEquals(expected,
+                    service.getCategoryAnalytics(USER_ID, categoryId, LocalDate.of(2023, 3, 5), LocalDate.of(2023, 10, 28)),
+                    engine + " summary of " + categoryId));
+        }
+    }
+    
+    @Test
+    void amountsAreReturnedWithTwoDecimals() {
+        services.forEach((engine, service) -> {
+            AnalyticsResponse response = service.getAnalytics(USER_ID, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31));
+            assertEquals(2, response.getSummary().getTotalExpenses().scale(), engine + " total");
+            response.getTopExpenses().forEach(expense -> assertEquals(2, expense.getAmount().scale(), engine + " top"));
+        });
+    }
+    
+    private static void assertSameAnalytics(LocalDate startDate, LocalDate endDate) {
+        AnalyticsResponse expected = services.get(AnalyticsService.Engine.AGGREGATION).getAnalytics(USER_ID, startDate, endDate);
+        services.forEach((engine, service) -> assertEquals(expected, service.getAnalytics(USER_ID, startDate, endDate),
+                engine + " analytics for " + startDate + ".." + endDate));
+    }
+    
+    // Distinct amounts, so the order of the top expenses and of the breakdowns is fully determined
+    private static List<Expense> fixture() {
+        Random random = new Random(11);
+        List<Integer> cents = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            cents.add(100 + i * 37);
+        }
+        Collections.shuffle(cents, random);
+        
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < cents.size(); i++) {
+            Expense expense = new Expense();
+            expense.setUserId(USER_ID);
+            expense.setCategoryId(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            // Some amounts are stored with fewer than two decimals, as the baseline allowed
+            expense.setAmount(i % 10 == 0
+                    ? BigDecimal.valueOf(cents.get(i), 2).stripTrailingZeros()
+                    : BigDecimal.valueOf(cents.get(i), 2));
+            expense.setDate(LocalDate.of(2023, 1, 1).plusDays(random.nextInt(365)));
+            expense.setPaymentMethod(PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+            expense.setDescription("expense " + i);
+            expenses.add(expense);
+        }
+        
+        // The largest and smallest amounts, stored with fewer than two decimals
+        expenses.add(expense(new BigDecimal("250"), LocalDate.of(2023, 5, 17)));
+        expenses.add(expense(new BigDecimal("0.5"), LocalDate.of(2023, 5, 17)));
+        
+        // Reported under OTHER, together with the expenses that have OTHER set
+        Expense withoutPaymentMethod = expense(new BigDecimal("33.33"), LocalDate.of(2023, 8, 9));
+        withoutPaymentMethod.setPaymentMethod(null);
+        expenses.add(withoutPaymentMethod);
+        
+        Expense other = new Expense(); // another user's expense must not leak in
+        other.setUserId("user-2");
+        other.setCategoryId(CATEGORIES[0]);
+        other.setAmount(new BigDecimal("99999.99"));
+        other.setDate(LocalDate.of(2023, 6, 1));
+        other.setPaymentMethod(Expense.PaymentMethod.CASH);
+        expenses.add(other);
+        return expenses;
+    }
+    
+    private static Expense expense(BigDecimal amount, LocalDate date) {
+        Expense expense = new Expense();
+        expense.setUserId(USER_ID);
+        expense.setCategoryId(CATEGORIES[1]);
+        expense.setAmount(amount);
+        expense.setDate(date);
+        expense.setPaymentMethod(Expense.PaymentMethod.UPI);
+        expense.setDescription("rounded " + amount);
+        return expense;
+    }
+}
@@ -0,0 +1,137 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.SpendMoments;
+import com.expensetracker.support.MongoTestSupport;
+import com.expensetracker.util.RunningStats;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AnomalyDetectionServiceTest {
+    
+    private static final String USER_ID = "user-1";
+    private static final String[] CATEGORIES = {"food", "rent", "travel"};
+    
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private AnomalyDetectionService anomalyDetectionService;
+    
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = MongoTestSupport.inMemoryMongoTemplate(client, "anomalies");
+        anomalyDetectionService = new AnomalyDetectionService(mongoTemplate, mock(CategoryNameResolver.class),
+                new VersionedDocuments(mongoTemplate));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Test
+    void liveUpdatesMatchARebuildFromTheExpenses() {
+        Random random = new Random(23);
+        List<Expense> saved = new ArrayList<>();
+        for (int step = 0; step < 300; step++) {
+            if (saved.isEmpty() || random.nextInt(4) != 0) {
+                Expense created = mongoTemplate.insert(expense(random));
+                saved.add(created);
+                anomalyDetectionService.applyChange(null, created);
+            } else if (random.nextBoolean()) {
+                Expense previous = saved.get(random.nextInt(saved.size()));
+                Expense updated = expense(random);
+                updated.setId(previous.getId());
+                mongoTemplate.save(updated);
+                saved.set(saved.indexOf(previous), updated);
+                anomalyDetectionService.applyChange(previous, updated);
+            } else {
+                Expense deleted = saved.remove(random.nextInt(saved.size()));
+                mongoTemplate.remove(deleted);
+                anomalyDetectionService.applyChange(deleted, null);
+            }
+        }
+        
+        SpendMoments live = mongoTemplate.findById(USER_ID, SpendMoments.class);
+        anomalyDetectionService.rebuildForUser(USER_ID);
+        SpendMoments rebuilt = mongoTemplate.findById(USER_ID, SpendMoments.class);
+        
+        assertEquals(rebuilt.getCategories().keySet(), live.getCategories().keySet());
+        for (Map.Entry<String, RunningStats> category : rebuilt.getCategories().entrySet()) {
+            RunningStats expected = category.getValue();
+            RunningStats actual = live.getCategories().get(category.getKey());
+            assertEquals(expected.getCount(), actual.getCount(), category.getKey());
+            assertEquals(expected.getMean(), actual.getMean(), 1e-6 * expected.getMean(), category.getKey());
+            assertEquals(expected.getStandardDeviation(), actual.getStandardDeviation(),
+                    1e-6 * Math.max(1, expected.getStandardDeviation()), category.getKey());
+        }
+    }
+    
+    @Test
+    void writeToAnotherCategoryBetweenReadAndWriteIsNoConflict() {
+        anomalyDetectionService.applyChange(null, mongoTemplate.insert(expense("food", "12.50")));
+        anomalyDetectionService.applyChange(null, mongoTemplate.insert(expense("rent", "900.00")));
+        
+        // Another writer updates rent right after this writer reads the statistics
+        MongoTemplate interleaved = spy(mongoTemplate);
+        AtomicBoolean rentWritten = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Object read = invocation.callRealMethod();
+            if (rentWritten.compareAndSet(false, true)) {
+                anomalyDetectionService.applyChange(null, mongoTemplate.insert(expense("rent", "950.00")));
+            }
+            return read;
+        }).when(interleaved).findById(USER_ID, SpendMoments.class);
+        
+        new AnomalyDetectionService(interleaved, mock(CategoryNameResolver.class), new VersionedDocuments(interleaved))
+                .applyChange(null, mongoTemplate.insert(expense("food", "7.25")));
+        
+        verify(interleaved, times(1)).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(SpendMoments.class));
+        SpendMoments moments = mongoTemplate.findById(USER_ID, SpendMoments.class);
+        assertEquals(2, moments.getCategories().get("food").getCount());
+        assertEquals(987.5, moments.getCategories().get("food").getMean(), 1e-9);
+        assertEquals(2, moments.getCategories().get("rent").getCount());
+    }
+    
+    private static Expense expense(Random random) {
+        String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+        return expense(category, BigDecimal.valueOf(100 + random.nextInt(100_000), 2).toPlainString());
+    }
+    
+    private static Expense expense(String categoryId, String amount) {
+        Expense expense = new Expense();
+        expense.setUserId(USER_ID);
+        expense.setCategoryId(categoryId);
+        expense.setAmount(new BigDecimal(amount));
+        expense.setDate(LocalDate.of(2024, 3, 14));
+        return expense;
+    }
+}
@@ -0,0 +1,115 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ColumnarExpenseStoreTest {
+    
+    private static final String USER_ID = "user-1";
+    
+    private final Map<String, Expense> stored = new ConcurrentHashMap<>();
+    private final AtomicInteger reads = new AtomicInteger();
+    private final CountDownLatch firstReadStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstRead = new CountDownLatch(1);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private ColumnarExpenseStore store;
+    
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        // The first read takes a snapshot, then blocks until released, like a slow cursor
+        when(mongoTemplate.stream(any(Query.class), eq(Expense.class))).thenAnswer(invocation -> {
+            List<Expense> snapshot = List.copyOf(stored.values());
+            if (reads.incrementAndGet() == 1) {
+                firstReadStarted.countDown();
+                assertTrue(releaseFirstRead.await(5, TimeUnit.SECONDS));
+            }
+            return snapshot.stream();
+        });
+        
+        store = new ColumnarExpenseStore(mongoTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(store, "memoryBudgetMb", 16L);
+        ReflectionTestUtils.setField(store, "ttlSeconds", 300L);
+        store.init();
+        
+        save(expense("a", "10.00"));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void concurrentReadersShareOneLoad() throws Exception {
+        Future<ExpenseColumns> first = executor.submit(() -> store.getColumns(USER_ID));
+        assertTrue(firstReadStarted.await(5, TimeUnit.SECONDS));
+        Future<ExpenseColumns> second = executor.submit(() -> store.getColumns(USER_ID));
+        
+        releaseFirstRead.countDown();
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, reads.get());
+        assertSame(first.get(), store.getColumns(USER_ID));
+    }
+    
+    @Test
+    void writeDuringALoadIsNotLostToAnOverlappingReader() throws Exception {
+        Future<ExpenseColumns> first = executor.submit(() -> store.getColumns(USER_ID));
+        assertTrue(firstReadStarted.await(5, TimeUnit.SECONDS));
+        Future<ExpenseColumns> second = executor.submit(() -> store.getColumns(USER_ID));
+        
+        // Written after the first load read its snapshot
+        Expense written = expense("b", "5.00");
+        save(written);
+        store.applyChange(null, written);
+        
+        releaseFirstRead.countDown();
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).size());
+        assertEquals(2, second.get(5, TimeUnit.SECONDS).size());
+        
+        // The load that missed the write was not kept; the resident columns have it
+        assertEquals(2, store.getColumns(USER_ID).size());
+        assertEquals(2, reads.get());
+    }
+    
+    private void save(Expense expense) {
+        stored.put(expense.getId(), expense);
+    }
+    
+    private Expense expense(String id, String amount) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setUserId(USER_ID);
+        expense.setCategoryId("food");
+        expense.setAmount(new BigDecimal(amount));
+        expense.setDate(LocalDate.of(2024, 3, 14));
+        expense.setPaymentMethod(Expense.PaymentMethod.CASH);
+        return expense;
+    }
+}
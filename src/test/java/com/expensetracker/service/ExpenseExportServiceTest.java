@@ -0,0 +1,32 @@
+package com.expensetracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExpenseExportServiceTest {
+    
+    @Test
+    void fieldsAreQuotedWhenNeeded() {
+        assertEquals("Coffee", csv("Coffee"));
+        assertEquals("\"Coffee, large\"", csv("Coffee, large"));
+        assertEquals("\"The \"\"best\"\" bagel\"", csv("The \"best\" bagel"));
+        assertEquals("\"two\nlines\"", csv("two\nlines"));
+        assertEquals("", csv(null));
+    }
+    
+    @Test
+    void formulasAreExportedAsText() {
+        assertEquals("\"'=HYPERLINK(\"\"x\"\")\"", csv("=HYPERLINK(\"x\")"));
+        assertEquals("'+1", csv("+1"));
+        assertEquals("'-2+3", csv("-2+3"));
+        assertEquals("'@SUM(A1)", csv("@SUM(A1)"));
+        assertEquals("'\tcmd", csv("\tcmd"));
+        assertEquals("\"'\rcmd\"", csv("\rcmd"));
+        assertEquals("a=b", csv("a=b"));
+    }
+    
+    private static String csv(String value) {
+        return ExpenseExportService.appendCsv(new StringBuilder(), value).toString();
+    }
+}
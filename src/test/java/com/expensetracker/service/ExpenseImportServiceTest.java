@@ -0,0 +1,33 @@
+package com.expensetracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExpenseImportServiceTest {
+    
+    @Test
+    void amountsAreParsedWithTheConfiguredDecimalSeparator() {
+        assertEquals(new BigDecimal("12.50"), ExpenseImportService.parseAmount("12.50", '.'));
+        assertEquals(new BigDecimal("1234.56"), ExpenseImportService.parseAmount("$1,234.56", '.'));
+        assertEquals(new BigDecimal("-1234567"), ExpenseImportService.parseAmount("-1,234,567", '.'));
+        assertEquals(new BigDecimal("-42.10"), ExpenseImportService.parseAmount("(42.10)", '.'));
+        
+        assertEquals(new BigDecimal("12.50"), ExpenseImportService.parseAmount("12,50", ','));
+        assertEquals(new BigDecimal("1234.56"), ExpenseImportService.parseAmount("1.234,56 €", ','));
+        assertEquals(new BigDecimal("-7"), ExpenseImportService.parseAmount("-7", ','));
+    }
+    
+    @Test
+    void ambiguousAmountsAreRejected() {
+        // A decimal comma read with '.' as the separator would otherwise become 1250
+        assertThrows(IllegalArgumentException.class, () -> ExpenseImportService.parseAmount("12,50", '.'));
+        assertThrows(IllegalArgumentException.class, () -> ExpenseImportService.parseAmount("1,2345.00", '.'));
+        assertThrows(IllegalArgumentException.class, () -> ExpenseImportService.parseAmount("1.234.56", '.'));
+        assertThrows(IllegalArgumentException.class, () -> ExpenseImportService.parseAmount("12.50", ','));
+        assertThrows(IllegalArgumentException.class, () -> ExpenseImportService.parseAmount("1,234.56", ','));
+    }
+}
@@ -0,0 +1,160 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.ExpenseRollup;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseRepositoryCustomImpl;
+import com.expensetracker.repository.ExpenseRollupRepository;
+import com.expensetracker.repository.ExpenseRollupRepositoryCustomImpl;
+import com.expensetracker.support.MongoTestSupport;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ExpenseRollupServiceTest {
+    
+    private static final String USER_ID = "user-1";
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 14);
+    
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private ExpenseRepository expenseRepository;
+    private ExpenseRollupRepository expenseRollupRepository;
+    private ExpenseRollupService expenseRollupService;
+    
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = MongoTestSupport.inMemoryMongoTemplate(client, "rollups");
+        expenseRepository = MongoTestSupport.repository(mongoTemplate, ExpenseRepository.class,
+                new ExpenseRepositoryCustomImpl(mongoTemplate));
+        expenseRollupRepository = MongoTestSupport.repository(mongoTemplate, ExpenseRollupRepository.class,
+                new ExpenseRollupRepositoryCustomImpl(mongoTemplate));
+        expenseRollupService = new ExpenseRollupService(expenseRepository, mongoTemplate,
+                new VersionedDocuments(mongoTemplate), mock(AnalyticsBlockCache.class));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Test
+    void appliesWritesToTheirBuckets() {
+        Expense first = create(expense("12.50"));
+        Expense second = create(expense("7.25"));
+        
+        ExpenseRollup rollup = rollup();
+        assertEquals(2, rollup.getCount());
+        assertEquals(1975, rollup.getSumCents());
+        assertEquals(725, rollup.getMinCents());
+        assertEquals(1250, rollup.getMaxCents());
+        
+        delete(first);
+        delete(second);
+        assertNull(mongoTemplate.findById(key(), ExpenseRollup.class));
+    }
+    
+    @Test
+    void rebuildDuringAWriteDoesNotCountTheExpenseTwice() {
+        create(expense("10.00"));
+        
+        // The expense is saved, and visible to the rebuild, before its contribution is applied
+        Expense expense = expense("5.00");
+        String change = expenseRollupService.beginChange(null, expense);
+        expense = expenseRepository.save(expense);
+        expenseRollupService.rebuildForUser(USER_ID);
+        expenseRollupService.applyChange(null, expense, change);
+        
+        ExpenseRollup rollup = rollup();
+        assertEquals(2, rollup.getCount());
+        assertEquals(1500, rollup.getSumCents());
+    }
+    
+    @Test
+    void readsSkipBucketsCreatedForAWriteInFlight() {
+        Expense expense = expense("5.00");
+        String change = expenseRollupService.beginChange(null, expense);
+        
+        assertTrue(expenseRollupRepository.findRollupsByUserAndDayRange(USER_ID, DAY, DAY).isEmpty());
+        assertTrue(expenseRollupRepository.aggregateDailyCategoryTotals(USER_ID, List.<LocalDate[]>of(new LocalDate[]{DAY, DAY}))
+                .isEmpty());
+        
+        expenseRollupService.abortChange(List.of(expense), change);
+        assertNull(mongoTemplate.findById(key(), ExpenseRollup.class));
+    }
+    
+    @Test
+    void rebuildReplacesBucketsWhoseWriterDied() {
+        create(expense("10.00"));
+        
+        // A writer that saved the expense and died before applying it
+        Expense expense = expense("5.00");
+        expenseRollupService.beginChange(null, expense);
+        expenseRepository.save(expense);
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(key())),
+                new Update().set("pendingAt", Date.from(Instant.now().minus(VersionedDocuments.PENDING_TIMEOUT.multipliedBy(2)))),
+                ExpenseRollup.class);
+        
+        expenseRollupService.rebuildForUser(USER_ID);
+        
+        ExpenseRollup rollup = rollup();
+        assertEquals(2, rollup.getCount());
+        assertEquals(1500, rollup.getSumCents());
+    }
+    
+    private Expense create(Expense expense) {
+        String change = expenseRollupService.beginChange(null, expense);
+        Expense saved = expenseRepository.save(expense);
+        expenseRollupService.applyChange(null, saved, change);
+        return saved;
+    }
+    
+    private void delete(Expense expense) {
+        String change = expenseRollupService.beginChange(expense, null);
+        expenseRepository.delete(expense);
+        expenseRollupService.applyChange(expense, null, change);
+    }
+    
+    private ExpenseRollup rollup() {
+        List<ExpenseRollup> rollups = expenseRollupRepository.findRollupsByUserAndDayRange(USER_ID, DAY, DAY);
+        assertEquals(1, rollups.size());
+        return rollups.get(0);
+    }
+    
+    private String key() {
+        return ExpenseRollup.keyOf(USER_ID, DAY, "groceries", Expense.PaymentMethod.UPI);
+    }
+    
+    private Expense expense(String amount) {
+        Expense expense = new Expense();
+        expense.setUserId(USER_ID);
+        expense.setCategoryId("groceries");
+        expense.setAmount(new BigDecimal(amount));
+        expense.setDate(DAY);
+        expense.setPaymentMethod(Expense.PaymentMethod.UPI);
+        return expense;
+    }
+}
@@ -0,0 +1,146 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import com.expensetracker.model.HeavyHitterSketch;
+import com.expensetracker.support.MongoTestSupport;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeavyHitterServiceTest {
+    
+    private static final String USER_ID = "user-1";
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 14);
+    
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private HeavyHitterService heavyHitterService;
+    
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        client = MongoClients.create(server.bindAndGetConnectionString());
+        mongoTemplate = MongoTestSupport.inMemoryMongoTemplate(client, "heavy_hitters");
+        heavyHitterService = new HeavyHitterService(mongoTemplate, new VersionedDocuments(mongoTemplate));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+    
+    @Test
+    void admitAddsWhileThereIsRoomThenReplacesTheSmallestEntry() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch();
+        for (int i = 0; i < HeavyHitterService.CAPACITY; i++) {
+            HeavyHitterService.admit(sketch, "m" + i, i == 7 ? 1 : 3, 100);
+        }
+        assertEquals(HeavyHitterService.CAPACITY, sketch.getEntries().size());
+        
+        HeavyHitterService.admit(sketch, "m0", 2, 50);
+        HeavyHitterSketch.Entry bumped = sketch.getEntries().get(0);
+        assertEquals(5, bumped.getCount());
+        assertEquals(150, bumped.getCents());
+        
+        // The new key takes over m7, the smallest, and inherits its count as error
+        HeavyHitterService.admit(sketch, "new", 2, 40);
+        HeavyHitterSketch.Entry replaced = sketch.getEntries().get(7);
+        assertEquals("new", replaced.getKey());
+        assertEquals(3, replaced.getCount());
+        assertEquals(1, replaced.getError());
+        assertEquals(40, replaced.getCents());
+        assertEquals(HeavyHitterService.CAPACITY, sketch.getEntries().size());
+        assertEquals(3L * (HeavyHitterService.CAPACITY - 1) + 1 + 2 + 2, sketch.getTotal());
+    }
+    
+    @Test
+    void countsStayWithinTheSpaceSavingErrorBound() {
+        Random random = new Random(13);
+        HeavyHitterSketch sketch = new HeavyHitterSketch();
+        Map<String, Long> exact = new HashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            String key = "m" + zipf(random, 2_000);
+            exact.merge(key, 1L, Long::sum);
+            HeavyHitterService.admit(sketch, key, 1, 0);
+        }
+        
+        long total = sketch.getTotal();
+        long bound = total / HeavyHitterService.CAPACITY;
+        assertEquals(total, sketch.getEntries().stream().mapToLong(HeavyHitterSketch.Entry::getCount).sum());
+        
+        Map<String, HeavyHitterSketch.Entry> monitored = new HashMap<>();
+        for (HeavyHitterSketch.Entry entry : sketch.getEntries()) {
+            long actual = exact.get(entry.getKey());
+            assertTrue(entry.getCount() - entry.getError() <= actual, entry.getKey() + " undercounted beyond its error");
+            assertTrue(actual <= entry.getCount(), entry.getKey() + " never underestimated");
+            assertTrue(entry.getError() <= bound, entry.getKey() + " error within total / capacity");
+            monitored.put(entry.getKey(), entry);
+        }
+        exact.forEach((key, count) -> {
+            if (count > bound) {
+                assertNotNull(monitored.get(key), key + " occurs more than total / capacity and is monitored");
+            }
+        });
+    }
+    
+    @Test
+    void offeredWritesMatchTheInMemorySketch() {
+        Random random = new Random(17);
+        HeavyHitterSketch expected = new HeavyHitterSketch();
+        for (int i = 0; i < 600; i++) {
+            Expense expense = expense("m" + zipf(random, 300), 100 + random.nextInt(10_000));
+            heavyHitterService.applyChange(null, expense);
+            HeavyHitterService.admit(expected, expense.getMerchant(), 1, expense.getAmount().movePointRight(2).longValueExact());
+        }
+        
+        HeavyHitterSketch sketch = mongoTemplate.findById(
+                HeavyHitterSketch.keyOf(USER_ID, HeavyHitterSketch.Dimension.MERCHANT, "2024-03"), HeavyHitterSketch.class);
+        assertNotNull(sketch);
+        assertEquals(expected.getTotal(), sketch.getTotal());
+        assertEquals(expected.getEntries(), sketch.getEntries());
+    }
+    
+    // Keys 0..n-1 with frequency proportional to 1 / (rank + 1), like merchants
+    private static int zipf(Random random, int n) {
+        double harmonic = 0;
+        for (int i = 1; i <= n; i++) {
+            harmonic += 1.0 / i;
+        }
+        double target = random.nextDouble() * harmonic;
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1.0 / i;
+            if (sum >= target) {
+                return i - 1;
+            }
+        }
+        return n - 1;
+    }
+    
+    private static Expense expense(String merchant, long cents) {
+        Expense expense = new Expense();
+        expense.setUserId(USER_ID);
+        expense.setCategoryId("shopping");
+        expense.setAmount(BigDecimal.valueOf(cents, 2));
+        expense.setDate(DAY);
+        expense.setMerchant(merchant);
+        return expense;
+    }
+}
@@ -0,0 +1,91 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.analytics.ComparisonResponse;
+import com.expensetracker.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PeriodComparisonTest {
+    
+    private static final LocalDate FIRST_DAY = LocalDate.of(2019, 12, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2026, 1, 31);
+    
+    @Test
+    void everyDayFallsInOnePeriodWhoseLabelParsesBackToItsStart() {
+        for (AnalyticsService.Granularity granularity : AnalyticsService.Granularity.values()) {
+            for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+                LocalDate start = granularity.startOf(day);
+                LocalDate end = granularity.endOf(start);
+                String context = granularity + " of " + day;
+                
+                assertFalse(day.isBefore(start), context);
+                assertFalse(day.isAfter(end), context);
+                assertEquals(start, granularity.startOf(end), context);
+                assertEquals(end.plusDays(1), granularity.startOf(end.plusDays(1)), context + ": next period starts after the end");
+                assertEquals(start, granularity.parse(granularity.label(start)), context + " labelled " + granularity.label(start));
+            }
+        }
+    }
+    
+    @Test
+    void weekLabelsFollowIsoWeekBasedYears() {
+        AnalyticsService.Granularity week = AnalyticsService.Granularity.WEEK;
+        assertEquals("2020-W53", week.label(week.startOf(LocalDate.of(2021, 1, 3))));
+        assertEquals("2025-W01", week.label(week.startOf(LocalDate.of(2024, 12, 30))));
+        assertEquals(LocalDate.of(2024, 12, 30), week.parse("2025-W01"));
+        assertEquals(LocalDate.of(2020, 12, 28), week.parse("2020-W53"));
+        assertEquals(DayOfWeek.MONDAY, week.parse("2023-W17").getDayOfWeek());
+    }
+    
+    @Test
+    void bucketsAlignPeriodsOfDifferentLengths() {
+        for (AnalyticsService.Granularity granularity : AnalyticsService.Granularity.values()) {
+            int buckets = granularity.bucketLabels().size();
+            for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1)) {
+                int bucket = granularity.bucketOf(granularity.startOf(day), day);
+                assertTrue(bucket >= 0 && bucket < buckets, granularity + " bucket " + bucket + " of " + day);
+            }
+        }
+        
+        AnalyticsService.Granularity month = AnalyticsService.Granularity.MONTH;
+        assertEquals(30, month.bucketOf(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)));
+        assertEquals(27, month.bucketOf(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28)));
+        assertEquals(6, AnalyticsService.Granularity.WEEK.bucketOf(LocalDate.of(2025, 6, 2), LocalDate.of(2025, 6, 8)));
+        assertEquals(2, AnalyticsService.Granularity.QUARTER.bucketOf(LocalDate.of(2025, 4, 1), LocalDate.of(2025, 6, 30)));
+        assertEquals(11, AnalyticsService.Granularity.YEAR.bucketOf(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+        assertEquals("SUNDAY", AnalyticsService.Granularity.WEEK.bucketLabels().get(6));
+        assertEquals("M3", AnalyticsService.Granularity.QUARTER.bucketLabels().get(2));
+    }
+    
+    @Test
+    void malformedLabelsAreRejected() {
+        assertThrows(BadRequestException.class, () -> AnalyticsService.Granularity.MONTH.parse("2025-13"));
+        assertThrows(BadRequestException.class, () -> AnalyticsService.Granularity.QUARTER.parse("2025-Q5"));
+        assertThrows(BadRequestException.class, () -> AnalyticsService.Granularity.WEEK.parse("2025-06"));
+        assertThrows(BadRequestException.class, () -> AnalyticsService.Granularity.YEAR.parse("last year"));
+    }
+    
+    @Test
+    void deltaIsTheReferenceRelativeToTheComparedPeriod() {
+        ComparisonResponse.Delta increase = AnalyticsService.toDelta(15_000, 10_000);
+        assertEquals(new BigDecimal("50.00"), increase.getAbsolute());
+        assertEquals(50.0, increase.getPercentage());
+        
+        ComparisonResponse.Delta decrease = AnalyticsService.toDelta(10_000, 30_000);
+        assertEquals(new BigDecimal("-200.00"), decrease.getAbsolute());
+        assertEquals(-66.67, decrease.getPercentage());
+        
+        ComparisonResponse.Delta fromNothing = AnalyticsService.toDelta(1_999, 0);
+        assertEquals(new BigDecimal("19.99"), fromNothing.getAbsolute());
+        assertNull(fromNothing.getPercentage());
+    }
+}
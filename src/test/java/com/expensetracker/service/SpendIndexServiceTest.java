@@ -0,0 +1,210 @@
+package com.expensetracker.service;
+
+import com.expensetracker.model.Expense;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SpendIndexServiceTest {
+    
+    private static final String USER_ID = "user-1";
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final String[] CATEGORIES = {"food", "rent", "travel"};
+    
+    private final Map<String, Expense> stored = new LinkedHashMap<>();
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private MongoTemplate mongoTemplate;
+    private SpendIndexService service;
+    
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.stream(any(Query.class), eq(Expense.class)))
+                .thenAnswer(invocation -> new ArrayList<>(stored.values()).stream());
+        
+        service = new SpendIndexService(mongoTemplate, refreshes::add);
+        ReflectionTestUtils.setField(service, "maxUsers", 10);
+        ReflectionTestUtils.setField(service, "ttlSeconds", 3600L);
+        service.init();
+    }
+    
+    @Test
+    void totalsMatchBruteForceUnderRandomWrites() {
+        Random random = new Random(11);
+        for (int i = 0; i < 50; i++) {
+            Expense expense = randomExpense(random, "e" + i);
+            stored.put(expense.getId(), expense);
+        }
+        
+        for (int step = 0; step < 2000; step++) {
+            int operation = random.nextInt(3);
+            service.beginChange(USER_ID);
+            if (operation == 0 || stored.isEmpty()) {
+                Expense created = randomExpense(random, "n" + step);
+                stored.put(created.getId(), created);
+                service.applyChange(null, created);
+            } else if (operation == 1) {
+                Expense previous = pick(random);
+                Expense updated = randomExpense(random, previous.getId());
+                stored.put(updated.getId(), updated);
+                service.applyChange(previous, updated);
+            } else {
+                Expense deleted = pick(random);
+                stored.remove(deleted.getId());
+                service.applyChange(deleted, null);
+            }
+            
+            LocalDate from = TODAY.minusDays(random.nextInt(800));
+            LocalDate to = from.plusDays(random.nextInt(400));
+            String categoryId = random.nextBoolean() ? null : CATEGORIES[random.nextInt(CATEGORIES.length)];
+            SpendIndexService.Totals totals = service.getTotals(USER_ID, categoryId, from, to);
+            assertEquals(bruteForceCents(categoryId, from, to), totals.getCents(), "cents at step " + step);
+            assertEquals(bruteForceCount(categoryId, from, to), totals.getCount(), "count at step " + step);
+        }
+    }
+    
+    @Test
+    void writeAlreadyReadByTheBuildIsNotCountedTwice() {
+        stored.put("e1", expense("e1", TODAY.minusDays(3), "12.50", "food"));
+        Expense created = expense("e2", TODAY.minusDays(1), "7.25", "food");
+        service.beginChange(USER_ID);
+        stored.put(created.getId(), created);
+        
+        // The build reads the new expense before its write reaches the index
+        assertEquals(1975, service.getTotals(USER_ID, null, TODAY.minusDays(10), TODAY).getCents());
+        service.applyChange(null, created);
+        
+        SpendIndexService.Totals totals = service.getTotals(USER_ID, "food", TODAY.minusDays(10), TODAY);
+        assertEquals(1975, totals.getCents());
+        assertEquals(2, totals.getCount());
+    }
+    
+    @Test
+    void buildOverlappingADeleteIsNotInstalled() {
+        Expense kept = expense("e1", TODAY.minusDays(3), "12.50", "food");
+        Expense deleted = expense("e2", TODAY.minusDays(1), "7.25", "rent");
+        stored.put(kept.getId(), kept);
+        stored.put(deleted.getId(), deleted);
+        
+        // The cursor still returns the expense, but it is deleted before the build finishes
+        when(mongoTemplate.stream(any(Query.class), eq(Expense.class))).thenAnswer(invocation -> {
+            Stream<Expense> snapshot = new ArrayList<>(stored.values()).stream();
+            if (stored.containsKey(deleted.getId())) {
+                service.beginChange(USER_ID);
+                stored.remove(deleted.getId());
+                service.applyChange(deleted, null);
+            }
+            return snapshot;
+        });
+        
+        assertEquals(1975, service.getTotals(USER_ID, null, TODAY.minusDays(10), TODAY).getCents());
+        assertEquals(1250, service.getTotals(USER_ID, null, TODAY.minusDays(10), TODAY).getCents());
+        assertEquals(0, service.getTotals(USER_ID, "rent", TODAY.minusDays(10), TODAY).getCount());
+        verify(mongoTemplate, times(2)).stream(any(Query.class), eq(Expense.class));
+    }
+    
+    @Test
+    void abortedWriteDoesNotHoldBackTheBuild() {
+        stored.put("e1", expense("e1", TODAY.minusDays(3), "12.50", "food"));
+        service.beginChange(USER_ID);
+        service.abortChange(USER_ID);
+        
+        assertEquals(1250, service.getTotals(USER_ID, null, TODAY.minusDays(10), TODAY).getCents());
+        assertEquals(1250, service.getTotals(USER_ID, null, TODAY.minusDays(10), TODAY).getCents());
+        verify(mongoTemplate, times(1)).stream(any(Query.class), eq(Expense.class));
+    }
+    
+    @Test
+    void staleIndexIsServedWhileItIsRebuilt() {
+        stored.put("e1", expense("e1", TODAY.minusDays(3), "12.50", "food"));
+        assertEquals(1250, service.getTotals(USER_ID, null, TODAY.minusDays(10), TODAY).getCents());
+        
+        // Written on another instance, so only a rebuild picks it up
+        stored.put("e2", expense("e2", TODAY.minusDays(1), "7.25", "food"));
+        ReflectionTestUtils.setField(service, "ttlSeconds", -1L);
+        
+        assertEquals(1250, service.getTotals(USER_ID, null, TODAY.minusDays(10), TODAY).getCents());
+        assertEquals(1250, service.getTotals(USER_ID, null, TODAY.minusDays(10), TODAY).getCents());
+        assertEquals(1, refreshes.size(), "one refresh per user at a time");
+        
+        refreshes.remove(0).run();
+        assertEquals(1975, service.getTotals(USER_ID, null, TODAY.minusDays(10), TODAY).getCents());
+        verify(mongoTemplate, times(2)).stream(any(Query.class), eq(Expense.class));
+    }
+    
+    @Test
+    void expensesBeforeTheMinimumDateAreLeftOutOfTheIndex() {
+        // Stored before dates were validated; covering it would need arrays spanning two millennia
+        stored.put("e1", expense("e1", LocalDate.of(1, 1, 1), "99.00", "food"));
+        stored.put("e2", expense("e2", TODAY.minusDays(2), "12.50", "food"));
+        
+        SpendIndexService.History history = service.getHistory(USER_ID, TODAY.minusDays(9), TODAY);
+        assertEquals(1250, history.getDailyCentsByCategory().get("food")[7]);
+        assertEquals(1, service.getTotals(USER_ID, null, Expense.MIN_DATE, TODAY).getCount());
+        assertEquals(0, service.getTotals(USER_ID, null, LocalDate.of(1, 1, 1), Expense.MIN_DATE.minusDays(1)).getCount());
+        
+        Expense deleted = stored.remove("e1");
+        service.beginChange(USER_ID);
+        service.applyChange(deleted, null);
+        assertEquals(1250, service.getTotals(USER_ID, null, LocalDate.of(1, 1, 1), TODAY).getCents());
+    }
+    
+    private Expense pick(Random random) {
+        return new ArrayList<>(stored.values()).get(random.nextInt(stored.size()));
+    }
+    
+    private long bruteForceCents(String categoryId, LocalDate from, LocalDate to) {
+        long total = 0;
+        for (Expense expense : stored.values()) {
+            if (inRange(expense, categoryId, from, to)) {
+                total += expense.getAmount().movePointRight(2).longValueExact();
+            }
+        }
+        return total;
+    }
+    
+    private long bruteForceCount(String categoryId, LocalDate from, LocalDate to) {
+        return stored.values().stream().filter(expense -> inRange(expense, categoryId, from, to)).count();
+    }
+    
+    private static boolean inRange(Expense expense, String categoryId, LocalDate from, LocalDate to) {
+        return !expense.getDate().isBefore(from) && !expense.getDate().isAfter(to)
+                && (categoryId == null || categoryId.equals(expense.getCategoryId()));
+    }
+    
+    private static Expense randomExpense(Random random, String id) {
+        // Up to ~3 years back, so some writes land outside the index's initial range
+        return expense(id, TODAY.minusDays(random.nextInt(1200)),
+                BigDecimal.valueOf(random.nextInt(100_000) + 1, 2).toPlainString(),
+                CATEGORIES[random.nextInt(CATEGORIES.length)]);
+    }
+    
+    private static Expense expense(String id, LocalDate date, String amount, String categoryId) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setUserId(USER_ID);
+        expense.setDate(date);
+        expense.setAmount(new BigDecimal(amount));
+        expense.setCategoryId(categoryId);
+        return expense;
+    }
+}
@@ -0,0 +1,103 @@
+package com.expensetracker.support;
+
+import com.expensetracker.config.MongoConfig;
+import com.mongodb.client.MongoClient;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperationContext;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+
+import java.util.List;
+
+/**
+ * Builds {@link MongoTemplate}s and repositories the way the application configures them, for tests
+ * and benchmarks that talk to a MongoDB server without starting a Spring context.
+ */
+public final class MongoTestSupport {
+    
+    private MongoTestSupport() {
+    }
+    
+    /**
+     * A template with the application's conversions, for a real MongoDB server.
+     */
+    public static MongoTemplate mongoTemplate(MongoClient client, String database) {
+        SimpleMongoClientDatabaseFactory factory = new SimpleMongoClientDatabaseFactory(client, database);
+        return new MongoTemplate(factory, converter(factory));
+    }
+    
+    /**
+     * A template for the in-memory mongo-java-server, which lacks some aggregation operators.
+     */
+    public static MongoTemplate inMemoryMongoTemplate(MongoClient client, String database) {
+        SimpleMongoClientDatabaseFactory factory = new SimpleMongoClientDatabaseFactory(client, database);
+        return new InMemoryMongoTemplate(factory, converter(factory));
+    }
+    
+    /**
+     * A repository backed by the template, with its custom fragment.
+     */
+    public static <T> T repository(MongoTemplate mongoTemplate, Class<T> repositoryInterface, Object customImplementation) {
+        return new MongoRepositoryFactory(mongoTemplate).getRepository(repositoryInterface,
+                RepositoryComposition.RepositoryFragments.just(customImplementation));
+    }
+    
+    private static MappingMongoConverter converter(MongoDatabaseFactory factory) {
+        MongoCustomConversions conversions = new MongoConfig().mongoCustomConversions();
+        
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        
+        MappingMongoConverter converter = new MappingMongoConverter(new DefaultDbRefResolver(factory), mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+    
+    /**
+     * The in-memory server has no $toDecimal. Amounts are stored as Decimal128, where the
+     * conversion is a no-op, so it is dropped from the pipeline before it is sent.
+     */
+    private static class InMemoryMongoTemplate extends MongoTemplate {
+        
+        InMemoryMongoTemplate(MongoDatabaseFactory factory, MappingMongoConverter converter) {
+            super(factory, converter);
+        }
+        
+        @Override
+        protected <O> AggregationResults<O> doAggregate(Aggregation aggregation, String collectionName,
+                                                        Class<O> outputType, AggregationOperationContext context) {
+            List<AggregationOperation> stages = aggregation.toPipeline(context).stream()
+                    .map(stage -> (AggregationOperation) stageContext -> (Document) withoutToDecimal(stage))
+                    .toList();
+            return super.doAggregate(Aggregation.newAggregation(stages).withOptions(aggregation.getOptions()),
+                    collectionName, outputType, context);
+        }
+        
+        private static Object withoutToDecimal(Object value) {
+            if (value instanceof Document document) {
+                if (document.size() == 1 && document.containsKey("$toDecimal")) {
+                    return document.get("$toDecimal");
+                }
+                Document copy = new Document();
+                document.forEach((key, field) -> copy.put(key, withoutToDecimal(field)));
+                return copy;
+            }
+            if (value instanceof List<?> list) {
+                return list.stream().map(InMemoryMongoTemplate::withoutToDecimal).toList();
+            }
+            return value;
+        }
+    }
+}
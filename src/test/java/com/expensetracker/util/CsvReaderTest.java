@@ -0,0 +1,76 @@
+package com.expensetracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvReaderTest {
+    
+    @Test
+    void quotedFieldsKeepDelimitersQuotesAndLineBreaks() throws IOException {
+        List<List<String>> records = readAll("Date,Description,Amount\n"
+                + "2024-01-02,\"Coffee, large\",3.50\n"
+                + "2024-01-03,\"The \"\"best\"\" bagel\",2\n"
+                + "2024-01-04,\"two\nlines\",\"\"\n", ',');
+        
+        assertEquals(List.of(
+                List.of("Date", "Description", "Amount"),
+                List.of("2024-01-02", "Coffee, large", "3.50"),
+                List.of("2024-01-03", "The \"best\" bagel", "2"),
+                List.of("2024-01-04", "two\nlines", "")), records);
+    }
+    
+    @Test
+    void lineEndingsBlankLinesAndByteOrderMarkAreHandled() throws IOException {
+        List<List<String>> records = readAll("\uFEFFa,b\r\n\r\n1,2\r3,4\n\n5,\n", ',');
+        
+        assertEquals(List.of(
+                List.of("a", "b"),
+                List.of("1", "2"),
+                List.of("3", "4"),
+                List.of("5", "")), records);
+    }
+    
+    @Test
+    void lastRecordNeedNotEndWithALineBreak() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("1", "2")), readAll("a,b\n1,2", ','));
+        assertTrue(readAll("", ',').isEmpty());
+    }
+    
+    @Test
+    void customDelimiterIsUsed() throws IOException {
+        assertEquals(List.of(List.of("12,50", "Lunch; shared")), readAll("12,50;\"Lunch; shared\"\n", ';'));
+    }
+    
+    @Test
+    void recordsLongerThanTheLimitAreRejected() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("short\n" + "x".repeat(20) + "\n"), ',', 10)) {
+            assertEquals(List.of("short"), reader.next());
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+    
+    @Test
+    void unterminatedQuoteIsRejected() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("a,\"open\nnever closed"), ',', 100)) {
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+    
+    private static List<List<String>> readAll(String text, char delimiter) throws IOException {
+        List<List<String>> records = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new StringReader(text), delimiter, 1000)) {
+            for (List<String> record = reader.next(); record != null; record = reader.next()) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,73 @@
+package com.expensetracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DailyValuesTest {
+    
+    private static final long FIRST_DAY = 19_000;
+    
+    @Test
+    void valuesMatchBruteForceUnderRandomUpdates() {
+        Random random = new Random(9);
+        for (int round = 0; round < 50; round++) {
+            DailyValues daily = new DailyValues(FIRST_DAY, random.nextInt(64));
+            Map<Long, Long> values = new HashMap<>();
+            
+            for (int update = 0; update < 500; update++) {
+                // Mostly near the initial range, sometimes far enough in either direction to force growth
+                long day = FIRST_DAY + (random.nextInt(10) == 0 ? random.nextInt(8000) - 4000 : random.nextInt(100));
+                long delta = random.nextInt(20_001) - 10_000;
+                daily.add(day, delta);
+                values.merge(day, delta, Long::sum);
+                
+                long probe = FIRST_DAY + random.nextInt(10_000) - 5000;
+                assertEquals(values.getOrDefault(probe, 0L), daily.get(probe),
+                        "day " + probe + " after " + (update + 1) + " updates");
+            }
+            values.forEach((day, value) -> assertEquals(value, daily.get(day), "day " + day));
+        }
+    }
+    
+    @Test
+    void daysOutsideTheCoveredRangeReadAsZero() {
+        DailyValues daily = new DailyValues(FIRST_DAY, 10);
+        daily.add(FIRST_DAY + 3, 5);
+        
+        assertEquals(0, daily.get(FIRST_DAY - 1));
+        assertEquals(0, daily.get(FIRST_DAY + 10));
+        assertEquals(0, daily.get(Long.MIN_VALUE));
+        assertEquals(5, daily.get(FIRST_DAY + 3));
+    }
+    
+    @Test
+    void growingInBothDirectionsKeepsExistingValues() {
+        DailyValues daily = new DailyValues(FIRST_DAY, 4);
+        daily.add(FIRST_DAY, 1);
+        daily.add(FIRST_DAY + 3, 2);
+        daily.add(FIRST_DAY - 50, 4);
+        daily.add(FIRST_DAY + 500, 8);
+        
+        assertEquals(1, daily.get(FIRST_DAY));
+        assertEquals(2, daily.get(FIRST_DAY + 3));
+        assertEquals(4, daily.get(FIRST_DAY - 50));
+        assertEquals(8, daily.get(FIRST_DAY + 500));
+    }
+    
+    @Test
+    void growthStopsAtTheMaximumSpan() {
+        DailyValues daily = new DailyValues(FIRST_DAY, 4);
+        daily.add(FIRST_DAY + 3, 2);
+        daily.add(FIRST_DAY + 3 - FenwickTree.MAX_DAYS + 1, 1);
+        
+        assertThrows(IllegalArgumentException.class, () -> daily.add(FIRST_DAY + 3 - FenwickTree.MAX_DAYS, 1));
+        assertEquals(2, daily.get(FIRST_DAY + 3));
+        assertEquals(1, daily.get(FIRST_DAY + 3 - FenwickTree.MAX_DAYS + 1));
+    }
+}
@@ -0,0 +1,81 @@
+package com.expensetracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FenwickTreeTest {
+    
+    private static final long FIRST_DAY = 19_000;
+    
+    @Test
+    void rangeSumsMatchBruteForceUnderRandomUpdates() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            FenwickTree tree = new FenwickTree(FIRST_DAY, 1 + random.nextInt(64));
+            long[] values = new long[4000]; // brute force over days [FIRST_DAY - 2000, FIRST_DAY + 2000)
+            long base = FIRST_DAY - 2000;
+            
+            for (int update = 0; update < 500; update++) {
+                // Mostly near the initial range, sometimes far enough in either direction to force growth
+                int offset = random.nextInt(10) == 0 ? random.nextInt(values.length) : 1990 + random.nextInt(100);
+                long delta = random.nextInt(20_001) - 10_000;
+                tree.add(base + offset, delta);
+                values[offset] += delta;
+                
+                long from = base + random.nextInt(values.length);
+                long to = from + random.nextInt(values.length) - values.length / 4;
+                assertEquals(bruteForce(values, base, from, to), tree.sum(from, to),
+                        "sum(" + from + ", " + to + ") after " + (update + 1) + " updates");
+            }
+        }
+    }
+    
+    @Test
+    void daysOutsideTheCoveredRangeCountAsZero() {
+        FenwickTree tree = new FenwickTree(FIRST_DAY, 10);
+        tree.add(FIRST_DAY + 3, 5);
+        
+        assertEquals(0, tree.sum(FIRST_DAY - 100, FIRST_DAY - 1));
+        assertEquals(0, tree.sum(FIRST_DAY + 1_000, FIRST_DAY + 2_000));
+        assertEquals(5, tree.sum(FIRST_DAY - 100, FIRST_DAY + 2_000));
+        assertEquals(0, tree.sum(FIRST_DAY + 5, FIRST_DAY + 4));
+    }
+    
+    @Test
+    void growingTowardsThePastKeepsExistingValues() {
+        FenwickTree tree = new FenwickTree(FIRST_DAY, 4);
+        tree.add(FIRST_DAY, 1);
+        tree.add(FIRST_DAY + 3, 2);
+        tree.add(FIRST_DAY - 50, 4);
+        
+        assertTrue(tree.firstDay() <= FIRST_DAY - 50);
+        assertEquals(1, tree.sum(FIRST_DAY, FIRST_DAY));
+        assertEquals(2, tree.sum(FIRST_DAY + 3, FIRST_DAY + 3));
+        assertEquals(4, tree.sum(FIRST_DAY - 50, FIRST_DAY - 50));
+        assertEquals(7, tree.sum(FIRST_DAY - 50, FIRST_DAY + 3));
+    }
+    
+    @Test
+    void growthStopsAtTheMaximumSpan() {
+        FenwickTree tree = new FenwickTree(FIRST_DAY, 4);
+        tree.add(FIRST_DAY, 2);
+        tree.add(FIRST_DAY + FenwickTree.MAX_DAYS - 1, 1);
+        
+        assertEquals(FenwickTree.MAX_DAYS, tree.days());
+        assertThrows(IllegalArgumentException.class, () -> tree.add(FIRST_DAY - 1, 1));
+        assertEquals(3, tree.sum(FIRST_DAY, FIRST_DAY + FenwickTree.MAX_DAYS - 1));
+    }
+    
+    private static long bruteForce(long[] values, long base, long from, long to) {
+        long total = 0;
+        for (long day = Math.max(from, base); day <= to && day < base + values.length; day++) {
+            total += values[(int) (day - base)];
+        }
+        return total;
+    }
+}
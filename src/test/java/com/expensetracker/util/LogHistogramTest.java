@@ -0,0 +1,101 @@
+package com.expensetracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogHistogramTest {
+    
+    private static final double GAMMA = (1 + LogHistogram.RELATIVE_ACCURACY) / (1 - LogHistogram.RELATIVE_ACCURACY);
+    
+    @Test
+    void bucketBoundsContainTheirValues() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            long cents = 2 + (long) Math.exp(random.nextDouble() * Math.log(1e10));
+            int bucket = LogHistogram.bucketOf(cents);
+            
+            assertTrue(Math.pow(GAMMA, bucket - 1) < cents * (1 + 1e-12), cents + " above lower bound of bucket " + bucket);
+            assertTrue(cents <= Math.pow(GAMMA, bucket) * (1 + 1e-12), cents + " below upper bound of bucket " + bucket);
+            assertTrue(Math.abs(LogHistogram.valueOf(bucket) - cents) <= LogHistogram.RELATIVE_ACCURACY * cents + 1,
+                    "representative of " + cents);
+        }
+        
+        assertEquals(0, LogHistogram.bucketOf(0));
+        assertEquals(0, LogHistogram.valueOf(0));
+        assertEquals(1, LogHistogram.bucketOf(1));
+    }
+    
+    @Test
+    void quantilesAreWithinTheRelativeAccuracy() {
+        Random random = new Random(5);
+        long[] values = new long[20_000];
+        LogHistogram histogram = new LogHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal, like expense amounts: a few cents up to thousands of dollars
+            values[i] = Math.max(1, Math.round(Math.exp(7 + 1.5 * random.nextGaussian())));
+            histogram.add(LogHistogram.bucketOf(values[i]), 1);
+        }
+        Arrays.sort(values);
+        
+        for (double q : new double[]{0, 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 1}) {
+            long exact = values[(int) Math.max(0, Math.ceil(q * values.length) - 1)];
+            long estimate = histogram.quantile(q);
+            assertTrue(Math.abs(estimate - exact) <= LogHistogram.RELATIVE_ACCURACY * exact + 1,
+                    "quantile " + q + ": " + estimate + " vs " + exact);
+        }
+    }
+    
+    @Test
+    void decrementsTakeValuesBackOut() {
+        LogHistogram histogram = new LogHistogram();
+        histogram.add(LogHistogram.bucketOf(1_000), 1);
+        histogram.add(LogHistogram.bucketOf(50_000), 2);
+        histogram.add(LogHistogram.bucketOf(50_000), -2);
+        
+        assertEquals(1, histogram.getTotalCount());
+        assertEquals(LogHistogram.valueOf(LogHistogram.bucketOf(1_000)), histogram.quantile(1));
+        
+        histogram.add(LogHistogram.bucketOf(1_000), -1);
+        assertTrue(histogram.isEmpty());
+        assertEquals(0, histogram.quantile(0.5));
+        assertTrue(histogram.bins(10).isEmpty());
+    }
+    
+    @Test
+    void binsPartitionTheValuesInOrder() {
+        Random random = new Random(9);
+        long[] values = new long[5_000];
+        LogHistogram histogram = new LogHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 100 == 0 ? 0 : 1 + random.nextInt(1_000_000);
+            histogram.add(LogHistogram.bucketOf(values[i]), 1);
+        }
+        
+        List<long[]> bins = histogram.bins(20);
+        assertTrue(bins.size() <= 20, "at most the requested number of bins");
+        assertEquals(values.length, bins.stream().mapToLong(bin -> bin[2]).sum());
+        for (int i = 1; i < bins.size(); i++) {
+            assertTrue(bins.get(i - 1)[1] < bins.get(i)[0], "bins " + (i - 1) + " and " + i + " do not overlap");
+        }
+        
+        // Every value is counted by the bin whose bounds hold it
+        long[] counted = new long[bins.size()];
+        for (long value : values) {
+            int bin = 0;
+            while (bin < bins.size() && value > bins.get(bin)[1]) {
+                bin++;
+            }
+            assertTrue(bin < bins.size() && value >= bins.get(bin)[0], value + " falls in a bin");
+            counted[bin]++;
+        }
+        for (int i = 0; i < bins.size(); i++) {
+            assertEquals(bins.get(i)[2], counted[i], "count of bin " + i);
+        }
+    }
+}
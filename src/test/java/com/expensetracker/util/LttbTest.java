@@ -0,0 +1,63 @@
+package com.expensetracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LttbTest {
+    
+    @Test
+    void keepsEveryPointWhenTheyFit() {
+        assertEquals(List.of(0, 1, 2, 3), Lttb.downsample(new long[]{5, 1, 7, 2}, 4));
+        assertEquals(List.of(0, 1), Lttb.downsample(new long[]{5, 1}, 10));
+        assertEquals(List.of(), Lttb.downsample(new long[0], 3));
+    }
+    
+    @Test
+    void rejectsFewerThanThreePoints() {
+        assertThrows(IllegalArgumentException.class, () -> Lttb.downsample(new long[10], 2));
+    }
+    
+    @Test
+    void keepsOnePointPerBucketAndBothEnds() {
+        Random random = new Random(13);
+        for (int round = 0; round < 200; round++) {
+            int size = 4 + random.nextInt(5000);
+            int maxPoints = 3 + random.nextInt(size - 3);
+            long[] values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt(100_000);
+            }
+            
+            List<Integer> kept = Lttb.downsample(values, maxPoints);
+            
+            assertEquals(maxPoints, kept.size(), "points kept of " + size);
+            assertEquals(0, kept.get(0));
+            assertEquals(size - 1, kept.get(kept.size() - 1));
+            double bucketSize = (double) (size - 2) / (maxPoints - 2);
+            for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+                int index = kept.get(bucket + 1);
+                assertTrue(index >= (int) Math.floor(bucket * bucketSize) + 1
+                        && index < (int) Math.floor((bucket + 1) * bucketSize) + 1,
+                        "index " + index + " outside bucket " + bucket);
+            }
+        }
+    }
+    
+    @Test
+    void keepsPeaksOfAFlatSeries() {
+        long[] values = new long[1000];
+        values[137] = 50_000;
+        values[641] = -20_000;
+        
+        List<Integer> kept = Lttb.downsample(values, 20);
+        
+        assertTrue(kept.contains(137), "peak kept");
+        assertTrue(kept.contains(641), "trough kept");
+    }
+}
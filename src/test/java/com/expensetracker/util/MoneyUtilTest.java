@@ -0,0 +1,42 @@
+package com.expensetracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyUtilTest {
+    
+    @Test
+    void convertsAmountsOfAnyScaleToCents() {
+        assertEquals(1050, MoneyUtil.toCents(new BigDecimal("10.5")));
+        assertEquals(1050, MoneyUtil.toCents(new BigDecimal("10.50")));
+        assertEquals(25_000, MoneyUtil.toCents(new BigDecimal("2.5E+2")));
+        assertEquals(-199, MoneyUtil.toCents(new BigDecimal("-1.99")));
+        assertEquals(0, MoneyUtil.toCents(BigDecimal.ZERO));
+    }
+    
+    @Test
+    void roundsExtraFractionDigitsHalfEven() {
+        assertEquals(1000, MoneyUtil.toCents(new BigDecimal("10.005")));
+        assertEquals(1002, MoneyUtil.toCents(new BigDecimal("10.015")));
+        assertEquals(1001, MoneyUtil.toCents(new BigDecimal("10.0051")));
+        assertEquals(-1002, MoneyUtil.toCents(new BigDecimal("-10.015")));
+        assertEquals(333, MoneyUtil.toCents(new BigDecimal("3.3333333333")));
+    }
+    
+    @Test
+    void rejectsAmountsBeyondALongOfCents() {
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.toCents(new BigDecimal("1E+17")));
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.add(Long.MAX_VALUE, 1));
+    }
+    
+    @Test
+    void convertsCentsBackWithTwoDecimals() {
+        assertEquals(new BigDecimal("10.50"), MoneyUtil.toAmount(1050));
+        assertEquals(new BigDecimal("-0.01"), MoneyUtil.toAmount(-1));
+        assertEquals(new BigDecimal("0.00"), MoneyUtil.toAmount(0));
+    }
+}
@@ -0,0 +1,73 @@
+package com.expensetracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovingWindowSumsTest {
+    
+    private static final int[] WINDOWS = {7, 30, 90};
+    private static final long START_DAY = 19_000;
+    
+    @Test
+    void windowSumsMatchBruteForceUnderRandomUpdates() {
+        Random random = new Random(3);
+        MovingWindowSums moving = new MovingWindowSums(WINDOWS, START_DAY);
+        Map<Long, Long> values = new HashMap<>();
+        
+        for (int step = 0; step < 20_000; step++) {
+            int operation = random.nextInt(20);
+            if (operation == 0) {
+                // Sometimes far enough ahead to clear every window
+                moving.advanceTo(moving.endDay() + (random.nextInt(10) == 0 ? 200 : random.nextInt(5)));
+            } else {
+                // Mostly inside the windows, sometimes before the longest one or ahead of the end
+                long day = moving.endDay() - random.nextInt(120) + (operation == 1 ? 3 : 0);
+                long delta = random.nextInt(20_001) - 10_000;
+                moving.add(day, delta);
+                values.merge(day, delta, Long::sum);
+            }
+            
+            for (int i = 0; i < WINDOWS.length; i++) {
+                assertEquals(bruteForce(values, moving.endDay() - WINDOWS[i] + 1, moving.endDay()), moving.sum(i),
+                        WINDOWS[i] + "-day sum at step " + step);
+            }
+        }
+    }
+    
+    @Test
+    void seriesMatchesBruteForce() {
+        Random random = new Random(5);
+        Map<Long, Long> values = new HashMap<>();
+        for (long day = START_DAY - 200; day < START_DAY + 400; day++) {
+            if (random.nextInt(3) > 0) {
+                values.put(day, (long) random.nextInt(50_000));
+            }
+        }
+        
+        long fromDay = START_DAY;
+        long toDay = START_DAY + 365;
+        long[][] series = MovingWindowSums.series(WINDOWS, fromDay, toDay, day -> values.getOrDefault(day, 0L));
+        
+        for (int i = 0; i < WINDOWS.length; i++) {
+            long[] expected = new long[(int) (toDay - fromDay + 1)];
+            for (long day = fromDay; day <= toDay; day++) {
+                expected[(int) (day - fromDay)] = bruteForce(values, day - WINDOWS[i] + 1, day);
+            }
+            assertArrayEquals(expected, series[i], WINDOWS[i] + "-day series");
+        }
+    }
+    
+    private static long bruteForce(Map<Long, Long> values, long fromDay, long toDay) {
+        long total = 0;
+        for (long day = fromDay; day <= toDay; day++) {
+            total += values.getOrDefault(day, 0L);
+        }
+        return total;
+    }
+}
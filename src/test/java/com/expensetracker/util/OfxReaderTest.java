@@ -0,0 +1,67 @@
+package com.expensetracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OfxReaderTest {
+    
+    private static final Set<String> ELEMENTS = Set.of("DTPOSTED", "TRNAMT", "NAME", "MEMO");
+    
+    @Test
+    void readsSgmlTransactionsWithUnclosedElements() throws IOException {
+        String ofx = "OFXHEADER:100\nDATA:OFXSGML\n\n"
+                + "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><CURDEF>EUR\n"
+                + "<BANKTRANLIST><DTSTART>20240101\n"
+                + "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20240102\n<TRNAMT>-12.50\n<FITID>1\n<NAME>Bakery\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNTYPE>CREDIT\n<DTPOSTED>20240103120000\n<TRNAMT>100\n<NAME>Salary\n<MEMO>January\n</STMTTRN>\n"
+                + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+        
+        assertEquals(List.of(
+                Map.of("DTPOSTED", "20240102", "TRNAMT", "-12.50", "NAME", "Bakery"),
+                Map.of("DTPOSTED", "20240103120000", "TRNAMT", "100", "NAME", "Salary", "MEMO", "January")),
+                readAll(ofx));
+    }
+    
+    @Test
+    void readsXmlTransactionsAndUnescapesEntities() throws IOException {
+        String ofx = "<?xml version=\"1.0\"?>\n<?OFX OFXHEADER=\"200\"?>\n"
+                + "<OFX><BANKTRANLIST>\n"
+                + "  <stmttrn>\n    <DTPOSTED>20240105</DTPOSTED>\n    <TRNAMT>-3.20</TRNAMT>\n"
+                + "    <NAME>Fish &amp; Chips &lt;Pier&gt;</NAME>\n    <FITID>9</FITID>\n  </stmttrn>\n"
+                + "</BANKTRANLIST></OFX>";
+        
+        assertEquals(List.of(Map.of("DTPOSTED", "20240105", "TRNAMT", "-3.20", "NAME", "Fish & Chips <Pier>")),
+                readAll(ofx));
+    }
+    
+    @Test
+    void elementsOutsideTransactionsAreIgnored() throws IOException {
+        assertEquals(List.of(), readAll("<OFX><NAME>Bank<TRNAMT>5</OFX>"));
+    }
+    
+    @Test
+    void oversizedTokensAreRejected() throws IOException {
+        try (OfxReader reader = new OfxReader(new StringReader("<" + "A".repeat(5000) + ">"), ELEMENTS)) {
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+    
+    private static List<Map<String, String>> readAll(String text) throws IOException {
+        List<Map<String, String>> transactions = new ArrayList<>();
+        try (OfxReader reader = new OfxReader(new StringReader(text), ELEMENTS)) {
+            for (Map<String, String> transaction = reader.next(); transaction != null; transaction = reader.next()) {
+                transactions.add(transaction);
+            }
+        }
+        return transactions;
+    }
+}
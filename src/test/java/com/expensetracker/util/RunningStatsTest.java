@@ -0,0 +1,86 @@
+package com.expensetracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RunningStatsTest {
+    
+    @Test
+    void removeReversesAddUnderRandomUpdates() {
+        Random random = new Random(21);
+        RunningStats stats = new RunningStats();
+        List<Long> values = new ArrayList<>();
+        
+        for (int step = 0; step < 20_000; step++) {
+            if (values.isEmpty() || random.nextInt(3) != 0) {
+                // Cent amounts from a few cents to tens of thousands of dollars
+                long value = 1 + (long) Math.exp(random.nextDouble() * Math.log(5_000_000));
+                stats.add(value);
+                values.add(value);
+            } else {
+                long value = values.remove(random.nextInt(values.size()));
+                stats.remove(value);
+            }
+            
+            assertEquals(values.size(), stats.getCount(), "count at step " + step);
+            double mean = values.stream().mapToLong(Long::longValue).average().orElse(0);
+            assertEquals(mean, stats.getMean(), 1e-6 * Math.max(1, Math.abs(mean)), "mean at step " + step);
+            double deviation = twoPassDeviation(values, mean);
+            assertEquals(deviation, stats.getStandardDeviation(), 1e-6 * Math.max(1, deviation),
+                    "standard deviation at step " + step);
+        }
+    }
+    
+    @Test
+    void removingEveryValueResetsToEmpty() {
+        RunningStats stats = new RunningStats();
+        stats.add(1250);
+        stats.add(725);
+        stats.add(99_999);
+        
+        stats.remove(99_999);
+        assertEquals(2, stats.getCount());
+        assertEquals(987.5, stats.getMean(), 1e-9);
+        assertEquals(Math.sqrt(2 * 262.5 * 262.5), stats.getStandardDeviation(), 1e-9);
+        
+        stats.remove(725);
+        assertEquals(1250, stats.getMean(), 1e-9);
+        assertEquals(0, stats.getStandardDeviation());
+        
+        stats.remove(1250);
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getMean());
+        assertEquals(0, stats.getM2());
+    }
+    
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        RunningStats stats = new RunningStats();
+        stats.add(100);
+        stats.add(300);
+        
+        RunningStats copy = new RunningStats(stats);
+        copy.remove(300);
+        
+        assertEquals(2, stats.getCount());
+        assertEquals(200, stats.getMean(), 1e-9);
+        assertEquals(1, copy.getCount());
+        assertEquals(100, copy.getMean(), 1e-9);
+    }
+    
+    private static double twoPassDeviation(List<Long> values, double mean) {
+        if (values.size() < 2) {
+            return 0;
+        }
+        double sum = 0;
+        for (long value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (values.size() - 1));
+    }
+}